@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Raises the application log level to WARN and discards console output,
+     * so that the benchmarks measure the code rather than the terminal.
+     */
+    public static void silence() {
+        Configurator.setLevel("com.parkit.parkingsystem", Level.WARN);
+        Configurator.setRootLevel(Level.WARN);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Input reader replaying a scripted vehicle instead of reading the console.
+     */
+    public static class ScriptedInputReader extends InputReaderUtil {
+        private volatile String vehicleRegNumber;
+        private volatile int selection = 1;
+
+        /**
+         * Sets the answers returned by the next prompts.
+         * @param vehicleRegNumber the vehicle registration number to return.
+         * @param selection the menu selection to return, 1 for CAR and 2 for BIKE.
+         */
+        public void answer(String vehicleRegNumber, int selection) {
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.selection = selection;
+        }
+
+        @Override
+        public int readSelection() {
+            return selection;
+        }
+
+        @Override
+        public String readVehicleRegistrationNumber() {
+            return vehicleRegNumber;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.PoolConfig;
+import com.parkit.parkingsystem.config.SchemaMigrationRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Database configuration pointing at an in-memory H2 database running in MySQL mode,
+ * with the schema of {@code resources/Data.sql} migrated to the latest version.
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    private final String url;
+    private int statementCacheSize = new PoolConfig().getStatementCacheSize();
+
+    /**
+     * Creates the configuration of a named in-memory database, kept alive until the JVM exits.
+     * @param name the name of the database.
+     */
+    public EmbeddedDataBaseConfig(String name) {
+        this.url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUrl() {
+        return url;
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected PoolConfig getPoolConfig() {
+        PoolConfig config = new PoolConfig();
+        config.setMaxSize(Runtime.getRuntime().availableProcessors() * 2);
+        config.setStatementCacheSize(statementCacheSize);
+        return config;
+    }
+
+    /**
+     * Sets the number of prepared statements cached per pooled connection, before the first connection is borrowed.
+     * @param statementCacheSize the cache size, 0 to prepare every statement again.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Drops everything, creates the parking and ticket tables, applies the schema migrations and inserts the parking spots
+     * of the default lot, cars first then bikes.
+     * @param carSpots the number of car spots.
+     * @param bikeSpots the number of bike spots.
+     * @throws SQLException if the schema could not be created.
+     */
+    public void createSchema(int carSpots, int bikeSpots) throws SQLException {
+        try (Connection con = getConnection(); Statement statement = con.createStatement()) {
+            // Also drops the tables created by the migrations, whichever they are
+            statement.execute("drop all objects");
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+            statement.execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL, "
+                    + "VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE DOUBLE, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME, "
+                    + "PARKING_TYPE varchar(10) NOT NULL, CONSTRAINT ticket_ibfk_1 FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+        }
+        new SchemaMigrationRunner(this).migrate();
+        try (Connection con = getConnection()) {
+            try (PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")) {
+                for (int number = 1; number <= carSpots + bikeSpots; number++) {
+                    ps.setInt(1, number);
+                    ps.setString(2, number <= carSpots ? "CAR" : "BIKE");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Inserts closed one-hour tickets on spot 1, spread evenly over the given number of plates.
+     * @param count the number of tickets to insert.
+     * @param plates the number of distinct plates, named {@code P0}, {@code P1}...
+     * @throws SQLException if the tickets could not be inserted.
+     */
+    public void insertClosedTickets(int count, int plates) throws SQLException {
+        long start = System.currentTimeMillis() - count * 3600_000L;
+        try (Connection con = getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) values(1,?,1.5,?,?,'CAR')")) {
+            con.setAutoCommit(false);
+            for (int i = 0; i < count; i++) {
+                long inTime = start + i * 60_000L;
+                ps.setString(1, "P" + (i % plates));
+                ps.setTimestamp(2, new Timestamp(inTime));
+                ps.setTimestamp(3, new Timestamp(inTime + 3600_000L));
+                ps.addBatch();
+                if (i % 10_000 == 9_999) {
+                    ps.executeBatch();
+                    con.commit();
+                }
+            }
+            ps.executeBatch();
+            con.commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FixedPointFareCalculatorService;
+import com.parkit.parkingsystem.service.TariffFareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the fare calculation of a 3 hour and a 30 day stay, for each vehicle type, with and without discount,
+ * with the BigDecimal calculator, the fixed-point one, and the compiled tariffs: the default flat one
+ * and one with night and weekend bands and a daily cap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+    @Param({"CAR", "BIKE"})
+    public ParkingType parkingType;
+
+    @Param({"false", "true"})
+    public boolean discount;
+
+    @Param({"bigdecimal", "fixedpoint", "tariff", "banded"})
+    public String engine;
+
+    // 3h17 and 30 days
+    @Param({"197", "43200"})
+    public long stayMinutes;
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket ticket;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.silence();
+        switch (engine) {
+            case "fixedpoint":
+                fareCalculatorService = new FixedPointFareCalculatorService();
+                break;
+            case "tariff":
+                fareCalculatorService = new TariffFareCalculatorService(Tariff.defaultTariff());
+                break;
+            case "banded":
+                fareCalculatorService = new TariffFareCalculatorService(bandedTariff());
+                break;
+            default:
+                fareCalculatorService = new FareCalculatorService();
+        }
+        Date outTime = new Date();
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setInTime(new Date(outTime.getTime() - stayMinutes * 60_000L));
+        ticket.setOutTime(outTime);
+    }
+
+    private static Tariff bandedTariff() {
+        Properties properties = new Properties();
+        properties.setProperty("car.rate", "1.5");
+        properties.setProperty("car.dailyCap", "15");
+        properties.setProperty("car.bands", "night,weekend");
+        properties.setProperty("car.band.night.days", "MON-FRI");
+        properties.setProperty("car.band.night.from", "20:00");
+        properties.setProperty("car.band.night.to", "08:00");
+        properties.setProperty("car.band.night.rate", "0.75");
+        properties.setProperty("car.band.weekend.days", "SAT,SUN");
+        properties.setProperty("car.band.weekend.rate", "1");
+        properties.setProperty("bike.rate", "1");
+        properties.setProperty("bike.dailyCap", "8");
+        return TariffLoader.compile(properties);
+    }
+
+    @Benchmark
+    public Ticket calculateFare() {
+        fareCalculatorService.calculateFare(ticket, discount);
+        return ticket;
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.GateEngine;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the {@link GateEngine}: every benchmark thread is a lane driving cars in then out.
+ * Throughput mode gives the cars per second over all the lanes, sample time mode the latency percentiles (p99...).
+ * The number of lanes is the JMH thread count, 8 by default, e.g. {@code -Djmh.args="GateEngine -t 32"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class GateEngineBenchmark {
+
+    private static final int PLATES_PER_LANE = 50;
+
+    @Param({"1", "4", "16"})
+    public int workers;
+
+    private GateEngine gateEngine;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkSupport.silence();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("gates" + workers);
+        dataBaseConfig.createSchema(1000, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.visitCountCache = new VisitCountCache(10000);
+        ticketDAO.loadActiveTicketCache();
+        gateEngine = new GateEngine(new ParkingService(null, parkingSpotDAO, ticketDAO), workers, workers * 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateEngine.close();
+    }
+
+    /**
+     * The cars of one lane, distinct from the cars of the other lanes.
+     */
+    @State(Scope.Thread)
+    public static class Lane {
+        private static final AtomicInteger lanes = new AtomicInteger();
+
+        private String[] plates;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int lane = lanes.incrementAndGet();
+            plates = new String[PLATES_PER_LANE];
+            for (int i = 0; i < PLATES_PER_LANE; i++) {
+                plates[i] = "L" + lane + "-" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean entryThenExit(Lane lane) throws Exception {
+        String plate = lane.plates[lane.next++ % PLATES_PER_LANE];
+        return gateEngine.submitEntry(plate, ParkingType.CAR).join().isSuccess()
+                && gateEngine.submitExit(plate).join().isSuccess();
+    }
+}
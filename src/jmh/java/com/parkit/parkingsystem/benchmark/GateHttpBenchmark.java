@@ -0,0 +1,120 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.http.GateHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the {@link GateHttpServer} over keep-alive HTTP/1.1 connections: every benchmark thread is a camera
+ * posting entries and exits, or polling the availability. Throughput mode gives the requests per millisecond,
+ * sample time mode the latency percentiles. Run it at several concurrency levels with {@code -t}, e.g.
+ * {@code -Djmh.args="GateHttpBenchmark -t 1"} then {@code -t 8} and {@code -t 64}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class GateHttpBenchmark {
+
+    private static final int PLATES_PER_CAMERA = 50;
+
+    private GateHttpServer server;
+    private HttpClient client;
+    private URI entryUri;
+    private URI exitUri;
+    private URI availabilityUri;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        BenchmarkSupport.silence();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("http");
+        dataBaseConfig.createSchema(1000, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.visitCountCache = new VisitCountCache(10000);
+        ticketDAO.loadActiveTicketCache();
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        server = new GateHttpServer(parkingService, parkingSpotDAO, new InetSocketAddress("localhost", 0), 16);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+        entryUri = URI.create(base + "/entry");
+        exitUri = URI.create(base + "/exit");
+        availabilityUri = URI.create(base + "/availability");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * The cars seen by one camera, distinct from the cars of the other cameras.
+     */
+    @State(Scope.Thread)
+    public static class Camera {
+        private static final AtomicInteger cameras = new AtomicInteger();
+
+        private String[] plates;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int camera = cameras.incrementAndGet();
+            plates = new String[PLATES_PER_CAMERA];
+            for (int i = 0; i < PLATES_PER_CAMERA; i++) {
+                plates[i] = "H" + camera + "-" + i;
+            }
+        }
+    }
+
+    private int post(URI uri, String form) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public int entryThenExit(Camera camera) throws IOException, InterruptedException {
+        String plate = camera.plates[camera.next++ % PLATES_PER_CAMERA];
+        return post(entryUri, "plate=" + plate + "&type=CAR") + post(exitUri, "plate=" + plate);
+    }
+
+    @Benchmark
+    public int availability() throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(availabilityUri).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
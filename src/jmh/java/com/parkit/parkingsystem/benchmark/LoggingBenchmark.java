@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of entries then exits through {@link ParkingService}, with the in-memory caches, depending on logging:
+ * {@code off}, {@code sync} (the log4j default, every line written and flushed by the gate thread) or
+ * {@code async} (the application setting, lines handed to the log4j ring buffer).
+ * The application loggers are at DEBUG and write to {@code target/logging-benchmark.log}, so every entry and exit
+ * logs a few lines, as the INFO level used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final int PLATES_PER_LANE = 50;
+
+    @Param({"off", "sync", "async"})
+    public String logging;
+
+    private ParkingService parkingService;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // Log4j reads these when first used, which is in this method: each parameter runs in a fresh fork
+        System.setProperty("log4j2.contextSelector", "async".equals(logging)
+                ? "org.apache.logging.log4j.core.async.AsyncLoggerContextSelector"
+                : "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector");
+        System.setProperty("log4j.configurationFile", "log4j2-benchmark.xml");
+        System.setProperty("benchmark.log.immediateFlush", String.valueOf("sync".equals(logging)));
+        if ("off".equals(logging)) {
+            Configurator.setRootLevel(org.apache.logging.log4j.Level.OFF);
+        }
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("logging" + logging);
+        dataBaseConfig.createSchema(1000, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.visitCountCache = new VisitCountCache(10000);
+        ticketDAO.loadActiveTicketCache();
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+    }
+
+    /**
+     * The cars of one benchmark thread, distinct from the cars of the other threads.
+     */
+    @State(Scope.Thread)
+    public static class Lane {
+        private static final AtomicInteger lanes = new AtomicInteger();
+
+        private String[] plates;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int lane = lanes.incrementAndGet();
+            plates = new String[PLATES_PER_LANE];
+            for (int i = 0; i < PLATES_PER_LANE; i++) {
+                plates[i] = "G" + lane + "-" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean entryThenExit(Lane lane) {
+        String plate = lane.plates[lane.next++ % PLATES_PER_LANE];
+        return parkingService.enter(plate, ParkingType.CAR).isSuccess() && parkingService.exit(plate).isSuccess();
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a full entry then exit of a car through {@link ParkingService}, against an embedded database,
+ * with the plain DAOs and with the in-memory spot index and ticket caches loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+    private static final int PLATES = 1000;
+
+    @Param({"false", "true"})
+    public boolean inMemoryCaches;
+
+    private BenchmarkSupport.ScriptedInputReader inputReader;
+    private ParkingService parkingService;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkSupport.silence();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("service" + inMemoryCaches);
+        dataBaseConfig.createSchema(100, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if (inMemoryCaches) {
+            ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+            ticketDAO.visitCountCache = new VisitCountCache(PLATES);
+            ticketDAO.loadActiveTicketCache();
+        }
+        inputReader = new BenchmarkSupport.ScriptedInputReader();
+        parkingService = new ParkingService(inputReader, parkingSpotDAO, ticketDAO);
+    }
+
+    @Benchmark
+    public void entryThenExit() {
+        inputReader.answer("B" + (next++ % PLATES), 1);
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+}
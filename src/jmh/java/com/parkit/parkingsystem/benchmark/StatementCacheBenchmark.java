@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query latency of the DAOs with and without the prepared statement cache of the connection pool,
+ * on a small table so that preparing the statement is a visible part of each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    private static final int PLATES = 500;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private TicketDAO ticketDAO;
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkSupport.silence();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("statements" + statementCacheSize);
+        dataBaseConfig.setStatementCacheSize(statementCacheSize);
+        dataBaseConfig.createSchema(10, 10);
+        dataBaseConfig.insertClosedTickets(PLATES * 10, PLATES);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private String randomPlate() {
+        return "P" + ThreadLocalRandom.current().nextInt(PLATES);
+    }
+
+    @Benchmark
+    public Optional<?> getTicket() {
+        return ticketDAO.getTicket(randomPlate());
+    }
+
+    @Benchmark
+    public boolean isVehicleCurrentlyParked() {
+        return ticketDAO.isVehicleCurrentlyParked(randomPlate());
+    }
+
+    @Benchmark
+    public ParkingSpot getParkingSpot() {
+        return parkingSpotDAO.getParkingSpot(1 + ThreadLocalRandom.current().nextInt(20));
+    }
+}
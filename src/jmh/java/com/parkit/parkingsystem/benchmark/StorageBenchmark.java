@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.storage.InMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of entries then exits through {@link ParkingService} on each storage backend:
+ * {@code jdbc}, the DAOs with their in-memory caches on an embedded H2 database (a MySQL server is slower still),
+ * and {@code memory}, the {@link InMemoryStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class StorageBenchmark {
+
+    private static final int PLATES_PER_LANE = 50;
+
+    @Param({"jdbc", "memory"})
+    public String storage;
+
+    private ParkingService parkingService;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkSupport.silence();
+        if ("memory".equals(storage)) {
+            InMemoryStore store = new InMemoryStore(1000, 100);
+            parkingService = new ParkingService(null, store, store);
+            return;
+        }
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("storage");
+        dataBaseConfig.createSchema(1000, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.visitCountCache = new VisitCountCache(10000);
+        ticketDAO.loadActiveTicketCache();
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+    }
+
+    /**
+     * The cars of one benchmark thread, distinct from the cars of the other threads.
+     */
+    @State(Scope.Thread)
+    public static class Lane {
+        private static final AtomicInteger lanes = new AtomicInteger();
+
+        private String[] plates;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int lane = lanes.incrementAndGet();
+            plates = new String[PLATES_PER_LANE];
+            for (int i = 0; i < PLATES_PER_LANE; i++) {
+                plates[i] = "S" + lane + "-" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean entryThenExit(Lane lane) {
+        String plate = lane.plates[lane.next++ % PLATES_PER_LANE];
+        return parkingService.enter(plate, ParkingType.CAR).isSuccess() && parkingService.exit(plate).isSuccess();
+    }
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the per-plate ticket queries on a large ticket table, with and without the ticket indexes of the migrations.
+ * The table size is set with {@code -p rows=...}, e.g. {@code -p rows=10000000} for the 10M-row figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TicketDAOBenchmark {
+
+    private static final int TICKETS_PER_PLATE = 20;
+    private static final String[] TICKET_INDEXES = {
+            "IDX_TICKET_LOT_PLATE_IN_TIME", "IDX_TICKET_LOT_PLATE_OUT_TIME", "IDX_TICKET_LOT_OUT_TIME", "IDX_TICKET_LOT_IN_TIME"
+    };
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private TicketDAO ticketDAO;
+    private int plates;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkSupport.silence();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("dao" + rows + indexed);
+        dataBaseConfig.createSchema(10, 10);
+        plates = Math.max(1, rows / TICKETS_PER_PLATE);
+        dataBaseConfig.insertClosedTickets(rows, plates);
+        if (!indexed) {
+            try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+                for (String index : TICKET_INDEXES) {
+                    statement.execute("drop index " + index + " on ticket");
+                }
+            }
+        }
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private String randomPlate() {
+        return "P" + ThreadLocalRandom.current().nextInt(plates);
+    }
+
+    @Benchmark
+    public Optional<?> getTicket() {
+        return ticketDAO.getTicket(randomPlate());
+    }
+
+    @Benchmark
+    public int getNbTicket() {
+        return ticketDAO.getNbTicket(randomPlate());
+    }
+
+    @Benchmark
+    public boolean isVehicleCurrentlyParked() {
+        return ticketDAO.isVehicleCurrentlyParked(randomPlate());
+    }
+}
@@ -1,9 +1,35 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrationRunner;
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.StorageType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.http.GateHttpServer;
+import com.parkit.parkingsystem.model.ReplayReport;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import com.parkit.parkingsystem.service.EventReplayService;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingLots;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.service.TicketArchivalService;
+import com.parkit.parkingsystem.service.TicketExportService;
+import com.parkit.parkingsystem.service.TariffFareCalculatorService;
+import com.parkit.parkingsystem.service.TicketRepricingService;
+import com.parkit.parkingsystem.tariff.TariffLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
 /**
  * Main application class that serves as the entry point to the parking system.
  */
@@ -12,10 +38,164 @@ public class App {
     
     /**
      * Main method to start the parking system application.
-     * @param args Command line arguments, not used in this application.
+     * Without arguments the interactive shell is started; batch commands are:
+     * <ul>
+     *     <li>{@code reprice <from> <to>}: reprices the closed tickets with an in time in [from, to), dates as yyyy-MM-dd,
+     *     with the tariff of the lot if it has one</li>
+     *     <li>{@code export <csv|columnar> <file> <from> <to> [type=CAR|BIKE] [plate=ABCDEF] [gzip]}:
+     *     exports the tickets with an in time in [from, to) to a file</li>
+     *     <li>{@code archive [days]}: moves the tickets closed more than {@code days} ago, 90 by default,
+     *     from the ticket table to the archive</li>
+     *     <li>{@code replay <file>}: applies the entries and exits of a camera event log with their recorded times</li>
+     *     <li>{@code serve [port]}: serves the gate HTTP endpoint until the JVM is stopped, on port 8080 by default</li>
+     * </ul>
+     * The shell, {@code serve} and {@code replay} run on the in-memory store with {@code -Dparkit.storage=memory};
+     * {@code reprice}, {@code export} and {@code archive} always work on the database.
+     * {@code serve} serves every lot of {@code parkit.lots}; the other commands work on the lot selected by {@code parkit.lot}.
+     * The schema of every shard is migrated on startup; nothing is started if a migration fails,
+     * as every query needs the migrated schema.
+     * @param args Command line arguments, selecting a batch command if any.
      */
     public static void main(String args[]){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        if (ParkingSystem.getStorageType() == StorageType.JDBC && Boolean.parseBoolean(System.getProperty("parkit.db.migrate", "true"))) {
+            for (DataBaseConfig shard : ShardRouter.fromSystemProperties().getShards()) {
+                try {
+                    new SchemaMigrationRunner(shard).migrate();
+                } catch (Exception e) {
+                    logger.error("Unable to migrate the database schema of {}, not starting", shard, e);
+                    DataBaseConfig.closePools();
+                    return;
+                }
+            }
+        }
+        if (args.length == 0) {
+            InteractiveShell.loadInterface();
+            return;
+        }
+        if (args[0].equals("serve")) {
+            serve(args);
+            return;
+        }
+        try {
+            switch (args[0]) {
+                case "reprice":
+                    reprice(args);
+                    break;
+                case "export":
+                    export(args);
+                    break;
+                case "archive":
+                    archive(args);
+                    break;
+                case "replay":
+                    replay(args);
+                    break;
+                default:
+                    System.out.println("Unknown command: " + args[0]);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to run command {}", args[0], e);
+        } finally {
+            DataBaseConfig.closePools();
+        }
+    }
+
+    private static void serve(String[] args) {
+        try {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("parkit.http.port", 8080);
+            ParkingLots parkingLots = ParkingLots.load(ShardRouter.fromSystemProperties());
+            GateHttpServer server = new GateHttpServer(parkingLots, new InetSocketAddress(port), Integer.getInteger("parkit.http.threads", 16));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                parkingLots.close();
+                DataBaseConfig.closePools();
+            }));
+            server.start();
+            System.out.println("Gate HTTP endpoint listening on port " + server.getPort());
+        } catch (Exception e) {
+            logger.error("Unable to start the gate HTTP endpoint", e);
+            DataBaseConfig.closePools();
+        }
+    }
+
+    private static void reprice(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.out.println("Usage: reprice <from yyyy-MM-dd> <to yyyy-MM-dd>");
+            return;
+        }
+        TicketRepricingService repricingService = new TicketRepricingService(newTicketDAO());
+        repricingService.setChunkSize(Integer.getInteger("parkit.reprice.chunkSize", 1000));
+        repricingService.setThreads(Integer.getInteger("parkit.reprice.threads", Math.min(Runtime.getRuntime().availableProcessors(), 4)));
+        Path tariffFile = ParkingSystem.getTariffFile(ParkingSystem.getLotId());
+        if (tariffFile != null) {
+            repricingService.setFareCalculatorService(new TariffFareCalculatorService(TariffLoader.load(tariffFile)));
+        }
+        RepricingReport report = repricingService.reprice(parseDate(args[1]), parseDate(args[2]));
+        System.out.println("Repricing done: " + report);
+    }
+
+    private static void export(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.out.println("Usage: export <csv|columnar> <file> <from yyyy-MM-dd> <to yyyy-MM-dd> [type=CAR|BIKE] [plate=ABCDEF] [gzip]");
+            return;
+        }
+        ExportFormat format = ExportFormat.valueOf(args[1].toUpperCase());
+        TicketExportFilter filter = new TicketExportFilter(parseDate(args[3]), parseDate(args[4]));
+        boolean gzip = false;
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].startsWith("type=")) {
+                filter.setParkingType(ParkingType.valueOf(args[i].substring("type=".length()).toUpperCase()));
+            } else if (args[i].startsWith("plate=")) {
+                filter.setVehicleRegNumber(args[i].substring("plate=".length()));
+            } else if (args[i].equals("gzip")) {
+                gzip = true;
+            } else {
+                System.out.println("Unknown export option: " + args[i]);
+                return;
+            }
+        }
+        long count = new TicketExportService(newTicketDAO()).export(filter, format, Paths.get(args[2]), gzip);
+        System.out.println("Exported " + count + " tickets to " + args[2]);
+    }
+
+    private static void archive(String[] args) throws Exception {
+        if (args.length > 2) {
+            System.out.println("Usage: archive [days]");
+            return;
+        }
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("parkit.archive.afterDays", 90);
+        TicketArchivalService archivalService = new TicketArchivalService(newTicketDAO());
+        archivalService.setChunkSize(Integer.getInteger("parkit.archive.chunkSize", 1000));
+        long archived = archivalService.archiveOlderThan(days);
+        System.out.println("Archived " + archived + " tickets closed more than " + days + " days ago");
+    }
+
+    private static void replay(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.out.println("Usage: replay <file>");
+            return;
+        }
+        ParkingSystem parkingSystem = ParkingSystem.load(null);
+        try {
+            EventReplayService replayService = new EventReplayService(parkingSystem);
+            replayService.setBatchSize(Integer.getInteger("parkit.replay.batchSize", 500));
+            ReplayReport report = replayService.replay(Paths.get(args[1]));
+            System.out.println("Replay done: " + report);
+        } finally {
+            parkingSystem.close();
+        }
+    }
+
+    private static TicketDAO newTicketDAO() {
+        String lotId = ParkingSystem.getLotId();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = ShardRouter.fromSystemProperties().getDataBaseConfig(lotId);
+        ticketDAO.lotId = lotId;
+        return ticketDAO;
+    }
+
+    private static Date parseDate(String date) {
+        return Date.from(LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 }
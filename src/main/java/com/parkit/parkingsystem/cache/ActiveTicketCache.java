@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory map of the currently open tickets (without out time), keyed by vehicle registration number.
+ * Tickets are copied in and out of the cache so callers can never alter the cached state.
+ */
+public class ActiveTicketCache {
+
+    private static final Logger logger = LogManager.getLogger("ActiveTicketCache");
+
+    private final Map<String, Ticket> ticketsByVehicle = new ConcurrentHashMap<>();
+    private volatile boolean consistencyCheck;
+
+    /**
+     * Replaces the content of the cache with the given open tickets.
+     * @param openTickets the tickets without out time, as stored in the database.
+     */
+    public void load(List<Ticket> openTickets) {
+        ticketsByVehicle.clear();
+        openTickets.forEach(this::put);
+        logger.info("Loaded {} open tickets in the active ticket cache", openTickets.size());
+    }
+
+    /**
+     * Checks if an open ticket is cached for the given vehicle.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return true if the vehicle is currently parked.
+     */
+    public boolean contains(String vehicleRegNumber) {
+        return ticketsByVehicle.containsKey(vehicleRegNumber);
+    }
+
+    /**
+     * Gets a copy of the open ticket of the given vehicle.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the open ticket, or an empty Optional if the vehicle is not parked.
+     */
+    public Optional<Ticket> get(String vehicleRegNumber) {
+        Ticket ticket = ticketsByVehicle.get(vehicleRegNumber);
+        return ticket == null ? Optional.empty() : Optional.of(copyOf(ticket));
+    }
+
+    /**
+     * Caches a copy of an open ticket, replacing any ticket cached for the same vehicle.
+     * @param ticket the open ticket.
+     */
+    public void put(Ticket ticket) {
+        ticketsByVehicle.put(ticket.getVehicleRegNumber(), copyOf(ticket));
+    }
+
+    /**
+     * Removes the cached ticket of a vehicle, provided it is the given ticket.
+     * @param ticket the ticket that has been closed.
+     */
+    public void remove(Ticket ticket) {
+        ticketsByVehicle.computeIfPresent(ticket.getVehicleRegNumber(),
+                (vehicleRegNumber, cached) -> cached.getId() == ticket.getId() ? null : cached);
+    }
+
+    /**
+     * Gets the number of cached open tickets.
+     * @return the number of parked vehicles.
+     */
+    public int size() {
+        return ticketsByVehicle.size();
+    }
+
+    /**
+     * Checks if lookups should be verified against the database.
+     * @return true if the consistency check mode is enabled.
+     */
+    public boolean isConsistencyCheck() {
+        return consistencyCheck;
+    }
+
+    /**
+     * Enables or disables the verification of every lookup against the database.
+     * @param consistencyCheck true to enable the consistency check mode.
+     */
+    public void setConsistencyCheck(boolean consistencyCheck) {
+        this.consistencyCheck = consistencyCheck;
+    }
+
+    /**
+     * Brings the cache in line with the open tickets stored in the database, logging every difference.
+     * Tickets cached after the database was read are left alone, as the snapshot cannot know about them.
+     * @param openTickets the tickets without out time, as stored in the database.
+     * @param snapshotTime the time at which the open tickets started being read from the database.
+     * @return the number of differences that were fixed.
+     */
+    public int reconcile(List<Ticket> openTickets, Date snapshotTime) {
+        Map<String, Ticket> expected = new HashMap<>();
+        openTickets.forEach(ticket -> expected.put(ticket.getVehicleRegNumber(), ticket));
+        int differences = 0;
+        for (Map.Entry<String, Ticket> entry : ticketsByVehicle.entrySet()) {
+            String vehicleRegNumber = entry.getKey();
+            if (!expected.containsKey(vehicleRegNumber) && entry.getValue().getInTime().before(snapshotTime)) {
+                logger.warn("Vehicle {} is cached as parked but has no open ticket in the database", vehicleRegNumber);
+                ticketsByVehicle.remove(vehicleRegNumber);
+                differences++;
+            }
+        }
+        for (Ticket ticket : expected.values()) {
+            Ticket cached = ticketsByVehicle.get(ticket.getVehicleRegNumber());
+            if (cached == null || cached.getId() != ticket.getId()) {
+                logger.warn("Open ticket {} of vehicle {} was missing from the cache", ticket.getId(), ticket.getVehicleRegNumber());
+                put(ticket);
+                differences++;
+            }
+        }
+        return differences;
+    }
+
+    private static Ticket copyOf(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        if (parkingSpot != null) {
+            ParkingSpot spotCopy = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+            spotCopy.setLotId(parkingSpot.getLotId());
+            copy.setParkingSpot(spotCopy);
+        }
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setPriceText(ticket.getPriceText());
+        copy.setInTime(ticket.getInTime() == null ? null : new Date(ticket.getInTime().getTime()));
+        copy.setOutTime(ticket.getOutTime() == null ? null : new Date(ticket.getOutTime().getTime()));
+        copy.setParkingType(ticket.getParkingType());
+        copy.setLotId(ticket.getLotId());
+        return copy;
+    }
+}
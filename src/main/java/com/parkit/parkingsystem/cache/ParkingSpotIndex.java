@@ -0,0 +1,209 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory index of the free parking spots of each {@link ParkingType}.
+ * Each type keeps a bitset keyed by spot number where a set bit means the spot is free.
+ * Spots are allocated lowest number first by clearing their bit with a compare-and-set,
+ * so concurrent allocations never hand out the same spot and never block each other.
+ * The index only mirrors the {@code parking} table: callers write every change through to the database.
+ */
+public class ParkingSpotIndex {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSpotIndex");
+
+    private volatile Map<ParkingType, SpotBitSet> spotsByType = new EnumMap<>(ParkingType.class);
+
+    /**
+     * (Re)loads the index from the given parking spots, replacing its previous content.
+     * @param parkingSpots every parking spot of the lot, with its current availability.
+     */
+    public void load(List<ParkingSpot> parkingSpots) {
+        Map<ParkingType, Integer> maxNumbers = new EnumMap<>(ParkingType.class);
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxNumbers.merge(parkingSpot.getParkingType(), parkingSpot.getId(), Math::max);
+        }
+        Map<ParkingType, SpotBitSet> loaded = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            loaded.put(parkingType, new SpotBitSet(maxNumbers.getOrDefault(parkingType, 0)));
+        }
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            SpotBitSet spots = loaded.get(parkingSpot.getParkingType());
+            spots.total++;
+            if (parkingSpot.isAvailable()) {
+                spots.release(parkingSpot.getId());
+            }
+        }
+        spotsByType = loaded;
+        logger.info("Loaded parking spot index with {} spots", parkingSpots.size());
+    }
+
+    /**
+     * Allocates the free spot with the lowest number for the given type.
+     * @param parkingType the type of spot to allocate.
+     * @return the allocated spot number, or 0 if no spot of this type is free.
+     */
+    public int allocate(ParkingType parkingType) {
+        return spotsByType.get(parkingType).allocate();
+    }
+
+    /**
+     * Returns the free spot with the lowest number for the given type, without allocating it.
+     * @param parkingType the type of spot to look for.
+     * @return the spot number, or 0 if no spot of this type is free.
+     */
+    public int peek(ParkingType parkingType) {
+        return spotsByType.get(parkingType).peek();
+    }
+
+    /**
+     * Marks a spot as free again.
+     * A spot unknown to the index, e.g. added to the lot since it was loaded, is logged and skipped:
+     * the database already holds the change and the next reload picks the spot up.
+     * @param parkingType the type of the spot.
+     * @param number the spot number.
+     */
+    public void release(ParkingType parkingType, int number) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        if (!spots.isKnown(number)) {
+            logger.warn("Parking spot {} of type {} is not in the index, not releasing it", number, parkingType);
+            return;
+        }
+        spots.release(number);
+    }
+
+    /**
+     * Marks a spot as occupied without going through {@link #allocate(ParkingType)}.
+     * A spot unknown to the index is logged and skipped, as in {@link #release(ParkingType, int)}.
+     * @param parkingType the type of the spot.
+     * @param number the spot number.
+     * @return true if the spot was free, false if it was already occupied or is unknown.
+     */
+    public boolean occupy(ParkingType parkingType, int number) {
+        SpotBitSet spots = spotsByType.get(parkingType);
+        if (!spots.isKnown(number)) {
+            logger.warn("Parking spot {} of type {} is not in the index, not occupying it", number, parkingType);
+            return false;
+        }
+        return spots.occupy(number);
+    }
+
+    /**
+     * Tells whether a spot is free.
+     * @param parkingType the type of the spot.
+     * @param number the spot number.
+     * @return true if the spot is free, false if it is occupied or unknown.
+     */
+    public boolean isFree(ParkingType parkingType, int number) {
+        return spotsByType.get(parkingType).isFree(number);
+    }
+
+    /**
+     * Gets the number of free spots of the given type.
+     * @param parkingType the type of spot.
+     * @return the number of free spots.
+     */
+    public int getAvailableCount(ParkingType parkingType) {
+        return spotsByType.get(parkingType).available.get();
+    }
+
+    /**
+     * Gets the number of spots of the given type, free or not.
+     * @param parkingType the type of spot.
+     * @return the number of spots.
+     */
+    public int getTotalCount(ParkingType parkingType) {
+        return spotsByType.get(parkingType).total;
+    }
+
+    /**
+     * Lock-free bitset of the free spots of one parking type.
+     */
+    private static class SpotBitSet {
+        private final AtomicLongArray words;
+        private final AtomicInteger available = new AtomicInteger();
+        // Index of the lowest word that may contain a free spot, so allocation does not rescan full words
+        private final AtomicInteger firstFreeWord = new AtomicInteger();
+        private int total;
+
+        private SpotBitSet(int maxNumber) {
+            this.words = new AtomicLongArray((maxNumber >> 6) + 1);
+        }
+
+        private int allocate() {
+            for (int i = firstFreeWord.get(); i < words.length(); i++) {
+                long word = words.get(i);
+                while (word != 0) {
+                    long lowestBit = Long.lowestOneBit(word);
+                    if (words.compareAndSet(i, word, word & ~lowestBit)) {
+                        available.decrementAndGet();
+                        advanceFirstFreeWord(i);
+                        return (i << 6) + Long.numberOfTrailingZeros(lowestBit);
+                    }
+                    word = words.get(i);
+                }
+                advanceFirstFreeWord(i);
+            }
+            return 0;
+        }
+
+        private int peek() {
+            for (int i = firstFreeWord.get(); i < words.length(); i++) {
+                long word = words.get(i);
+                if (word != 0) {
+                    return (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return 0;
+        }
+
+        private boolean isKnown(int number) {
+            return number > 0 && (number >> 6) < words.length();
+        }
+
+        private void release(int number) {
+            int wordIndex = number >> 6;
+            long bit = 1L << (number & 63);
+            long previous = words.getAndUpdate(wordIndex, word -> word | bit);
+            if ((previous & bit) == 0) {
+                available.incrementAndGet();
+                firstFreeWord.accumulateAndGet(wordIndex, Math::min);
+            }
+        }
+
+        private boolean occupy(int number) {
+            long bit = 1L << (number & 63);
+            long previous = words.getAndUpdate(number >> 6, word -> word & ~bit);
+            if ((previous & bit) != 0) {
+                available.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isFree(int number) {
+            if (!isKnown(number)) {
+                return false;
+            }
+            return (words.get(number >> 6) & (1L << (number & 63))) != 0;
+        }
+
+        private void advanceFirstFreeWord(int wordIndex) {
+            // Only move the hint past a word seen empty, and move it back if a release raced with us
+            if (words.get(wordIndex) == 0 && firstFreeWord.compareAndSet(wordIndex, wordIndex + 1)
+                    && words.get(wordIndex) != 0) {
+                firstFreeWord.accumulateAndGet(wordIndex, Math::min);
+            }
+        }
+    }
+}
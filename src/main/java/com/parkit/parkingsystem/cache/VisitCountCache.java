@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of the number of tickets of each vehicle,
+ * used to decide the recurring user discount without counting the ticket history every time.
+ * Counts are loaded from the database on a miss and incremented when a ticket is saved.
+ */
+public class VisitCountCache {
+
+    private static final int VERSION_STRIPES = 64;
+
+    private final Map<String, Integer> countsByVehicle;
+    // Bumped on every write to a stripe of vehicles, so a count read from the database
+    // while a ticket of the same stripe was being saved is not cached
+    private final long[] versions = new long[VERSION_STRIPES];
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding at most the given number of vehicles.
+     * @param maxSize the maximum number of cached vehicles.
+     */
+    public VisitCountCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid visit count cache size: " + maxSize);
+        }
+        this.countsByVehicle = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached ticket count of a vehicle.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the number of tickets, or null if the vehicle is not cached.
+     */
+    public synchronized Integer get(String vehicleRegNumber) {
+        Integer count = countsByVehicle.get(vehicleRegNumber);
+        if (count == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the current version of the cache for a vehicle, to be read before loading its count from the database.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the cache version.
+     */
+    public synchronized long getVersion(String vehicleRegNumber) {
+        return versions[stripe(vehicleRegNumber)];
+    }
+
+    /**
+     * Caches a count loaded from the database, unless a ticket was saved since the given version was read.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @param count the number of tickets read from the database.
+     * @param readVersion the cache version read before querying the database.
+     */
+    public synchronized void putIfUnchanged(String vehicleRegNumber, int count, long readVersion) {
+        if (versions[stripe(vehicleRegNumber)] == readVersion) {
+            countsByVehicle.put(vehicleRegNumber, count);
+        }
+    }
+
+    /**
+     * Records a newly saved ticket for a vehicle.
+     * @param vehicleRegNumber the vehicle registration number.
+     */
+    public synchronized void increment(String vehicleRegNumber) {
+        versions[stripe(vehicleRegNumber)]++;
+        countsByVehicle.computeIfPresent(vehicleRegNumber, (key, count) -> count + 1);
+    }
+
+    /**
+     * Forgets every cached count, e.g. after the tickets saved by a transaction were rolled back.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions[i]++;
+        }
+        countsByVehicle.clear();
+    }
+
+    /**
+     * Gets the number of cached vehicles.
+     * @return the cache size.
+     */
+    public synchronized int size() {
+        return countsByVehicle.size();
+    }
+
+    /**
+     * Gets the ratio of lookups answered from the cache.
+     * @return the hit ratio, between 0 and 1.
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private static int stripe(String vehicleRegNumber) {
+        return vehicleRegNumber.hashCode() & (VERSION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,17 @@
+package com.parkit.parkingsystem.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens new physical connections on behalf of a {@link ConnectionPool}.
+ */
+public interface ConnectionFactory {
+
+    /**
+     * Opens a new physical connection to the database.
+     * @return a newly opened connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    Connection createConnection() throws SQLException;
+}
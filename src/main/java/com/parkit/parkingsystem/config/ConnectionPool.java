@@ -0,0 +1,360 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of reusable JDBC connections.
+ * Borrowed connections are proxies: closing them hands the physical connection back to the pool
+ * instead of closing it, so DAOs keep their usual try-with-resources/close pattern.
+ * Each connection also keeps the statements prepared on it open in a {@link StatementCache}.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+    // Shared by every pool: the time the DAOs wait for a connection
+    private static final LatencyHistogram acquireLatency = Metrics.histogram("ConnectionPool.acquire");
+
+    private final String name;
+    private final ConnectionFactory connectionFactory;
+    private final PoolConfig config;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /**
+     * Creates a new pool and starts its housekeeping task.
+     * @param name the name of the pool, used in log messages.
+     * @param connectionFactory the factory opening physical connections.
+     * @param config the sizing and housekeeping settings.
+     */
+    public ConnectionPool(String name, ConnectionFactory connectionFactory, PoolConfig config) {
+        if (config.getMaxSize() <= 0 || config.getMinIdle() < 0 || config.getMinIdle() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + config.getMinIdle() + ", maxSize=" + config.getMaxSize());
+        }
+        this.name = name;
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-housekeeper-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available
+     * and the pool has not reached its maximum size.
+     * The returned connection must be closed by the caller to hand it back to the pool.
+     * @return a connection ready for use.
+     * @throws SQLException if no connection could be obtained within the acquire timeout.
+     */
+    public Connection borrow() throws SQLException {
+        return borrow(config.getLeakDetectionThresholdMillis());
+    }
+
+    /**
+     * Borrows a connection for a batch reader streaming a large result set, as {@link #borrow()} does
+     * but with the batch leak detection threshold, see {@link PoolConfig#getBatchLeakDetectionThresholdMillis()}.
+     * @return a connection ready for use.
+     * @throws SQLException if no connection could be obtained within the acquire timeout.
+     */
+    public Connection borrowForBatch() throws SQLException {
+        return borrow(config.getBatchLeakDetectionThresholdMillis());
+    }
+
+    /**
+     * Borrows a connection as {@link #borrow()} does, with its own leak detection threshold,
+     * for callers known to hold their connection longer than the usual DAO call.
+     * @param leakDetectionThresholdMillis how long the connection may stay borrowed before it is reported
+     *                                     as a possible leak, 0 to disable.
+     * @return a connection ready for use.
+     * @throws SQLException if no connection could be obtained within the acquire timeout.
+     */
+    public Connection borrow(long leakDetectionThresholdMillis) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + config.getAcquireTimeoutMillis() + "ms waiting for a connection from pool " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        }
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            pooled.borrowSite = leakDetectionThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowedConnections.add(pooled);
+            borrowCount.incrementAndGet();
+            long acquireNanos = System.nanoTime() - start;
+            totalAcquireNanos.addAndGet(acquireNanos);
+            acquireLatency.record(acquireNanos);
+            return pooled.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool state.
+     * @return the current pool statistics.
+     */
+    public PoolStats getStats() {
+        return new PoolStats(totalConnections.get(), idleConnections.size(), borrowedConnections.size(),
+                permits.getQueueLength(), borrowCount.get(), createdCount.get(), destroyedCount.get(),
+                timeoutCount.get(), leakCount.get(), totalAcquireNanos.get(),
+                statementCacheHits.get(), statementCacheMisses.get());
+    }
+
+    /**
+     * Gets the name of the pool.
+     * @return the pool name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Stops the housekeeping task and closes every idle connection.
+     * Connections still borrowed are closed when they are handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        logger.info("Closed connection pool {}: {}", name, getStats());
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            boolean recentlyUsed = System.currentTimeMillis() - pooled.lastReleasedAt < config.getValidationIdleThresholdMillis();
+            if (!config.isValidateOnBorrow() || recentlyUsed || isUsable(pooled)) {
+                return pooled;
+            }
+            logger.warn("Discarding broken connection from pool {}", name);
+            destroy(pooled);
+        }
+        return create();
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = connectionFactory.createConnection();
+        if (physical == null) {
+            throw new SQLException("Connection factory of pool " + name + " returned no connection");
+        }
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean broken) {
+        borrowedConnections.remove(pooled);
+        if (pooled.statements != null) {
+            pooled.statements.reclaim();
+        }
+        try {
+            if (closed || broken || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReleasedAt = System.currentTimeMillis();
+            idleConnections.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that could not be reset in pool {}", name, e);
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Error while closing physical connection of pool {}", name, e);
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            long now = System.currentTimeMillis();
+            for (PooledConnection pooled : idleConnections) {
+                if (totalConnections.get() <= config.getMinIdle()) {
+                    break;
+                }
+                if (now - pooled.lastReleasedAt > config.getIdleTimeoutMillis() && idleConnections.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+            while (!closed && totalConnections.get() < config.getMinIdle() && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = create();
+                    pooled.lastReleasedAt = now;
+                    idleConnections.offerLast(pooled);
+                } finally {
+                    permits.release();
+                }
+            }
+            for (PooledConnection pooled : borrowedConnections) {
+                long leakThreshold = pooled.leakDetectionThresholdMillis;
+                if (leakThreshold > 0 && !pooled.leakReported && now - pooled.borrowedAt > leakThreshold) {
+                    pooled.leakReported = true;
+                    leakCount.incrementAndGet();
+                    logger.warn("Connection from pool {} borrowed for more than {}ms, possible leak", name, leakThreshold, pooled.borrowSite);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error during housekeeping of pool {}", name, e);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, along with its bookkeeping.
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        // Null if statements are not cached
+        private final StatementCache statements;
+        private volatile long borrowedAt;
+        private volatile long lastReleasedAt;
+        private volatile long leakDetectionThresholdMillis;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = config.getStatementCacheSize() > 0
+                    ? new StatementCache(physical, config.getStatementCacheSize(), statementCacheHits, statementCacheMisses)
+                    : null;
+        }
+
+        private Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new BorrowedConnectionHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the borrower closes it,
+     * at which point the connection goes back to the pool.
+     */
+    private class BorrowedConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+        private boolean broken;
+
+        private BorrowedConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + name + "] " + pooled.physical;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to pool " + name);
+            }
+            if (pooled.statements != null && method.getName().equals("prepareStatement") && StatementCache.isCacheable(args)) {
+                try {
+                    return pooled.statements.prepare((Connection) proxy, method, args);
+                } catch (SQLException e) {
+                    if (isFatal(e)) {
+                        broken = true;
+                    }
+                    throw e;
+                }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private boolean isFatal(SQLException e) {
+            String sqlState = e.getSQLState();
+            return sqlState != null && sqlState.startsWith("08");
+        }
+    }
+}
@@ -4,29 +4,229 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    // Pools are shared by every DataBaseConfig pointing at the same database, as each DAO creates its own config
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    // Transaction spanning several DAO calls of the current thread, see beginTransaction
+    private static final ThreadLocal<ThreadTransaction> threadTransaction = new ThreadLocal<>();
+
+    static {
+        try {
+            // Load the database driver class once rather than on every connection
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            logger.error("MySQL driver not found on the classpath", e);
+        }
+    }
+
     /**
-     * Attempts to establish a connection to the database.
+     * Borrows a connection to the database from the connection pool.
+     * Closing the returned connection hands it back to the pool.
+     * Within a transaction begun on this thread, the bound connection is returned instead.
      * @return A connection to the database or null if a connection could not be established.
      */
     public Connection getConnection() {
+        return getConnection(false);
+    }
+
+    private Connection getConnection(boolean batch) {
+        ThreadTransaction transaction = threadTransaction.get();
+        if (transaction != null && transaction.getPoolKey().equals(getPoolKey())) {
+            return transaction.newView();
+        }
         Connection connection = null;
         try {
-            // Attempt to load the database driver class
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            // Attempt to establish a connection to the database
-            connection = DriverManager.getConnection("jdbc:mysql://localhost:3306/prod", "root", "R00tP@ssw0rd!");
-        } catch (ClassNotFoundException | SQLException e) {
+            connection = batch ? getPool().borrowForBatch() : getPool().borrow();
+        } catch (SQLException e) {
             // Log an error if the connection could not be established
             logger.error("Database connection error", e);
         }
         return connection;
     }
 
+    /**
+     * Borrows a connection for a read that may lag behind the latest writes: reports, exports and batch jobs.
+     * It comes from the read replica when one is configured, see {@link #getReplicaUrl()}, and from the primary
+     * otherwise. Reads that must see the writes just made, such as those of the gates, use {@link #getConnection()}.
+     * Within a transaction begun on this thread, the bound connection is returned so that its writes are seen.
+     * These reads stream large result sets, so the connection is held under the batch leak detection threshold.
+     * @return A connection to the replica or the primary, or null if a connection could not be established.
+     */
+    public Connection getReadConnection() {
+        ThreadTransaction transaction = threadTransaction.get();
+        String replicaUrl = getReplicaUrl();
+        if (replicaUrl == null || (transaction != null && transaction.getPoolKey().equals(getPoolKey()))) {
+            return getConnection(true);
+        }
+        try {
+            return getReplicaPool(replicaUrl).borrowForBatch();
+        } catch (SQLException e) {
+            // The primary can serve the read, at the cost of the load the replica was meant to take off it
+            logger.error("Replica connection error, reading from the primary", e);
+            return getConnection(true);
+        }
+    }
+
+    private ConnectionPool getReplicaPool(String url) {
+        String user = getReplicaUser();
+        String password = getReplicaPassword();
+        return pools.computeIfAbsent(user + "@" + url, key ->
+                new ConnectionPool(url, () -> DriverManager.getConnection(url, user, password), getPoolConfig()));
+    }
+
+    /**
+     * Gets the connection pool of the configured database, creating it on first use.
+     * @return the connection pool.
+     */
+    public ConnectionPool getPool() {
+        String url = getUrl();
+        String user = getUser();
+        String password = getPassword();
+        return pools.computeIfAbsent(user + "@" + url, key ->
+                new ConnectionPool(url, () -> DriverManager.getConnection(url, user, password), getPoolConfig()));
+    }
+
+    private String getPoolKey() {
+        return getUser() + "@" + getUrl();
+    }
+
+    /**
+     * Begins a transaction spanning every DAO call of the current thread on this database,
+     * until {@link #commitTransaction()} or {@link #rollbackTransaction()}.
+     * The DAOs keep committing or rolling back their own work, which then only releases or rolls back a savepoint.
+     * @throws SQLException if no connection could be borrowed, or a transaction is already in progress on this thread.
+     */
+    public void beginTransaction() throws SQLException {
+        if (threadTransaction.get() != null) {
+            throw new SQLException("A transaction is already in progress on this thread");
+        }
+        Connection connection = getPool().borrow();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        threadTransaction.set(new ThreadTransaction(getPoolKey(), connection));
+    }
+
+    /**
+     * Commits the transaction of the current thread and returns its connection to the pool.
+     * @throws SQLException if the commit failed, in which case the transaction is rolled back.
+     */
+    public void commitTransaction() throws SQLException {
+        ThreadTransaction transaction = endTransaction();
+        try (Connection connection = transaction.getConnection()) {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Rolls back the transaction of the current thread, if any, and returns its connection to the pool.
+     */
+    public void rollbackTransaction() {
+        ThreadTransaction transaction = threadTransaction.get();
+        if (transaction == null) {
+            return;
+        }
+        endTransaction();
+        try (Connection connection = transaction.getConnection()) {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Error while rolling back transaction", e);
+        }
+    }
+
+    private ThreadTransaction endTransaction() {
+        ThreadTransaction transaction = threadTransaction.get();
+        if (transaction == null) {
+            throw new IllegalStateException("No transaction in progress on this thread");
+        }
+        threadTransaction.remove();
+        return transaction;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the connection pool.
+     * @return the pool statistics.
+     */
+    public PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Closes every connection pool opened by the application.
+     */
+    public static void closePools() {
+        pools.values().forEach(ConnectionPool::close);
+        pools.clear();
+    }
+
+    /**
+     * Gets the JDBC URL of the database, overridable with the {@code parkit.db.url} system property.
+     * Cursor fetch lets batch jobs stream large result sets, and batched statements are sent as multi-row statements.
+     * Statements are prepared on the server, and the driver keeps them open for reuse when the DAOs close them.
+     * @return the JDBC URL.
+     */
+    protected String getUrl() {
+        return System.getProperty("parkit.db.url", "jdbc:mysql://localhost:3306/prod?useCursorFetch=true&rewriteBatchedStatements=true"
+                + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048");
+    }
+
+    /**
+     * Gets the JDBC URL of the read replica of the database, set with the {@code parkit.db.replica.url} system property.
+     * @return the JDBC URL of the replica, null to read everything from the primary.
+     */
+    protected String getReplicaUrl() {
+        return System.getProperty("parkit.db.replica.url");
+    }
+
+    /**
+     * Gets the read replica user, overridable with the {@code parkit.db.replica.user} system property.
+     * @return the replica user, the primary one by default.
+     */
+    protected String getReplicaUser() {
+        return System.getProperty("parkit.db.replica.user", getUser());
+    }
+
+    /**
+     * Gets the read replica password, overridable with the {@code parkit.db.replica.password} system property.
+     * @return the replica password, the primary one by default.
+     */
+    protected String getReplicaPassword() {
+        return System.getProperty("parkit.db.replica.password", getPassword());
+    }
+
+    /**
+     * Gets the database user, overridable with the {@code parkit.db.user} system property.
+     * @return the database user.
+     */
+    protected String getUser() {
+        return System.getProperty("parkit.db.user", "root");
+    }
+
+    /**
+     * Gets the database password, overridable with the {@code parkit.db.password} system property.
+     * @return the database password.
+     */
+    protected String getPassword() {
+        return System.getProperty("parkit.db.password", "R00tP@ssw0rd!");
+    }
+
+    /**
+     * Gets the settings used when creating the connection pool.
+     * @return the pool settings.
+     */
+    protected PoolConfig getPoolConfig() {
+        return PoolConfig.fromSystemProperties();
+    }
+
     /**
      * Closes the given database connection.
      * @param con The connection to close.
@@ -35,7 +235,7 @@ public class DataBaseConfig {
         if (con != null) {
             try {
                 con.close();
-                logger.info("Closed DB connection");
+                logger.trace("Closed DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection", e);
             }
@@ -50,7 +250,7 @@ public class DataBaseConfig {
         if (ps != null) {
             try {
                 ps.close();
-                logger.info("Closed Prepared Statement");
+                logger.trace("Closed Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement", e);
             }
@@ -65,10 +265,10 @@ public class DataBaseConfig {
         if (rs != null) {
             try {
                 rs.close();
-                logger.info("Closed Result Set");
+                logger.trace("Closed Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set", e);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Sizing and housekeeping settings of a {@link ConnectionPool}.
+ * Defaults can be overridden through the {@code parkit.db.pool.*} system properties.
+ */
+public class PoolConfig {
+    private int minIdle = 2;
+    private int maxSize = 10;
+    private long acquireTimeoutMillis = 5000;
+    private boolean validateOnBorrow = true;
+    private int validationTimeoutSeconds = 2;
+    private long validationIdleThresholdMillis = 500;
+    private long idleTimeoutMillis = 600000;
+    private long leakDetectionThresholdMillis = 60000;
+    private long batchLeakDetectionThresholdMillis = 3600000;
+    private long housekeepingIntervalMillis = 30000;
+    private int statementCacheSize = 64;
+
+    /**
+     * Builds a configuration from the {@code parkit.db.pool.*} system properties,
+     * falling back to the defaults for any property that is not set.
+     * @return the resulting pool configuration.
+     */
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(Integer.getInteger("parkit.db.pool.minIdle", config.getMinIdle()));
+        config.setMaxSize(Integer.getInteger("parkit.db.pool.maxSize", config.getMaxSize()));
+        config.setAcquireTimeoutMillis(Long.getLong("parkit.db.pool.acquireTimeoutMs", config.getAcquireTimeoutMillis()));
+        config.setValidateOnBorrow(Boolean.parseBoolean(System.getProperty("parkit.db.pool.validateOnBorrow", String.valueOf(config.isValidateOnBorrow()))));
+        config.setValidationIdleThresholdMillis(Long.getLong("parkit.db.pool.validationIdleThresholdMs", config.getValidationIdleThresholdMillis()));
+        config.setIdleTimeoutMillis(Long.getLong("parkit.db.pool.idleTimeoutMs", config.getIdleTimeoutMillis()));
+        config.setLeakDetectionThresholdMillis(Long.getLong("parkit.db.pool.leakDetectionThresholdMs", config.getLeakDetectionThresholdMillis()));
+        config.setBatchLeakDetectionThresholdMillis(Long.getLong("parkit.db.pool.batchLeakDetectionThresholdMs", config.getBatchLeakDetectionThresholdMillis()));
+        config.setStatementCacheSize(Integer.getInteger("parkit.db.pool.statementCacheSize", config.getStatementCacheSize()));
+        return config;
+    }
+
+    /**
+     * Gets the number of idle connections the pool tries to keep open.
+     * @return the minimum number of idle connections
+     */
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * Sets the number of idle connections the pool tries to keep open.
+     * @param minIdle the minimum number of idle connections
+     */
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    /**
+     * Gets the maximum number of connections, idle and in use, the pool may hold.
+     * @return the maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of connections, idle and in use, the pool may hold.
+     * @param maxSize the maximum pool size
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets how long a caller waits for a connection before giving up.
+     * @return the acquire timeout in milliseconds
+     */
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a caller waits for a connection before giving up.
+     * @param acquireTimeoutMillis the acquire timeout in milliseconds
+     */
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Checks if idle connections are validated before being handed out.
+     * @return true if connections are validated on borrow
+     */
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    /**
+     * Sets whether idle connections are validated before being handed out.
+     * @param validateOnBorrow true to validate connections on borrow
+     */
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    /**
+     * Gets the timeout passed to {@link java.sql.Connection#isValid(int)} during validation.
+     * @return the validation timeout in seconds
+     */
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    /**
+     * Sets the timeout passed to {@link java.sql.Connection#isValid(int)} during validation.
+     * @param validationTimeoutSeconds the validation timeout in seconds
+     */
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * Gets how long a connection must have been idle to be validated on borrow. Connections handed back
+     * more recently are trusted, so that the gates do not pay a server round trip on every DAO call.
+     * @return the validation idle threshold in milliseconds, 0 to validate every borrow
+     */
+    public long getValidationIdleThresholdMillis() {
+        return validationIdleThresholdMillis;
+    }
+
+    /**
+     * Sets how long a connection must have been idle to be validated on borrow.
+     * @param validationIdleThresholdMillis the validation idle threshold in milliseconds, 0 to validate every borrow
+     */
+    public void setValidationIdleThresholdMillis(long validationIdleThresholdMillis) {
+        this.validationIdleThresholdMillis = validationIdleThresholdMillis;
+    }
+
+    /**
+     * Gets how long a connection may stay idle before it is evicted.
+     * @return the idle timeout in milliseconds
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection may stay idle before it is evicted.
+     * @param idleTimeoutMillis the idle timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Gets how long a connection may stay borrowed before it is reported as a possible leak.
+     * @return the leak detection threshold in milliseconds, 0 to disable
+     */
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+
+    /**
+     * Sets how long a connection may stay borrowed before it is reported as a possible leak.
+     * @param leakDetectionThresholdMillis the leak detection threshold in milliseconds, 0 to disable
+     */
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    /**
+     * Gets the leak detection threshold of the connections borrowed by batch readers, such as the streaming
+     * exports and repricing, which legitimately hold their connection for minutes.
+     * @return the batch leak detection threshold in milliseconds, 0 to disable
+     */
+    public long getBatchLeakDetectionThresholdMillis() {
+        return batchLeakDetectionThresholdMillis;
+    }
+
+    /**
+     * Sets the leak detection threshold of the connections borrowed by batch readers.
+     * @param batchLeakDetectionThresholdMillis the batch leak detection threshold in milliseconds, 0 to disable
+     */
+    public void setBatchLeakDetectionThresholdMillis(long batchLeakDetectionThresholdMillis) {
+        this.batchLeakDetectionThresholdMillis = batchLeakDetectionThresholdMillis;
+    }
+
+    /**
+     * Gets the period of the background task evicting idle connections and detecting leaks.
+     * @return the housekeeping interval in milliseconds
+     */
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+
+    /**
+     * Sets the period of the background task evicting idle connections and detecting leaks.
+     * @param housekeepingIntervalMillis the housekeeping interval in milliseconds
+     */
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+    }
+
+    /**
+     * Gets the number of prepared statements kept open per connection for reuse.
+     * @return the statement cache size, 0 if statements are not cached
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets the number of prepared statements kept open per connection for reuse.
+     * @param statementCacheSize the statement cache size, 0 to disable the cache
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Point-in-time snapshot of the state of a {@link ConnectionPool}.
+ */
+public class PoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int waitingThreads;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long leakCount;
+    private final long totalAcquireNanos;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    /**
+     * Constructs a new PoolStats snapshot.
+     * @param totalConnections the number of open physical connections
+     * @param idleConnections the number of connections waiting in the pool
+     * @param activeConnections the number of connections currently borrowed
+     * @param waitingThreads the number of threads waiting for a connection
+     * @param borrowCount the number of successful borrows since startup
+     * @param createdCount the number of physical connections opened since startup
+     * @param destroyedCount the number of physical connections closed since startup
+     * @param timeoutCount the number of borrows that timed out since startup
+     * @param leakCount the number of connections reported as possible leaks since startup
+     * @param totalAcquireNanos the cumulated time spent acquiring connections
+     * @param statementCacheHits the number of prepared statements served from the statement caches
+     * @param statementCacheMisses the number of statements prepared by the database
+     */
+    public PoolStats(int totalConnections, int idleConnections, int activeConnections, int waitingThreads,
+                     long borrowCount, long createdCount, long destroyedCount, long timeoutCount,
+                     long leakCount, long totalAcquireNanos, long statementCacheHits, long statementCacheMisses) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.waitingThreads = waitingThreads;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.leakCount = leakCount;
+        this.totalAcquireNanos = totalAcquireNanos;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    /**
+     * Gets the number of open physical connections.
+     * @return the total number of connections
+     */
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * Gets the number of connections waiting in the pool.
+     * @return the number of idle connections
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Gets the number of connections currently borrowed.
+     * @return the number of active connections
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Gets the number of threads waiting for a connection.
+     * @return the number of waiting threads
+     */
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    /**
+     * Gets the number of successful borrows since startup.
+     * @return the borrow count
+     */
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    /**
+     * Gets the number of physical connections opened since startup.
+     * @return the created count
+     */
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * Gets the number of physical connections closed since startup.
+     * @return the destroyed count
+     */
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    /**
+     * Gets the number of borrows that timed out since startup.
+     * @return the timeout count
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * Gets the number of connections reported as possible leaks since startup.
+     * @return the leak count
+     */
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    /**
+     * Gets the average time spent acquiring a connection.
+     * @return the average acquire time in microseconds
+     */
+    public double getAverageAcquireMicros() {
+        return borrowCount == 0 ? 0 : (totalAcquireNanos / 1000.0) / borrowCount;
+    }
+
+    /**
+     * Gets the number of prepared statements served from the statement caches since startup.
+     * @return the statement cache hits
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    /**
+     * Gets the number of statements prepared by the database since startup, the statement caches missing them.
+     * @return the statement cache misses
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * Returns a one-line summary of the pool state, suitable for logging.
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("total=%d, idle=%d, active=%d, waiting=%d, borrowed=%d, created=%d, destroyed=%d, timeouts=%d, leaks=%d, avgAcquire=%.1fus, statementHits=%d, statementMisses=%d",
+                totalConnections, idleConnections, activeConnections, waitingThreads, borrowCount,
+                createdCount, destroyedCount, timeoutCount, leakCount, getAverageAcquireMicros(),
+                statementCacheHits, statementCacheHits + statementCacheMisses);
+    }
+}
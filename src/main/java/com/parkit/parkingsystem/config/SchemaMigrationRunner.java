@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the versioned schema migrations shipped in {@code db/migration} and records them
+ * in the {@code schema_version} table, so each migration runs exactly once per database.
+ * Migration files are named {@code V<version>__<description>.sql} and hold statements separated by ';'.
+ */
+public class SchemaMigrationRunner {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrationRunner");
+
+    // Migrations in the order they must be applied; add new files at the end
+    private static final String[] MIGRATIONS = {
+            "V1__add_ticket_and_parking_indexes.sql",
+            "V2__add_ticket_in_time_index.sql",
+            "V3__add_journal_checkpoint.sql",
+            "V4__add_lot_id.sql",
+            "V5__add_ticket_archive.sql"
+    };
+
+    private final DataBaseConfig dataBaseConfig;
+
+    /**
+     * Creates a runner migrating the database of the given configuration.
+     * @param dataBaseConfig the configuration of the database to migrate.
+     */
+    public SchemaMigrationRunner(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Applies every migration not yet recorded in the {@code schema_version} table.
+     * MySQL commits DDL statements implicitly, so a failing migration is not recorded
+     * and stops the run; it has to be fixed by hand before being applied again.
+     * @return the number of migrations applied.
+     * @throws SQLException if the database could not be reached or a migration could not be applied.
+     */
+    public int migrate() throws SQLException {
+        int applied = 0;
+        try (Connection con = dataBaseConfig.getConnection()) {
+            if (con == null) {
+                throw new SQLException("Unable to connect to the database to migrate its schema");
+            }
+            try (Statement statement = con.createStatement()) {
+                statement.execute(DBConstants.CREATE_SCHEMA_VERSION_TABLE);
+            }
+            Set<Integer> appliedVersions = getAppliedVersions(con);
+            for (String migration : MIGRATIONS) {
+                int version = parseVersion(migration);
+                if (appliedVersions.contains(version)) {
+                    continue;
+                }
+                logger.info("Applying schema migration {}", migration);
+                try (Statement statement = con.createStatement()) {
+                    for (String sql : loadStatements(migration)) {
+                        statement.execute(sql);
+                    }
+                }
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)) {
+                    ps.setInt(1, version);
+                    ps.setString(2, parseDescription(migration));
+                    ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                    ps.executeUpdate();
+                }
+                applied++;
+            }
+        }
+        logger.info("Database schema is up to date, {} migration(s) applied", applied);
+        return applied;
+    }
+
+    private Set<Integer> getAppliedVersions(Connection con) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_SCHEMA_VERSIONS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private List<String> loadStatements(String migration) throws SQLException {
+        String script;
+        try (InputStream in = SchemaMigrationRunner.class.getResourceAsStream("/db/migration/" + migration)) {
+            if (in == null) {
+                throw new SQLException("Schema migration not found on the classpath: " + migration);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Unable to read schema migration " + migration, e);
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static int parseVersion(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    private static String parseDescription(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Configuration of one shard database, read from the {@code parkit.shard.<name>.url}, {@code .user} and
+ * {@code .password} system properties, each falling back to the {@code parkit.db.*} default when not set.
+ * Its read replica is set with {@code parkit.shard.<name>.replica.url}, {@code .replica.user} and {@code .replica.password}.
+ * Shards with different URLs get their own connection pool.
+ */
+public class ShardDataBaseConfig extends DataBaseConfig {
+
+    private final String name;
+
+    /**
+     * Creates the configuration of a shard.
+     * @param name the name of the shard, as used in the system properties.
+     */
+    public ShardDataBaseConfig(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the shard.
+     * @return the shard name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    protected String getUrl() {
+        String url = System.getProperty("parkit.shard." + name + ".url");
+        return (url != null) ? url : super.getUrl();
+    }
+
+    @Override
+    protected String getUser() {
+        String user = System.getProperty("parkit.shard." + name + ".user");
+        return (user != null) ? user : super.getUser();
+    }
+
+    @Override
+    protected String getPassword() {
+        String password = System.getProperty("parkit.shard." + name + ".password");
+        return (password != null) ? password : super.getPassword();
+    }
+
+    @Override
+    protected String getReplicaUrl() {
+        String url = System.getProperty("parkit.shard." + name + ".replica.url");
+        if (url != null) {
+            return url;
+        }
+        // The replica of the default database only replicates this shard if the shard is that database
+        return (System.getProperty("parkit.shard." + name + ".url") == null) ? super.getReplicaUrl() : null;
+    }
+
+    @Override
+    protected String getReplicaUser() {
+        String user = System.getProperty("parkit.shard." + name + ".replica.user");
+        return (user != null) ? user : getUser();
+    }
+
+    @Override
+    protected String getReplicaPassword() {
+        String password = System.getProperty("parkit.shard." + name + ".replica.password");
+        return (password != null) ? password : getPassword();
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + name;
+    }
+}
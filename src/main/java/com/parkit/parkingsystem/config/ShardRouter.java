@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes each parking lot to the database holding its spots and tickets.
+ * Several lots may share a shard, their rows being told apart by their lot id;
+ * a busy lot can be given its own shard, and so its own connection pool, to keep it from slowing the others down.
+ */
+public class ShardRouter {
+
+    private final Map<String, DataBaseConfig> lots = new LinkedHashMap<>();
+
+    /**
+     * Builds the router from the system properties: {@code parkit.lots} lists the lots, separated by commas
+     * ({@code default} if not set), and {@code parkit.lot.<lot>.shard} names the shard of a lot,
+     * configured as described in {@link ShardDataBaseConfig}. Lots without a shard use the default database.
+     * @return the router of the configured lots.
+     */
+    public static ShardRouter fromSystemProperties() {
+        ShardRouter router = new ShardRouter();
+        DataBaseConfig defaultDataBaseConfig = new DataBaseConfig();
+        // One configuration per shard, so that getShards lists it once
+        Map<String, DataBaseConfig> shards = new LinkedHashMap<>();
+        for (String lotId : System.getProperty("parkit.lots", DBConstants.DEFAULT_LOT_ID).split(",")) {
+            lotId = lotId.trim();
+            if (lotId.isEmpty()) {
+                continue;
+            }
+            String shard = System.getProperty("parkit.lot." + lotId + ".shard");
+            DataBaseConfig dataBaseConfig = (shard == null) ? defaultDataBaseConfig : shards.computeIfAbsent(shard, ShardDataBaseConfig::new);
+            router.addLot(lotId, dataBaseConfig);
+        }
+        return router;
+    }
+
+    /**
+     * Adds a lot, or moves it to another database.
+     * @param lotId the lot identifier.
+     * @param dataBaseConfig the configuration of the database holding the lot.
+     */
+    public void addLot(String lotId, DataBaseConfig dataBaseConfig) {
+        if (lotId.length() > DBConstants.LOT_ID_MAX_LENGTH) {
+            throw new IllegalArgumentException("Lot id longer than " + DBConstants.LOT_ID_MAX_LENGTH + " characters: " + lotId);
+        }
+        lots.put(lotId, dataBaseConfig);
+    }
+
+    /**
+     * Gets the configured lots.
+     * @return the lot identifiers, in configuration order.
+     */
+    public List<String> getLots() {
+        return Collections.unmodifiableList(new ArrayList<>(lots.keySet()));
+    }
+
+    /**
+     * Gets the database holding a lot.
+     * @param lotId the lot identifier.
+     * @return the configuration of its database.
+     * @throws IllegalArgumentException if the lot is not configured.
+     */
+    public DataBaseConfig getDataBaseConfig(String lotId) {
+        DataBaseConfig dataBaseConfig = lots.get(lotId);
+        if (dataBaseConfig == null) {
+            throw new IllegalArgumentException("Unknown parking lot: " + lotId);
+        }
+        return dataBaseConfig;
+    }
+
+    /**
+     * Gets the distinct databases of the lots, to migrate each of them once.
+     * @return the database configurations.
+     */
+    public List<DataBaseConfig> getShards() {
+        List<DataBaseConfig> shards = new ArrayList<>();
+        for (DataBaseConfig dataBaseConfig : lots.values()) {
+            if (!shards.contains(dataBaseConfig)) {
+                shards.add(dataBaseConfig);
+            }
+        }
+        return shards;
+    }
+}
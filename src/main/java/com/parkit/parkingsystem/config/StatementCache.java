@@ -0,0 +1,271 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements of one pooled connection, kept open across borrows so that the DAOs, which prepare
+ * their statements on every call, do not have them parsed again by the database each time.
+ * The DAOs are handed proxies: closing one hands the statement back to the cache with its parameters cleared.
+ * A statement whose settings were changed (fetch size...) or that failed is closed for real instead.
+ * Only used by the thread that borrowed the connection.
+ */
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Map<String, CachedStatement> statements;
+    // Shared by the caches of every connection of the pool
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Creates an empty cache over a physical connection.
+     * @param physical the physical connection preparing the statements.
+     * @param maxSize the maximum number of cached statements, the least recently used ones being closed.
+     * @param hits the counter of statements served from the cache.
+     * @param misses the counter of statements prepared by the database.
+     */
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Tells whether a {@code prepareStatement} variant can be served from the cache:
+     * those taking the SQL and optionally the generated keys flag or the result set type and concurrency.
+     * @param args the arguments of the {@code prepareStatement} call.
+     * @return true if the statement can be cached.
+     */
+    static boolean isCacheable(Object[] args) {
+        if (args == null || args.length > 3 || !(args[0] instanceof String)) {
+            return false;
+        }
+        for (int i = 1; i < args.length; i++) {
+            if (!(args[i] instanceof Integer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prepares a statement, reusing the cached one if it is not in use.
+     * @param owner the connection handed to the borrower, returned by {@code getConnection}.
+     * @param method the {@code prepareStatement} variant called.
+     * @param args its arguments, accepted by {@link #isCacheable(Object[])}.
+     * @return a proxy of the prepared statement.
+     * @throws SQLException if the statement could not be prepared.
+     */
+    PreparedStatement prepare(Connection owner, Method method, Object[] args) throws SQLException {
+        String key = key(args);
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PreparedStatement statement = invokePrepare(method, args);
+            if (cached != null) {
+                // The same SQL prepared twice by one borrower: the second one is not cached
+                return newProxy(owner, new CachedStatement(null, statement));
+            }
+            cached = new CachedStatement(key, statement);
+            statements.put(key, cached);
+            evictLeastRecentlyUsed();
+        }
+        cached.inUse = true;
+        return newProxy(owner, cached);
+    }
+
+    /**
+     * Closes the statements still in use when the connection is handed back, which their borrower forgot to close.
+     */
+    void reclaim() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (iterator.hasNext()) {
+            CachedStatement cached = iterator.next();
+            if (cached.inUse) {
+                iterator.remove();
+                closeQuietly(cached);
+            }
+        }
+    }
+
+    private static String key(Object[] args) {
+        if (args.length == 1) {
+            return (String) args[0];
+        }
+        StringBuilder key = new StringBuilder((String) args[0]);
+        for (int i = 1; i < args.length; i++) {
+            key.append('\u0000').append(args[i]);
+        }
+        return key.toString();
+    }
+
+    private PreparedStatement invokePrepare(Method method, Object[] args) throws SQLException {
+        try {
+            return (PreparedStatement) method.invoke(physical, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Unable to prepare statement", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new SQLException("Unable to prepare statement", e);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement eldest = iterator.next();
+            iterator.remove();
+            if (eldest.inUse) {
+                // Closed when its borrower closes it
+                eldest.key = null;
+            } else {
+                closeQuietly(eldest);
+            }
+        }
+    }
+
+    private void giveBack(CachedStatement cached, StatementHandler handler) {
+        boolean reusable = cached.key != null && !handler.dirty;
+        if (reusable) {
+            try {
+                if (handler.resultSet != null) {
+                    handler.resultSet.close();
+                }
+                cached.statement.clearParameters();
+                if (handler.batched) {
+                    cached.statement.clearBatch();
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            cached.inUse = false;
+            return;
+        }
+        if (cached.key != null && statements.get(cached.key) == cached) {
+            statements.remove(cached.key);
+        }
+        closeQuietly(cached);
+    }
+
+    private static void closeQuietly(CachedStatement cached) {
+        try {
+            cached.statement.close();
+        } catch (SQLException e) {
+            logger.debug("Error while closing cached statement", e);
+        }
+    }
+
+    private PreparedStatement newProxy(Connection owner, CachedStatement cached) {
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new StatementHandler(owner, cached));
+    }
+
+    /**
+     * A physical statement and whether a borrower holds it.
+     */
+    private static class CachedStatement {
+        // Null once evicted, or for a statement that is not cached
+        private String key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        private CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * Forwards calls to the cached statement until the borrower closes it.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Connection owner;
+        private final CachedStatement cached;
+        private boolean closed;
+        // Set when a setting that would leak to the next borrower was changed, or a call failed
+        private boolean dirty;
+        private boolean batched;
+        private ResultSet resultSet;
+
+        private StatementHandler(Connection owner, CachedStatement cached) {
+            this.owner = owner;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(cached, this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + cached.statement;
+                case "addBatch":
+                    batched = true;
+                    break;
+                default:
+                    if (name.startsWith("set") && !isParameterSetter(method)) {
+                        dirty = true;
+                    }
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has already been closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                dirty = true;
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                resultSet = (ResultSet) result;
+            }
+            return result;
+        }
+
+        private boolean isParameterSetter(Method method) {
+            // setString(int, String), setNull(int, int)...: statement settings take no parameter index
+            Class<?>[] types = method.getParameterTypes();
+            return types.length >= 2 && types[0] == int.class;
+        }
+    }
+}
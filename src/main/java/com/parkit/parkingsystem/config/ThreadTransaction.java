@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Transaction bound to a thread by {@link DataBaseConfig#beginTransaction()}, so that many DAO calls share one
+ * connection and one commit. DAOs are handed a view of the connection on which:
+ * <ul>
+ *     <li>{@code close} does nothing, the connection stays bound until the transaction ends;</li>
+ *     <li>a unit of work started with {@code setAutoCommit(false)} becomes a savepoint, released by {@code commit}
+ *     and rolled back to by {@code rollback}, or by {@code close} if it was neither committed nor rolled back;</li>
+ *     <li>outside of such a unit, {@code commit} and {@code rollback} do nothing, as with auto-commit.</li>
+ * </ul>
+ * A DAO rolling back its own work therefore leaves the rest of the transaction untouched.
+ */
+class ThreadTransaction {
+
+    private final String poolKey;
+    private final Connection connection;
+
+    ThreadTransaction(String poolKey, Connection connection) {
+        this.poolKey = poolKey;
+        this.connection = connection;
+    }
+
+    String getPoolKey() {
+        return poolKey;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Creates the view of the bound connection handed to one DAO call.
+     * @return the connection view.
+     */
+    Connection newView() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ViewHandler());
+    }
+
+    private class ViewHandler implements InvocationHandler {
+        // Savepoint of the unit of work started on this view, if any
+        private Savepoint savepoint;
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (savepoint != null) {
+                            rollbackUnit();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || connection.isClosed();
+                case "getAutoCommit":
+                    return savepoint == null;
+                case "setAutoCommit":
+                    boolean autoCommit = (Boolean) args[0];
+                    if (!autoCommit && savepoint == null) {
+                        savepoint = connection.setSavepoint();
+                    } else if (autoCommit && savepoint != null) {
+                        releaseUnit();
+                    }
+                    return null;
+                case "commit":
+                    if (savepoint != null) {
+                        releaseUnit();
+                    }
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        if (savepoint != null) {
+                            rollbackUnit();
+                        }
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Transaction view of " + connection;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection view has already been closed");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void releaseUnit() throws SQLException {
+            Savepoint released = savepoint;
+            savepoint = null;
+            connection.releaseSavepoint(released);
+        }
+
+        private void rollbackUnit() throws SQLException {
+            Savepoint rolledBack = savepoint;
+            savepoint = null;
+            connection.rollback(rolledBack);
+        }
+    }
+}
@@ -2,10 +2,50 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
-    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    // Lot of the rows written before lots were introduced, and of single-lot deployments
+    public static final String DEFAULT_LOT_ID = "default";
+    // Width of the LOT_ID columns
+    public static final int LOT_ID_MAX_LENGTH = 20;
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) values(?,?,?,?,?,?)";
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where LOT_ID = ? and AVAILABLE = true and TYPE = ?";
+    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where LOT_ID = ? and PARKING_NUMBER = ?";
+    public static final String CLAIM_NEXT_PARKING_SPOT = "select PARKING_NUMBER from parking where LOT_ID = ? and AVAILABLE = true and TYPE = ? order by PARKING_NUMBER limit 1 for update skip locked";
+    public static final String GET_ALL_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking where LOT_ID = ?";
+    public static final String OCCUPY_PARKING_SPOT = "update parking set AVAILABLE = false where LOT_ID = ? and PARKING_NUMBER = ? and AVAILABLE = true";
+    public static final String GET_PARKING_SPOT = "select PARKING_NUMBER, AVAILABLE, TYPE from parking where LOT_ID = ? and PARKING_NUMBER = ?";
+    public static final String COUNT_PARKING_SPOTS = "select count(*), coalesce(sum(case when AVAILABLE = true then 1 else 0 end), 0) from parking where LOT_ID = ? and TYPE = ?";
+
+    public static final String SAVE_TICKET = "insert into ticket(LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) values(?,?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String IS_VEHICLE_PARKED = "select exists (select 1 from ticket where LOT_ID = ? and VEHICLE_REG_NUMBER = ? and OUT_TIME is null)";
+    public static final String GET_OPEN_TICKET = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from ticket where LOT_ID = ? and VEHICLE_REG_NUMBER = ? and OUT_TIME is null order by IN_TIME desc limit 1";
+    // Hot tickets plus the archived ones of the plate summary
+    public static final String COUNT_TICKETS = "select (select count(*) from ticket where LOT_ID = ? and VEHICLE_REG_NUMBER = ?)"
+            + " + coalesce((select TICKET_COUNT from ticket_plate_summary where LOT_ID = ? and VEHICLE_REG_NUMBER = ?), 0)";
+    public static final String GET_ACTIVE_TICKETS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from ticket where LOT_ID = ? and OUT_TIME is null";
+    public static final String GET_CLOSED_TICKETS_WITH_RECURRENCE = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, t.PARKING_TYPE, "
+            + "(exists(select 1 from ticket p where p.LOT_ID = t.LOT_ID and p.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and p.IN_TIME < t.IN_TIME) "
+            + "or exists(select 1 from ticket_plate_summary s where s.LOT_ID = t.LOT_ID and s.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and s.FIRST_IN_TIME < t.IN_TIME)) as RECURRING "
+            + "from ticket t where t.LOT_ID = ? and t.OUT_TIME is not null and t.IN_TIME >= ? and t.IN_TIME < ?";
+    public static final String EXPORT_TICKETS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from ticket where LOT_ID = ? and IN_TIME >= ? and IN_TIME < ?";
+    public static final String EXPORT_TICKETS_TYPE_FILTER = " and PARKING_TYPE = ?";
+    public static final String EXPORT_TICKETS_PLATE_FILTER = " and VEHICLE_REG_NUMBER = ?";
+    public static final String EXPORT_ARCHIVED_TICKETS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from ticket_archive where LOT_ID = ? and IN_TIME >= ? and IN_TIME < ?";
+    public static final String EXPORT_TICKETS_ORDER = " order by IN_TIME";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String GET_TICKETS_TO_ARCHIVE = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE from ticket where LOT_ID = ? and OUT_TIME < ? order by OUT_TIME limit ? for update";
+    public static final String ARCHIVE_TICKET = "insert into ticket_archive(ID, LOT_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) values(?,?,?,?,?,?,?,?)";
+    public static final String DELETE_TICKET = "delete from ticket where ID = ?";
+    public static final String ADD_TO_PLATE_SUMMARY = "update ticket_plate_summary set TICKET_COUNT = TICKET_COUNT + ?, FIRST_IN_TIME = least(FIRST_IN_TIME, ?) where LOT_ID = ? and VEHICLE_REG_NUMBER = ?";
+    public static final String SAVE_PLATE_SUMMARY = "insert into ticket_plate_summary(LOT_ID, VEHICLE_REG_NUMBER, TICKET_COUNT, FIRST_IN_TIME) values(?,?,?,?)";
+    public static final String UPDATE_OPEN_TICKET = "update ticket set PRICE=?, OUT_TIME=? where LOT_ID=? and VEHICLE_REG_NUMBER=? and OUT_TIME is null";
+
+    public static final String GET_JOURNAL_CHECKPOINT = "select LAST_SEQUENCE from journal_checkpoint where ID = 1";
+    public static final String COUNT_TICKETS_WITH_JOURNAL_CHECKPOINT = COUNT_TICKETS + ", (select LAST_SEQUENCE from journal_checkpoint where ID = 1)";
+    public static final String UPDATE_JOURNAL_CHECKPOINT = "update journal_checkpoint set LAST_SEQUENCE = ? where ID = 1";
+
+    public static final String CREATE_SCHEMA_VERSION_TABLE = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(200) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    public static final String GET_SCHEMA_VERSIONS = "select VERSION from schema_version";
+    public static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,?)";
 }
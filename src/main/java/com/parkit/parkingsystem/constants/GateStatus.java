@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.constants;
+
+public enum GateStatus {
+    OK,
+    ALREADY_PARKED,
+    NO_SPOT_AVAILABLE,
+    TICKET_NOT_FOUND,
+    ERROR
+}
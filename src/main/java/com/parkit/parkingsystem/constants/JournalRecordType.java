@@ -0,0 +1,7 @@
+package com.parkit.parkingsystem.constants;
+
+public enum JournalRecordType {
+    SAVE_TICKET,
+    UPDATE_TICKET,
+    UPDATE_PARKING
+}
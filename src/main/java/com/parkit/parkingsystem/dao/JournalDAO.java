@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the records of the write-behind journal to the ticket and parking tables,
+ * along with the sequence number of the last record written.
+ */
+public class JournalDAO {
+
+    private static final Logger logger = LogManager.getLogger("JournalDAO");
+    private static final LatencyHistogram countTicketsLatency = Metrics.histogram("JournalDAO.countTickets");
+    private static final LatencyHistogram applyLatency = Metrics.histogram("JournalDAO.apply");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    // Lot the journal belongs to; the checkpoint row is per database, so one journal per shard
+    public String lotId = DBConstants.DEFAULT_LOT_ID;
+
+    /**
+     * Gets the sequence number of the last journal record written to the database.
+     * @return The checkpoint sequence number, 0 if no record was ever written.
+     * @throws SQLException if the checkpoint could not be read.
+     */
+    public long getCheckpoint() throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_JOURNAL_CHECKPOINT);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Counts the tickets of a vehicle stored in the database, archived ones included, along with the checkpoint, in a single statement,
+     * so the count includes exactly the journaled tickets up to the checkpoint.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @return The number of stored tickets, then the checkpoint sequence number.
+     * @throws SQLException if the tickets could not be counted.
+     */
+    public long[] countTickets(String vehicleRegNumber) throws SQLException {
+        return Metrics.time(countTicketsLatency, () -> doCountTickets(vehicleRegNumber));
+    }
+
+    private long[] doCountTickets(String vehicleRegNumber) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_TICKETS_WITH_JOURNAL_CHECKPOINT)) {
+            ps.setString(1, lotId);
+            ps.setString(2, vehicleRegNumber);
+            ps.setString(3, lotId);
+            ps.setString(4, vehicleRegNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        }
+    }
+
+    /**
+     * Writes journal records in a single transaction, which also moves the checkpoint.
+     * Records are grouped in one JDBC batch per statement, executed in the order ticket inserts, ticket updates,
+     * parking updates; the batches are executed early whenever that order would put a ticket insert
+     * before the update of the previous ticket of the same vehicle. The outcome is that of the records in order.
+     * @param records The records to write, in sequence order; empty to only move the checkpoint.
+     * @param lastSequence The sequence number of the last record written, the new checkpoint.
+     * @throws SQLException if the records could not be written, in which case none is.
+     */
+    public void apply(List<JournalRecord> records, long lastSequence) throws SQLException {
+        Metrics.time(applyLatency, () -> doApply(records, lastSequence));
+    }
+
+    private void doApply(List<JournalRecord> records, long lastSequence) throws SQLException {
+        Connection con = dataBaseConfig.getConnection();
+        if (con == null) {
+            throw new SQLException("No database connection available");
+        }
+        try (con;
+             PreparedStatement insertTicket = con.prepareStatement(DBConstants.SAVE_TICKET);
+             PreparedStatement updateTicket = con.prepareStatement(DBConstants.UPDATE_OPEN_TICKET);
+             PreparedStatement updateParking = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+             PreparedStatement updateCheckpoint = con.prepareStatement(DBConstants.UPDATE_JOURNAL_CHECKPOINT)) {
+            con.setAutoCommit(false);
+            try {
+                Set<String> updatedVehicles = new HashSet<>();
+                for (JournalRecord record : records) {
+                    switch (record.getType()) {
+                        case SAVE_TICKET:
+                            if (updatedVehicles.contains(record.getVehicleRegNumber())) {
+                                executeBatches(insertTicket, updateTicket, updateParking);
+                                updatedVehicles.clear();
+                            }
+                            insertTicket.setString(1, lotId);
+                            insertTicket.setInt(2, record.getParkingNumber());
+                            insertTicket.setString(3, record.getVehicleRegNumber());
+                            insertTicket.setDouble(4, record.getPrice());
+                            insertTicket.setTimestamp(5, new Timestamp(record.getInTime().getTime()));
+                            insertTicket.setTimestamp(6, record.getOutTime() == null ? null : new Timestamp(record.getOutTime().getTime()));
+                            insertTicket.setString(7, record.getParkingType().toString());
+                            insertTicket.addBatch();
+                            break;
+                        case UPDATE_TICKET:
+                            updateTicket.setDouble(1, record.getPrice());
+                            updateTicket.setTimestamp(2, record.getOutTime() == null ? null : new Timestamp(record.getOutTime().getTime()));
+                            updateTicket.setString(3, lotId);
+                            updateTicket.setString(4, record.getVehicleRegNumber());
+                            updateTicket.addBatch();
+                            updatedVehicles.add(record.getVehicleRegNumber());
+                            break;
+                        case UPDATE_PARKING:
+                            updateParking.setBoolean(1, record.isAvailable());
+                            updateParking.setString(2, lotId);
+                            updateParking.setInt(3, record.getParkingNumber());
+                            updateParking.addBatch();
+                            break;
+                        default:
+                            throw new SQLException("Unknown journal record type: " + record.getType());
+                    }
+                }
+                executeBatches(insertTicket, updateTicket, updateParking);
+                updateCheckpoint.setLong(1, lastSequence);
+                if (updateCheckpoint.executeUpdate() != 1) {
+                    throw new SQLException("The journal checkpoint row is missing");
+                }
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    private void executeBatches(PreparedStatement insertTicket, PreparedStatement updateTicket, PreparedStatement updateParking) throws SQLException {
+        insertTicket.executeBatch();
+        for (int count : updateTicket.executeBatch()) {
+            if (count == 0) {
+                logger.warn("Journaled ticket update matched no open ticket");
+            }
+        }
+        updateParking.executeBatch();
+    }
+}
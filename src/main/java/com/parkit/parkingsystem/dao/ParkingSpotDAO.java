@@ -1,37 +1,68 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.WriteBehindStore;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.storage.ParkingSpotStore;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
+    private static final LatencyHistogram getNextAvailableSlotLatency = Metrics.histogram("ParkingSpotDAO.getNextAvailableSlot");
+    private static final LatencyHistogram updateParkingLatency = Metrics.histogram("ParkingSpotDAO.updateParking");
+    private static final LatencyHistogram getParkingSpotLatency = Metrics.histogram("ParkingSpotDAO.getParkingSpot");
+    private static final LatencyHistogram getAvailabilityLatency = Metrics.histogram("ParkingSpotDAO.getAvailability");
+    private static final LatencyHistogram countParkingSpotsLatency = Metrics.histogram("ParkingSpotDAO.countParkingSpots");
+    private static final LatencyHistogram getAllParkingSpotsLatency = Metrics.histogram("ParkingSpotDAO.getAllParkingSpots");
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    // Lot whose spots this DAO reads and writes, on the shard of dataBaseConfig
+    public String lotId = DBConstants.DEFAULT_LOT_ID;
+    public ParkingSpotIndex parkingSpotIndex;
+    // Write-behind mode: writes go to the journal instead of the database, see WriteBehindStore
+    public WriteBehindStore writeBehindStore;
 
     /**
-     * Retrieves the next available parking spot of a specified type from the database.
+     * Retrieves the next available parking spot of a specified type.
+     * The in-memory spot index is used when loaded, otherwise the database is queried.
      * @param parkingType The type of parking spot to search for.
      * @return An instance of ParkingSpot if available, otherwise null.
      */
-    public ParkingSpot getNextAvailableSlot(ParkingType parkingType){
+    public ParkingSpot getNextAvailableSlot(ParkingType parkingType) {
+        return Metrics.time(getNextAvailableSlotLatency, () -> doGetNextAvailableSlot(parkingType));
+    }
+
+    private ParkingSpot doGetNextAvailableSlot(ParkingType parkingType) {
+        if (parkingSpotIndex != null) {
+            int parkingNumber = parkingSpotIndex.peek(parkingType);
+            return parkingNumber > 0 ? newParkingSpot(parkingNumber, parkingType, true) : null;
+        }
         Connection con = null;
         ParkingSpot parkingSpot = null;
         try {
             con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
+            ps.setString(1, lotId);
+            ps.setString(2, parkingType.toString());
             ResultSet rs = ps.executeQuery();
         if(rs.next()){
             int parkingNumber = rs.getInt(1);
             if (parkingNumber > 0) {
-            parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
+            parkingSpot = newParkingSpot(parkingNumber, parkingType, true);
             }
         }
             dataBaseConfig.closeResultSet(rs);
@@ -45,20 +76,36 @@ public class ParkingSpotDAO {
     }
 
     /**
-     * Updates the availability of a parking spot in the database.
+     * Updates the availability of a parking spot in the database, then in the spot index if loaded.
+     * In write-behind mode the update is journaled instead of written to the database.
      * @param parkingSpot The parking spot to update.
      * @return true if the update was successful, false otherwise.
      */
-    public boolean updateParking(ParkingSpot parkingSpot){
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        return Metrics.time(updateParkingLatency, () -> doUpdateParking(parkingSpot));
+    }
+
+    private boolean doUpdateParking(ParkingSpot parkingSpot) {
+        if (writeBehindStore != null) {
+            return journalParking(parkingSpot);
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
             ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
+            ps.setString(2, lotId);
+            ps.setInt(3, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
-            logger.info("Updated parking spot {} to available: {}", parkingSpot.getId(), parkingSpot.isAvailable());
+            if (updateRowCount == 1 && parkingSpotIndex != null) {
+                if (parkingSpot.isAvailable()) {
+                    parkingSpotIndex.release(parkingSpot.getParkingType(), parkingSpot.getId());
+                } else {
+                    parkingSpotIndex.occupy(parkingSpot.getParkingType(), parkingSpot.getId());
+                }
+            }
+            logger.debug("Updated parking spot {} to available: {}", parkingSpot.getId(), parkingSpot.isAvailable());
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
@@ -68,21 +115,43 @@ public class ParkingSpotDAO {
         }
     }
 
+    private boolean journalParking(ParkingSpot parkingSpot) {
+        try {
+            writeBehindStore.append(JournalRecord.updateParking(parkingSpot));
+        } catch (IOException ex) {
+            logger.error("Error journaling parking spot {} update", parkingSpot.getId(), ex);
+            return false;
+        }
+        if (parkingSpotIndex != null) {
+            if (parkingSpot.isAvailable()) {
+                parkingSpotIndex.release(parkingSpot.getParkingType(), parkingSpot.getId());
+            } else {
+                parkingSpotIndex.occupy(parkingSpot.getParkingType(), parkingSpot.getId());
+            }
+        }
+        return true;
+    }
+
     /**
      * Retrieves a parking spot by its ID from the database.
      * @param id The ID of the parking spot to retrieve.
      * @return The ParkingSpot object if found, otherwise null.
      */
     public ParkingSpot getParkingSpot(int id) {
+        return Metrics.time(getParkingSpotLatency, () -> doGetParkingSpot(id));
+    }
+
+    private ParkingSpot doGetParkingSpot(int id) {
          Connection con = null;
          ParkingSpot parkingSpot = null;
          try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement("select * from parking where PARKING_NUMBER = ?");
-            ps.setInt(1, id);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT);
+            ps.setString(1, lotId);
+            ps.setInt(2, id);
             ResultSet rs = ps.executeQuery();
          if (rs.next()) {
-            parkingSpot = new ParkingSpot(id, ParkingType.valueOf(rs.getString("TYPE")), rs.getBoolean("AVAILABLE"));
+            parkingSpot = newParkingSpot(id, ParkingType.valueOf(rs.getString("TYPE")), rs.getBoolean("AVAILABLE"));
          }
         dataBaseConfig.closeResultSet(rs);
         dataBaseConfig.closePreparedStatement(ps);
@@ -93,4 +162,92 @@ public class ParkingSpotDAO {
     }
     return parkingSpot;
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts the available and total parking spots of a type.
+     * The in-memory spot index is used when loaded, otherwise the database is queried.
+     * @param parkingType The type of parking spot to count.
+     * @return The availability of the spots of this type, or null if it could not be fetched.
+     */
+    public SpotAvailability getAvailability(ParkingType parkingType) {
+        return Metrics.time(getAvailabilityLatency, () -> doGetAvailability(parkingType));
+    }
+
+    private SpotAvailability doGetAvailability(ParkingType parkingType) {
+        if (parkingSpotIndex != null) {
+            return new SpotAvailability(parkingType, parkingSpotIndex.getAvailableCount(parkingType), parkingSpotIndex.getTotalCount(parkingType));
+        }
+        return countParkingSpots(parkingType);
+    }
+
+    /**
+     * Counts the available and total parking spots of a type in the database, ignoring the spot index.
+     * @param parkingType The type of parking spot to count.
+     * @return The availability of the spots of this type, or null if it could not be fetched.
+     */
+    public SpotAvailability countParkingSpots(ParkingType parkingType) {
+        return Metrics.time(countParkingSpotsLatency, () -> doCountParkingSpots(parkingType));
+    }
+
+    private SpotAvailability doCountParkingSpots(ParkingType parkingType) {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_PARKING_SPOTS)) {
+            ps.setString(1, lotId);
+            ps.setString(2, parkingType.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new SpotAvailability(parkingType, rs.getInt(2), rs.getInt(1));
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error counting parking spots", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves every parking spot of the lot from the database, used to load the spot index at startup.
+     * @return The list of parking spots, empty if they could not be fetched.
+     */
+    public List<ParkingSpot> getAllParkingSpots() {
+        return Metrics.time(getAllParkingSpotsLatency, () -> doGetAllParkingSpots());
+    }
+
+    private List<ParkingSpot> doGetAllParkingSpots() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_ALL_PARKING_SPOTS)) {
+            ps.setString(1, lotId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    parkingSpots.add(newParkingSpot(rs.getInt("PARKING_NUMBER"), ParkingType.valueOf(rs.getString("TYPE")), rs.getBoolean("AVAILABLE")));
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching parking spots", ex);
+        }
+        return parkingSpots;
+    }
+
+    private ParkingSpot newParkingSpot(int number, ParkingType parkingType, boolean available) {
+        ParkingSpot parkingSpot = new ParkingSpot(number, parkingType, available);
+        parkingSpot.setLotId(lotId);
+        return parkingSpot;
+    }
+
+    /**
+     * Creates the in-memory spot index from the parking table and starts using it for spot lookups.
+     * @return The loaded spot index, or null if the parking spots could not be fetched.
+     */
+    public ParkingSpotIndex loadParkingSpotIndex() {
+        List<ParkingSpot> parkingSpots = getAllParkingSpots();
+        if (parkingSpots.isEmpty()) {
+            logger.warn("No parking spot found, spot lookups will query the database");
+            return null;
+        }
+        ParkingSpotIndex index = new ParkingSpotIndex();
+        index.load(parkingSpots);
+        parkingSpotIndex = index;
+        return index;
+    }
+}
@@ -1,34 +1,90 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.ActiveTicketCache;
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.cache.VisitCountCache;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.WriteBehindStore;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import com.parkit.parkingsystem.storage.TicketStore;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
+    private static final LatencyHistogram isVehicleCurrentlyParkedLatency = Metrics.histogram("TicketDAO.isVehicleCurrentlyParked");
+    private static final LatencyHistogram saveTicketLatency = Metrics.histogram("TicketDAO.saveTicket");
+    private static final LatencyHistogram saveTicketOnNextAvailableSlotLatency = Metrics.histogram("TicketDAO.saveTicketOnNextAvailableSlot");
+    private static final LatencyHistogram getTicketLatency = Metrics.histogram("TicketDAO.getTicket");
+    private static final LatencyHistogram updateTicketLatency = Metrics.histogram("TicketDAO.updateTicket");
+    private static final LatencyHistogram getNbTicketLatency = Metrics.histogram("TicketDAO.getNbTicket");
+    private static final LatencyHistogram getActiveTicketsLatency = Metrics.histogram("TicketDAO.getActiveTickets");
+    private static final LatencyHistogram streamClosedTicketsLatency = Metrics.histogram("TicketDAO.streamClosedTickets");
+    private static final LatencyHistogram streamTicketsLatency = Metrics.histogram("TicketDAO.streamTickets");
+    private static final LatencyHistogram updateTicketPricesLatency = Metrics.histogram("TicketDAO.updateTicketPrices");
+    private static final LatencyHistogram archiveTicketsLatency = Metrics.histogram("TicketDAO.archiveTickets");
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    // Lot whose tickets this DAO reads and writes, on the shard of dataBaseConfig
+    public String lotId = DBConstants.DEFAULT_LOT_ID;
+    public ParkingSpotIndex parkingSpotIndex;
+    public ActiveTicketCache activeTicketCache;
+    public VisitCountCache visitCountCache;
+    // Write-behind mode: writes go to the journal instead of the database, see WriteBehindStore
+    public WriteBehindStore writeBehindStore;
 
     /**
      * Checks if a vehicle is currently parked by looking for a ticket without an out time.
+     * The active ticket cache answers when loaded; in consistency check mode the database is
+     * queried as well and the cache is reconciled if both disagree.
      * @param vehicleRegNumber The vehicle registration number to check.
      * @return true if the vehicle is currently parked, false otherwise.
      */
     public boolean isVehicleCurrentlyParked(String vehicleRegNumber) {
+        return Metrics.time(isVehicleCurrentlyParkedLatency, () -> doIsVehicleCurrentlyParked(vehicleRegNumber));
+    }
+
+    private boolean doIsVehicleCurrentlyParked(String vehicleRegNumber) {
+        if (activeTicketCache == null) {
+            return isVehicleParkedInDataBase(vehicleRegNumber);
+        }
+        boolean parked = activeTicketCache.contains(vehicleRegNumber);
+        if (activeTicketCache.isConsistencyCheck() && parked != isVehicleParkedInDataBase(vehicleRegNumber)) {
+            logger.warn("Active ticket cache disagrees with the database for vehicle {}", vehicleRegNumber);
+            reconcileActiveTicketCache();
+            return activeTicketCache.contains(vehicleRegNumber);
+        }
+        return parked;
+    }
+
+    private boolean isVehicleParkedInDataBase(String vehicleRegNumber) {
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement("SELECT EXISTS (SELECT 1 FROM ticket WHERE vehicle_reg_number = ? AND out_time IS NULL)")) {
-            ps.setString(1, vehicleRegNumber);
+             PreparedStatement ps = con.prepareStatement(DBConstants.IS_VEHICLE_PARKED)) {
+            ps.setString(1, lotId);
+            ps.setString(2, vehicleRegNumber);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     return rs.getBoolean(1);
@@ -46,15 +102,26 @@ public class TicketDAO {
      * @return true if the ticket was saved successfully, false otherwise.
      */
     public boolean saveTicket(Ticket ticket) {
-        try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
-            ps.setInt(1, ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null) ? null : new Timestamp(ticket.getOutTime().getTime()));
-            ps.setString(6, ticket.getParkingSpot().getParkingType().toString()); // Add parking type to save
-            return ps.executeUpdate() > 0;
+        return Metrics.time(saveTicketLatency, () -> doSaveTicket(ticket));
+    }
+
+    private boolean doSaveTicket(Ticket ticket) {
+        if (writeBehindStore != null) {
+            try {
+                writeBehindStore.append(JournalRecord.saveTicket(ticket));
+            } catch (IOException ex) {
+                logger.error("Error journaling ticket", ex);
+                return false;
+            }
+            cacheSavedTicket(ticket);
+            return true;
+        }
+        try (Connection con = dataBaseConfig.getConnection()) {
+            if (!insertTicket(con, ticket)) {
+                return false;
+            }
+            cacheSavedTicket(ticket);
+            return true;
         } catch (SQLException ex) {
             logger.error("Error saving ticket", ex);
             return false;
@@ -62,79 +129,619 @@ public class TicketDAO {
     }
 
     /**
-     * Retrieves the most recent ticket for a given vehicle registration number.
+     * Claims the next available parking spot of the given type and saves the ticket on it,
+     * in a single transaction on a single connection.
+     * When the spot index is loaded the spot is allocated in memory and only written through
+     * with a conditional UPDATE; otherwise the spot row is locked with {@code FOR UPDATE SKIP LOCKED}.
+     * Either way concurrent entries each claim a different spot instead of waiting on each other
+     * or allocating the same one twice.
+     * On success the ticket is updated with its parking spot and generated ID.
+     * In write-behind mode the spot is allocated from the spot index and the ticket is journaled,
+     * without waiting on the database; its ID stays unknown.
+     * @param ticket The ticket to save, with its vehicle registration number and in time set.
+     * @param parkingType The type of parking spot to claim.
+     * @return The claimed parking spot, or null if none is available or the transaction failed.
+     */
+    public ParkingSpot saveTicketOnNextAvailableSlot(Ticket ticket, ParkingType parkingType) {
+        return Metrics.time(saveTicketOnNextAvailableSlotLatency, () -> doSaveTicketOnNextAvailableSlot(ticket, parkingType));
+    }
+
+    private ParkingSpot doSaveTicketOnNextAvailableSlot(Ticket ticket, ParkingType parkingType) {
+        if (writeBehindStore != null && parkingSpotIndex != null) {
+            return journalTicketOnNextAvailableSlot(ticket, parkingType);
+        }
+        int parkingNumber = 0;
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                parkingNumber = (parkingSpotIndex != null) ? claimIndexedSlot(con, parkingType) : claimNextAvailableSlot(con, parkingType);
+                if (parkingNumber <= 0) {
+                    con.rollback();
+                    return null;
+                }
+                ParkingSpot parkingSpot = newParkingSpot(parkingNumber, parkingType);
+                ticket.setParkingSpot(parkingSpot);
+                ticket.setParkingType(parkingType);
+                if (!insertTicket(con, ticket)) {
+                    logger.error("Ticket of vehicle {} not saved, releasing parking spot {}", ticket.getVehicleRegNumber(), parkingNumber);
+                    con.rollback();
+                    releaseIndexedSlot(parkingType, parkingNumber);
+                    return null;
+                }
+                con.commit();
+                cacheSavedTicket(ticket);
+                return parkingSpot;
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            logger.error("Error saving ticket on next available slot", ex);
+            releaseIndexedSlot(parkingType, parkingNumber);
+            return null;
+        }
+    }
+
+    private void releaseIndexedSlot(ParkingType parkingType, int parkingNumber) {
+        if (parkingSpotIndex != null && parkingNumber > 0) {
+            parkingSpotIndex.release(parkingType, parkingNumber);
+        }
+    }
+
+    private ParkingSpot journalTicketOnNextAvailableSlot(Ticket ticket, ParkingType parkingType) {
+        int parkingNumber = parkingSpotIndex.allocate(parkingType);
+        if (parkingNumber <= 0) {
+            return null;
+        }
+        ParkingSpot parkingSpot = newParkingSpot(parkingNumber, parkingType);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setParkingType(parkingType);
+        ticket.setLotId(lotId);
+        try {
+            writeBehindStore.append(JournalRecord.saveTicket(ticket), JournalRecord.updateParking(parkingSpot));
+        } catch (IOException ex) {
+            logger.error("Error journaling ticket on parking spot {}", parkingNumber, ex);
+            parkingSpotIndex.release(parkingType, parkingNumber);
+            return null;
+        }
+        cacheSavedTicket(ticket);
+        return parkingSpot;
+    }
+
+    private int claimNextAvailableSlot(Connection con, ParkingType parkingType) throws SQLException {
+        int parkingNumber;
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_NEXT_PARKING_SPOT)) {
+            ps.setString(1, lotId);
+            ps.setString(2, parkingType.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return 0;
+                }
+                parkingNumber = rs.getInt(1);
+            }
+        }
+        return occupySlot(con, parkingNumber) ? parkingNumber : 0;
+    }
+
+    private int claimIndexedSlot(Connection con, ParkingType parkingType) throws SQLException {
+        int parkingNumber;
+        while ((parkingNumber = parkingSpotIndex.allocate(parkingType)) > 0) {
+            boolean occupied;
+            try {
+                occupied = occupySlot(con, parkingNumber);
+            } catch (SQLException ex) {
+                parkingSpotIndex.release(parkingType, parkingNumber);
+                throw ex;
+            }
+            if (occupied) {
+                return parkingNumber;
+            }
+            // The spot was taken outside of this index: leave it marked occupied and try the next one
+            logger.warn("Parking spot {} was free in the index but not in the database", parkingNumber);
+        }
+        return 0;
+    }
+
+    private boolean occupySlot(Connection con, int parkingNumber) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.OCCUPY_PARKING_SPOT)) {
+            ps.setString(1, lotId);
+            ps.setInt(2, parkingNumber);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    private boolean insertTicket(Connection con, Ticket ticket) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, lotId);
+            ps.setInt(2, ticket.getParkingSpot().getId());
+            ps.setString(3, ticket.getVehicleRegNumber());
+            ps.setDouble(4, ticket.getPrice());
+            ps.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
+            ps.setTimestamp(6, (ticket.getOutTime() == null) ? null : new Timestamp(ticket.getOutTime().getTime()));
+            ps.setString(7, ticket.getParkingSpot().getParkingType().toString());
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+            ticket.setLotId(lotId);
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    ticket.setId(keys.getInt(1));
+                }
+            }
+            return true;
+        }
+    }
+
+    private void cacheSavedTicket(Ticket ticket) {
+        if (activeTicketCache != null && ticket.getOutTime() == null) {
+            activeTicketCache.put(ticket);
+        }
+        if (visitCountCache != null) {
+            visitCountCache.increment(ticket.getVehicleRegNumber());
+        }
+    }
+
+    /**
+     * Retrieves the open ticket of a parked vehicle, served from the active ticket cache when loaded.
+     * Closed tickets are never returned, so that the exit of a vehicle that already left changes nothing.
      * @param vehicleRegNumber The vehicle registration number.
-     * @return An Optional containing the ticket if found, or an empty Optional if no ticket is found.
+     * @return An Optional containing the open ticket, or an empty Optional if the vehicle is not parked.
      */
     public Optional<Ticket> getTicket(String vehicleRegNumber) {
+        return Metrics.time(getTicketLatency, () -> doGetTicket(vehicleRegNumber));
+    }
+
+    private Optional<Ticket> doGetTicket(String vehicleRegNumber) {
+        if (activeTicketCache != null && !activeTicketCache.isConsistencyCheck()) {
+            Optional<Ticket> cached = activeTicketCache.get(vehicleRegNumber);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement("SELECT * FROM ticket WHERE vehicle_reg_number = ? ORDER BY in_time DESC LIMIT 1")) {
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                String parkingTypeStr = rs.getString("parking_type");
-                if (parkingTypeStr == null) {
-                    throw new IllegalStateException("Parking type is missing for vehicle registration number: " + vehicleRegNumber);
-                }
-                ParkingType parkingType = ParkingType.valueOf(parkingTypeStr);
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt("parking_number"), parkingType, false);
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt("id"));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble("price"));
-                ticket.setInTime(rs.getTimestamp("in_time"));
-                ticket.setOutTime(rs.getTimestamp("out_time"));
-                ticket.setParkingType(ParkingType.valueOf(rs.getString("PARKING_TYPE"))); 
-                return Optional.of(ticket);
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKET)) {
+            ps.setString(1, lotId);
+            ps.setString(2, vehicleRegNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    String parkingTypeStr = rs.getString("parking_type");
+                    if (parkingTypeStr == null) {
+                        throw new IllegalStateException("Parking type is missing for vehicle registration number: " + vehicleRegNumber);
+                    }
+                    ParkingType parkingType = ParkingType.valueOf(parkingTypeStr);
+                    ParkingSpot parkingSpot = newParkingSpot(rs.getInt("parking_number"), parkingType);
+                    Ticket ticket = new Ticket();
+                    ticket.setLotId(lotId);
+                    ticket.setParkingSpot(parkingSpot);
+                    ticket.setId(rs.getInt("id"));
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(rs.getDouble("price"));
+                    ticket.setInTime(rs.getTimestamp("in_time"));
+                    ticket.setOutTime(rs.getTimestamp("out_time"));
+                    ticket.setParkingType(ParkingType.valueOf(rs.getString("PARKING_TYPE"))); 
+                    return Optional.of(ticket);
+                }
             }
         } catch (SQLException ex) {
             logger.error("Error fetching active ticket", ex);
         }
         return Optional.empty();
-    }    
+    }
 
     /**
      * Updates the information of a given ticket in the database.
+     * In write-behind mode the price and out time of the open ticket of the vehicle are journaled instead.
      * @param ticket The ticket to update.
      * @return true if the update was successful, false otherwise.
      */
     public boolean updateTicket(Ticket ticket) {
+        return Metrics.time(updateTicketLatency, () -> doUpdateTicket(ticket));
+    }
+
+    private boolean doUpdateTicket(Ticket ticket) {
+        if (writeBehindStore != null) {
+            try {
+                writeBehindStore.append(JournalRecord.updateTicket(ticket));
+            } catch (IOException ex) {
+                logger.error("Error journaling ticket update of vehicle {}", ticket.getVehicleRegNumber(), ex);
+                return false;
+            }
+            if (activeTicketCache != null && ticket.getOutTime() != null) {
+                activeTicketCache.remove(ticket);
+            }
+            return true;
+        }
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement("UPDATE ticket SET price=?, out_time=? WHERE id=?")) {
+             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
             ps.setDouble(1, ticket.getPrice());
             if (ticket.getOutTime() != null) {
                 ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             } else {
                 ps.setTimestamp(2, null); 
-                logger.error("Attempting to update ticket without outTime: " + ticket.getId());
+                logger.error("Attempting to update ticket without outTime: {}", ticket.getId());
             }
             ps.setInt(3, ticket.getId());
             int updateCount = ps.executeUpdate();
+            if (updateCount == 1 && activeTicketCache != null && ticket.getOutTime() != null) {
+                activeTicketCache.remove(ticket);
+            }
             return (updateCount == 1);
         } catch (SQLException ex) {
-            logger.error("Error updating ticket with ID: " + ticket.getId(), ex);
+            logger.error("Error updating ticket with ID: {}", ticket.getId(), ex);
         }
         return false;
-    }    
+    }
 
     /**
-     * Retrieves the number of tickets associated with a specific vehicle registration number.
+     * Retrieves the number of tickets associated with a specific vehicle registration number,
+     * archived tickets included through the per-plate summary of the archive.
+     * The count is served from the visit count cache when present, and cached after being counted.
+     * In write-behind mode the tickets not yet flushed to the database are counted as well.
      * @param vehicleRegNumber The vehicle registration number to check.
      * @return The number of tickets found.
      */
     public int getNbTicket(String vehicleRegNumber) {
-        String sql = "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?";
+        return Metrics.time(getNbTicketLatency, () -> doGetNbTicket(vehicleRegNumber));
+    }
+
+    private int doGetNbTicket(String vehicleRegNumber) {
+        if (visitCountCache == null) {
+            return countAllTickets(vehicleRegNumber);
+        }
+        Integer cached = visitCountCache.get(vehicleRegNumber);
+        if (cached != null) {
+            return cached;
+        }
+        long version = visitCountCache.getVersion(vehicleRegNumber);
+        int count = countAllTickets(vehicleRegNumber);
+        if (count >= 0) {
+            visitCountCache.putIfUnchanged(vehicleRegNumber, count, version);
+        }
+        return Math.max(count, 0);
+    }
+
+    private int countAllTickets(String vehicleRegNumber) {
+        if (writeBehindStore == null) {
+            return countTickets(vehicleRegNumber);
+        }
+        return writeBehindStore.countTickets(vehicleRegNumber);
+    }
+
+    private int countTickets(String vehicleRegNumber) {
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+             PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_TICKETS)) {
+            ps.setString(1, lotId);
+            ps.setString(2, vehicleRegNumber);
+            ps.setString(3, lotId);
+            ps.setString(4, vehicleRegNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
             }
         } catch (SQLException ex) {
             logger.error("Error fetching ticket count", ex);
+            return -1;
         }
         return 0;
     }
+
+    /**
+     * Retrieves every ticket of the lot without an out time, i.e. the tickets of the vehicles currently parked.
+     * @return The list of open tickets.
+     * @throws SQLException if the tickets could not be fetched.
+     */
+    public List<Ticket> getActiveTickets() throws SQLException {
+        return Metrics.time(getActiveTicketsLatency, () -> doGetActiveTickets());
+    }
+
+    private List<Ticket> doGetActiveTickets() throws SQLException {
+        List<Ticket> tickets = new ArrayList<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_ACTIVE_TICKETS)) {
+            ps.setString(1, lotId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    tickets.add(mapTicket(rs));
+                }
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Streams the closed tickets whose in time falls in the given range, without loading them all in memory.
+     * Rows are read through a forward-only cursor fetching {@code fetchSize} rows at a time
+     * (with MySQL this needs {@code useCursorFetch=true} in the JDBC URL).
+     * Archived tickets are not streamed, their price being final.
+     * Each ticket is passed along with whether its vehicle had an earlier ticket, archived or not, i.e. was a recurring user.
+     * The tickets are read from the read replica if one is configured, see {@link DataBaseConfig#getReadConnection()}.
+     * @param from The start of the in time range, inclusive.
+     * @param to The end of the in time range, exclusive.
+     * @param fetchSize The number of rows fetched per round trip.
+     * @param consumer The consumer receiving each ticket and its recurring user flag.
+     * @return The number of tickets streamed.
+     * @throws SQLException if the tickets could not be read.
+     */
+    public long streamClosedTickets(Date from, Date to, int fetchSize, BiConsumer<Ticket, Boolean> consumer) throws SQLException {
+        return Metrics.time(streamClosedTicketsLatency, () -> doStreamClosedTickets(from, to, fetchSize, consumer));
+    }
+
+    private long doStreamClosedTickets(Date from, Date to, int fetchSize, BiConsumer<Ticket, Boolean> consumer) throws SQLException {
+        long count = 0;
+        try (Connection con = dataBaseConfig.getReadConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS_WITH_RECURRENCE,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, lotId);
+            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            ps.setTimestamp(3, new Timestamp(to.getTime()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapTicket(rs), rs.getBoolean("RECURRING"));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams the tickets matching an export filter in in time order, without loading them all in memory.
+     * Archived tickets are included. Like {@link #streamClosedTickets}, rows are read from the read replica if any,
+     * through a forward-only cursor fetching {@code fetchSize} rows at a time.
+     * @param filter The in time range, and the optional parking type and vehicle, of the tickets to stream.
+     * @param fetchSize The number of rows fetched per round trip.
+     * @param consumer The consumer receiving each ticket.
+     * @return The number of tickets streamed.
+     * @throws SQLException if the tickets could not be read.
+     */
+    public long streamTickets(TicketExportFilter filter, int fetchSize, Consumer<Ticket> consumer) throws SQLException {
+        return Metrics.time(streamTicketsLatency, () -> doStreamTickets(filter, fetchSize, consumer));
+    }
+
+    private long doStreamTickets(TicketExportFilter filter, int fetchSize, Consumer<Ticket> consumer) throws SQLException {
+        StringBuilder filters = new StringBuilder();
+        if (filter.getParkingType() != null) {
+            filters.append(DBConstants.EXPORT_TICKETS_TYPE_FILTER);
+        }
+        if (filter.getVehicleRegNumber() != null) {
+            filters.append(DBConstants.EXPORT_TICKETS_PLATE_FILTER);
+        }
+        StringBuilder sql = new StringBuilder(DBConstants.EXPORT_TICKETS).append(filters)
+                .append(" union all ").append(DBConstants.EXPORT_ARCHIVED_TICKETS).append(filters)
+                .append(DBConstants.EXPORT_TICKETS_ORDER);
+        long count = 0;
+        try (Connection con = dataBaseConfig.getReadConnection();
+             PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            int index = 1;
+            // Once for the hot tickets, once for the archived ones
+            for (int table = 0; table < 2; table++) {
+                ps.setString(index++, lotId);
+                ps.setTimestamp(index++, new Timestamp(filter.getFrom().getTime()));
+                ps.setTimestamp(index++, new Timestamp(filter.getTo().getTime()));
+                if (filter.getParkingType() != null) {
+                    ps.setString(index++, filter.getParkingType().toString());
+                }
+                if (filter.getVehicleRegNumber() != null) {
+                    ps.setString(index++, filter.getVehicleRegNumber());
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapTicket(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Updates the price of many tickets in one transaction, using a JDBC batch.
+     * @param tickets The tickets holding their new price.
+     * @throws SQLException if the batch failed, in which case no price was updated.
+     */
+    public void updateTicketPrices(List<Ticket> tickets) throws SQLException {
+        Metrics.time(updateTicketPricesLatency, () -> doUpdateTicketPrices(tickets));
+    }
+
+    private void doUpdateTicketPrices(List<Ticket> tickets) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE)) {
+            con.setAutoCommit(false);
+            try {
+                for (Ticket ticket : tickets) {
+                    ps.setDouble(1, ticket.getPrice());
+                    ps.setInt(2, ticket.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Moves the oldest closed tickets out of the hot ticket table into the archive, in one transaction:
+     * the tickets are copied to {@code ticket_archive}, added to the per-plate summary and deleted.
+     * The number of tickets of each vehicle, as counted by {@link #getNbTicket(String)}, is left unchanged.
+     * @param before The out time before which closed tickets are archived, exclusive.
+     * @param limit The maximum number of tickets to archive.
+     * @return The number of tickets archived, less than the limit once no ticket is left to archive.
+     * @throws SQLException if the tickets could not be archived, in which case none is.
+     */
+    public int archiveTickets(Date before, int limit) throws SQLException {
+        return Metrics.time(archiveTicketsLatency, () -> doArchiveTickets(before, limit));
+    }
+
+    private int doArchiveTickets(Date before, int limit) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                List<Ticket> tickets = new ArrayList<>(limit);
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_TO_ARCHIVE)) {
+                    ps.setString(1, lotId);
+                    ps.setTimestamp(2, new Timestamp(before.getTime()));
+                    ps.setInt(3, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            tickets.add(mapTicket(rs));
+                        }
+                    }
+                }
+                if (!tickets.isEmpty()) {
+                    copyToArchive(con, tickets);
+                    addToPlateSummary(con, tickets);
+                    try (PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_TICKET)) {
+                        for (Ticket ticket : tickets) {
+                            ps.setInt(1, ticket.getId());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                con.commit();
+                return tickets.size();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    private void copyToArchive(Connection con, List<Ticket> tickets) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.ARCHIVE_TICKET)) {
+            for (Ticket ticket : tickets) {
+                ps.setInt(1, ticket.getId());
+                ps.setString(2, lotId);
+                ps.setInt(3, ticket.getParkingSpot().getId());
+                ps.setString(4, ticket.getVehicleRegNumber());
+                ps.setDouble(5, ticket.getPrice());
+                ps.setTimestamp(6, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(7, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setString(8, ticket.getParkingType().toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void addToPlateSummary(Connection con, List<Ticket> tickets) throws SQLException {
+        // Ticket count and first in time of each vehicle in this chunk
+        Map<String, PlateSummary> summaries = new LinkedHashMap<>();
+        for (Ticket ticket : tickets) {
+            summaries.computeIfAbsent(ticket.getVehicleRegNumber(), plate -> new PlateSummary(ticket.getInTime())).add(ticket.getInTime());
+        }
+        List<String> plates = new ArrayList<>(summaries.keySet());
+        int[] updateCounts;
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.ADD_TO_PLATE_SUMMARY)) {
+            for (String plate : plates) {
+                PlateSummary summary = summaries.get(plate);
+                ps.setInt(1, summary.count);
+                ps.setTimestamp(2, new Timestamp(summary.firstInTime.getTime()));
+                ps.setString(3, lotId);
+                ps.setString(4, plate);
+                ps.addBatch();
+            }
+            updateCounts = ps.executeBatch();
+        }
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_PLATE_SUMMARY)) {
+            boolean inserts = false;
+            for (int i = 0; i < plates.size(); i++) {
+                if (updateCounts[i] == 0) {
+                    PlateSummary summary = summaries.get(plates.get(i));
+                    ps.setString(1, lotId);
+                    ps.setString(2, plates.get(i));
+                    ps.setInt(3, summary.count);
+                    ps.setTimestamp(4, new Timestamp(summary.firstInTime.getTime()));
+                    ps.addBatch();
+                    inserts = true;
+                }
+            }
+            if (inserts) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private Ticket mapTicket(ResultSet rs) throws SQLException {
+        ParkingType parkingType = ParkingType.valueOf(rs.getString("PARKING_TYPE"));
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(newParkingSpot(rs.getInt("PARKING_NUMBER"), parkingType));
+        ticket.setLotId(lotId);
+        ticket.setId(rs.getInt("ID"));
+        ticket.setVehicleRegNumber(rs.getString("VEHICLE_REG_NUMBER"));
+        ticket.setPrice(rs.getDouble("PRICE"));
+        ticket.setInTime(rs.getTimestamp("IN_TIME"));
+        ticket.setOutTime(rs.getTimestamp("OUT_TIME"));
+        ticket.setParkingType(parkingType);
+        return ticket;
+    }
+
+    private ParkingSpot newParkingSpot(int number, ParkingType parkingType) {
+        ParkingSpot parkingSpot = new ParkingSpot(number, parkingType, false);
+        parkingSpot.setLotId(lotId);
+        return parkingSpot;
+    }
+
+    /**
+     * Creates the active ticket cache from the open tickets in the database and starts using it.
+     * @return The loaded cache, or null if the open tickets could not be fetched.
+     */
+    public ActiveTicketCache loadActiveTicketCache() {
+        try {
+            ActiveTicketCache cache = new ActiveTicketCache();
+            cache.load(getActiveTickets());
+            activeTicketCache = cache;
+            return cache;
+        } catch (SQLException ex) {
+            logger.error("Error loading active ticket cache, lookups will query the database", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Reconciles the active ticket cache against the open tickets stored in the database.
+     * @return The number of differences that were fixed, or -1 if the database could not be read.
+     */
+    public int reconcileActiveTicketCache() {
+        if (activeTicketCache == null) {
+            return 0;
+        }
+        try {
+            Date snapshotTime = new Date();
+            int differences = activeTicketCache.reconcile(getActiveTickets(), snapshotTime);
+            if (differences > 0) {
+                logger.warn("Fixed {} differences between the active ticket cache and the database", differences);
+            }
+            return differences;
+        } catch (SQLException ex) {
+            logger.error("Error reconciling active ticket cache", ex);
+            return -1;
+        }
+    }
+
+    /**
+     * Number of tickets and earliest in time of one vehicle among the tickets being archived.
+     */
+    private static class PlateSummary {
+        private int count;
+        private Date firstInTime;
+
+        private PlateSummary(Date firstInTime) {
+            this.firstInTime = firstInTime;
+        }
+
+        private void add(Date inTime) {
+            count++;
+            if (inTime.before(firstInTime)) {
+                firstInTime = inTime;
+            }
+        }
+    }
 }
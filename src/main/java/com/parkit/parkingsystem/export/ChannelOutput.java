@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writer of bytes and variable length integers to a channel.
+ * Bytes are gathered in one direct buffer and handed to the channel only when it is full,
+ * so exporting a row costs no system call and no allocation.
+ */
+class ChannelOutput {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates an output writing to the given channel.
+     * @param channel the channel to write to.
+     * @param bufferSize the size of the buffer in bytes, at least 16.
+     */
+    ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(16, bufferSize));
+    }
+
+    /**
+     * Writes one byte.
+     * @param value the byte to write.
+     * @throws IOException if the channel could not be written.
+     */
+    void writeByte(int value) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes an array of bytes.
+     * @param bytes the bytes to write.
+     * @throws IOException if the channel could not be written.
+     */
+    void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes an unsigned integer on as few bytes as possible, 7 bits per byte.
+     * @param value the value to write, not negative.
+     * @throws IOException if the channel could not be written.
+     */
+    void writeVarLong(long value) throws IOException {
+        ensureRemaining(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a signed integer, zigzag encoded so small negative values stay short.
+     * @param value the value to write.
+     * @throws IOException if the channel could not be written.
+     */
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes every buffered byte to the channel.
+     * @throws IOException if the channel could not be written.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Reads back the tickets of a file written by {@link ColumnarTicketWriter}, one row group at a time.
+ */
+public class ColumnarTicketReader {
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final InputStream in;
+
+    /**
+     * Creates a reader on the given stream, which should be buffered.
+     * @param in the stream to read from.
+     */
+    public ColumnarTicketReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads every ticket of the file.
+     * @param consumer the consumer receiving each ticket.
+     * @return the number of tickets read.
+     * @throws IOException if the stream could not be read or is not a columnar ticket file.
+     */
+    public long read(Consumer<Ticket> consumer) throws IOException {
+        byte[] magic = readBytes(ColumnarTicketWriter.MAGIC.length);
+        if (!Arrays.equals(magic, ColumnarTicketWriter.MAGIC)) {
+            throw new IOException("Not a columnar ticket file");
+        }
+        int version = readByte();
+        if (version != ColumnarTicketWriter.VERSION) {
+            throw new IOException("Unsupported columnar ticket file version: " + version);
+        }
+        long count = 0;
+        int rows;
+        while ((rows = (int) readVarLong()) > 0) {
+            Ticket[] tickets = new Ticket[rows];
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += readSignedVarLong();
+                tickets[i] = new Ticket();
+                tickets[i].setId((int) previous);
+            }
+            int[] parkingNumbers = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                parkingNumbers[i] = (int) readVarLong();
+            }
+            for (int i = 0; i < rows; i++) {
+                ParkingType parkingType = PARKING_TYPES[readByte()];
+                tickets[i].setParkingType(parkingType);
+                tickets[i].setParkingSpot(new ParkingSpot(parkingNumbers[i], parkingType, false));
+            }
+            for (int i = 0; i < rows; i++) {
+                tickets[i].setVehicleRegNumber(new String(readBytes((int) readVarLong()), StandardCharsets.UTF_8));
+            }
+            previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += readSignedVarLong();
+                tickets[i].setInTime(new Date(previous));
+            }
+            for (int i = 0; i < rows; i++) {
+                long encoded = readVarLong();
+                if (encoded != 0) {
+                    long zigzag = encoded - 1;
+                    long duration = (zigzag >>> 1) ^ -(zigzag & 1);
+                    tickets[i].setOutTime(new Date(tickets[i].getInTime().getTime() + duration));
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                tickets[i].setPriceInCents(readSignedVarLong());
+                consumer.accept(tickets[i]);
+            }
+            count += rows;
+        }
+        return count;
+    }
+
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Truncated columnar ticket file");
+        }
+        return value;
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated columnar ticket file");
+        }
+        return bytes;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes tickets in a compact binary format laid out in columns, readable with {@link ColumnarTicketReader}.
+ * <p>
+ * The file starts with the magic bytes {@code PKTX} and a version byte. Tickets follow in row groups:
+ * the number of rows of the group, then each column of the group in turn. Integers are variable length,
+ * ids and in times are stored as the difference with the previous row, and out times as the duration of the stay,
+ * so a ticket usually takes around 20 bytes. A row group of zero rows ends the file.
+ * Only one row group is held in memory, whatever the number of tickets.
+ */
+public class ColumnarTicketWriter implements TicketWriter {
+
+    static final byte[] MAGIC = {'P', 'K', 'T', 'X'};
+    static final int VERSION = 1;
+
+    private final ChannelOutput output;
+    private final int rowGroupSize;
+    private final int[] ids;
+    private final int[] parkingNumbers;
+    private final byte[] parkingTypes;
+    private final byte[][] vehicleRegNumbers;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final long[] pricesInCents;
+    private final boolean[] open;
+    private int rows;
+    private boolean headerWritten;
+
+    /**
+     * Creates a columnar writer on the given channel.
+     * @param channel the channel to write to.
+     * @param bufferSize the size of the write buffer in bytes.
+     * @param rowGroupSize the number of tickets per row group.
+     */
+    public ColumnarTicketWriter(WritableByteChannel channel, int bufferSize, int rowGroupSize) {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("Invalid row group size: " + rowGroupSize);
+        }
+        this.output = new ChannelOutput(channel, bufferSize);
+        this.rowGroupSize = rowGroupSize;
+        this.ids = new int[rowGroupSize];
+        this.parkingNumbers = new int[rowGroupSize];
+        this.parkingTypes = new byte[rowGroupSize];
+        this.vehicleRegNumbers = new byte[rowGroupSize][];
+        this.inTimes = new long[rowGroupSize];
+        this.outTimes = new long[rowGroupSize];
+        this.pricesInCents = new long[rowGroupSize];
+        this.open = new boolean[rowGroupSize];
+    }
+
+    @Override
+    public void write(Ticket ticket) throws IOException {
+        ids[rows] = ticket.getId();
+        parkingNumbers[rows] = ticket.getParkingSpot().getId();
+        parkingTypes[rows] = (byte) ticket.getParkingType().ordinal();
+        vehicleRegNumbers[rows] = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        inTimes[rows] = ticket.getInTime().getTime();
+        open[rows] = ticket.getOutTime() == null;
+        outTimes[rows] = open[rows] ? 0 : ticket.getOutTime().getTime();
+        pricesInCents[rows] = Math.round(ticket.getPrice() * 100);
+        rows++;
+        if (rows == rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeRowGroup();
+        }
+        writeHeaderIfNeeded();
+        output.writeVarLong(0);
+        output.flush();
+    }
+
+    private void writeHeaderIfNeeded() throws IOException {
+        if (!headerWritten) {
+            output.writeBytes(MAGIC);
+            output.writeByte(VERSION);
+            headerWritten = true;
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        writeHeaderIfNeeded();
+        output.writeVarLong(rows);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            output.writeSignedVarLong(ids[i] - previous);
+            previous = ids[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            output.writeVarLong(parkingNumbers[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            output.writeByte(parkingTypes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            output.writeVarLong(vehicleRegNumbers[i].length);
+            output.writeBytes(vehicleRegNumbers[i]);
+            vehicleRegNumbers[i] = null;
+        }
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            output.writeSignedVarLong(inTimes[i] - previous);
+            previous = inTimes[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            // 0 marks an open ticket, otherwise the zigzag encoded duration plus one
+            if (open[i]) {
+                output.writeVarLong(0);
+            } else {
+                long duration = outTimes[i] - inTimes[i];
+                output.writeVarLong(((duration << 1) ^ (duration >> 63)) + 1);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            output.writeSignedVarLong(pricesInCents[i]);
+        }
+        rows = 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes tickets as CSV lines, with a header line, times in the system time zone and prices with two decimals.
+ * Open tickets have an empty out time.
+ */
+public class CsvTicketWriter implements TicketWriter {
+
+    static final String HEADER = "ID,PARKING_NUMBER,PARKING_TYPE,VEHICLE_REG_NUMBER,IN_TIME,OUT_TIME,PRICE\n";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final ChannelOutput output;
+    private final StringBuilder line = new StringBuilder(128);
+    private boolean headerWritten;
+
+    /**
+     * Creates a CSV writer on the given channel.
+     * @param channel the channel to write to.
+     * @param bufferSize the size of the write buffer in bytes.
+     */
+    public CsvTicketWriter(WritableByteChannel channel, int bufferSize) {
+        this.output = new ChannelOutput(channel, bufferSize);
+    }
+
+    @Override
+    public void write(Ticket ticket) throws IOException {
+        writeHeaderIfNeeded();
+        line.setLength(0);
+        line.append(ticket.getId()).append(',')
+                .append(ticket.getParkingSpot().getId()).append(',')
+                .append(ticket.getParkingType()).append(',');
+        appendQuotedIfNeeded(ticket.getVehicleRegNumber());
+        line.append(',');
+        appendTime(ticket.getInTime());
+        line.append(',');
+        appendTime(ticket.getOutTime());
+        line.append(',');
+        long cents = Math.round(ticket.getPrice() * 100);
+        line.append(cents / 100).append('.');
+        if (cents % 100 < 10) {
+            line.append('0');
+        }
+        line.append(cents % 100).append('\n');
+        output.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // An empty export still gets its header
+        writeHeaderIfNeeded();
+        output.flush();
+    }
+
+    private void writeHeaderIfNeeded() throws IOException {
+        if (!headerWritten) {
+            output.writeBytes(HEADER.getBytes(StandardCharsets.US_ASCII));
+            headerWritten = true;
+        }
+    }
+
+    private void appendTime(Date time) {
+        if (time != null) {
+            TIME_FORMAT.formatTo(time.toInstant(), line);
+        }
+    }
+
+    private void appendQuotedIfNeeded(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
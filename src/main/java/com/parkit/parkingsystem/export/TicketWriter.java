@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.IOException;
+
+/**
+ * Writes exported tickets to a file format, one ticket at a time.
+ */
+public interface TicketWriter {
+
+    /**
+     * Writes one ticket.
+     * @param ticket the ticket to write.
+     * @throws IOException if the ticket could not be written.
+     */
+    void write(Ticket ticket) throws IOException;
+
+    /**
+     * Writes whatever is still buffered, after the last ticket. The channel is left open.
+     * @throws IOException if the data could not be written.
+     */
+    void finish() throws IOException;
+}
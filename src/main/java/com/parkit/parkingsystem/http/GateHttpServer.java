@@ -0,0 +1,357 @@
+package com.parkit.parkingsystem.http;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.service.OccupancyService;
+import com.parkit.parkingsystem.service.ParkingLots;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.storage.ParkingSpotStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP endpoint for the gate cameras, over {@link ParkingService}:
+ * <ul>
+ *     <li>{@code POST /entry} with {@code plate} and {@code type} (CAR or BIKE) parks a vehicle;</li>
+ *     <li>{@code POST /exit} with {@code plate} records the exit of a vehicle and returns its fare;</li>
+ *     <li>{@code GET /availability} returns the available and total spots of each type.</li>
+ * </ul>
+ * A server may serve several parking lots, the {@code lot} parameter of each request selecting one;
+ * it can be left out when a single lot is served.
+ * Parameters are read from the query string or from a form encoded body, and responses are JSON.
+ * Connections are accepted on the non-blocking selector of the JDK server and kept alive between requests;
+ * requests are handled on a bounded pool of threads, which also bounds the database connections used at once.
+ */
+public class GateHttpServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    private static final int MAX_BODY_SIZE = 8192;
+
+    static {
+        // The JDK server writes the headers and the body separately; with Nagle's algorithm on, the body then waits
+        // for the client's delayed ACK, about 40 ms per request. Must be set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    // Not modified once the server is created
+    private final Map<String, Lot> lots = new LinkedHashMap<>();
+
+    /**
+     * Creates a server of a single lot bound to the given address; call {@link #start()} to serve requests.
+     * @param parkingService the parking service processing the entries and exits.
+     * @param parkingSpotStore the parking spot store answering the availability requests.
+     * @param address the address to listen on, port 0 for any free port.
+     * @param threads the number of request handling threads.
+     * @throws IOException if the address could not be bound.
+     */
+    public GateHttpServer(ParkingService parkingService, ParkingSpotStore parkingSpotStore, InetSocketAddress address, int threads) throws IOException {
+        this(address, threads);
+        lots.put(DBConstants.DEFAULT_LOT_ID, new Lot(parkingService, parkingSpotStore));
+    }
+
+    /**
+     * Creates a server of every lot of a deployment bound to the given address; call {@link #start()} to serve requests.
+     * The availability requests are answered by the occupancy service of each lot, if any.
+     * @param parkingLots the parking systems of the lots.
+     * @param address the address to listen on, port 0 for any free port.
+     * @param threads the number of request handling threads.
+     * @throws IOException if the address could not be bound.
+     */
+    public GateHttpServer(ParkingLots parkingLots, InetSocketAddress address, int threads) throws IOException {
+        this(address, threads);
+        for (String lotId : parkingLots.getLotIds()) {
+            ParkingSystem parkingSystem = parkingLots.get(lotId);
+            Lot lot = new Lot(parkingSystem.getParkingService(), parkingSystem.getParkingSpotStore());
+            lot.occupancyService = parkingSystem.getOccupancyService();
+            lots.put(lotId, lot);
+        }
+    }
+
+    private GateHttpServer(InetSocketAddress address, int threads) throws IOException {
+        AtomicInteger handlerCount = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "http-gate-" + handlerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(handlers);
+        server.createContext("/entry", exchange -> handle(exchange, "POST", this::entry));
+        server.createContext("/exit", exchange -> handle(exchange, "POST", this::exit));
+        server.createContext("/availability", exchange -> handle(exchange, "GET", this::availability));
+    }
+
+    /**
+     * Sets the occupancy service answering the availability requests from its counters instead of the parking spot DAO.
+     * @param occupancyService the occupancy service, null to use the parking spot DAO.
+     * @throws IllegalStateException if the server serves several lots.
+     */
+    public void setOccupancyService(OccupancyService occupancyService) {
+        if (lots.size() != 1) {
+            throw new IllegalStateException("The server serves several lots");
+        }
+        lots.values().iterator().next().occupancyService = occupancyService;
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+        logger.info("Gate HTTP endpoint listening on port {}", getPort());
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return the port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, giving the requests in progress one second to complete.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Response entry(Map<String, String> parameters) {
+        Lot lot = lot(parameters);
+        String plate = requireParameter(parameters, "plate");
+        String type = requireParameter(parameters, "type");
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        }
+        EntryResult result = lot.parkingService.enter(plate, parkingType);
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"status\":\"").append(result.getStatus()).append("\",\"plate\":");
+        appendString(json, plate);
+        if (result.isSuccess()) {
+            json.append(",\"spot\":").append(result.getParkingSpot().getId());
+            json.append(",\"inTime\":");
+            appendTime(json, result.getInTime());
+            json.append(",\"recurringUser\":").append(result.isRecurringUser());
+        }
+        return new Response(httpStatus(result.getStatus()), json.append('}').toString());
+    }
+
+    private Response exit(Map<String, String> parameters) {
+        Lot lot = lot(parameters);
+        String plate = requireParameter(parameters, "plate");
+        ExitResult result = lot.parkingService.exit(plate);
+        StringBuilder json = new StringBuilder(192);
+        json.append("{\"status\":\"").append(result.getStatus()).append("\",\"plate\":");
+        appendString(json, plate);
+        if (result.isSuccess()) {
+            json.append(",\"spot\":").append(result.getParkingSpot().getId());
+            json.append(",\"inTime\":");
+            appendTime(json, result.getInTime());
+            json.append(",\"outTime\":");
+            appendTime(json, result.getOutTime());
+            json.append(",\"durationMinutes\":").append(result.getDurationMinutes());
+            json.append(",\"fare\":").append(result.getFare());
+            json.append(",\"discount\":").append(result.isDiscount());
+        }
+        return new Response(httpStatus(result.getStatus()), json.append('}').toString());
+    }
+
+    private Response availability(Map<String, String> parameters) {
+        Lot lot = lot(parameters);
+        StringBuilder json = new StringBuilder(96).append('{');
+        for (ParkingType parkingType : ParkingType.values()) {
+            OccupancyService occupancy = lot.occupancyService;
+            SpotAvailability availability = (occupancy != null) ? occupancy.getAvailability(parkingType) : lot.parkingSpotStore.getAvailability(parkingType);
+            if (availability == null) {
+                return new Response(500, "{\"status\":\"ERROR\"}");
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(parkingType).append("\":{\"available\":").append(availability.getAvailable())
+                    .append(",\"total\":").append(availability.getTotal()).append('}');
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private void handle(HttpExchange exchange, String method, RequestHandler handler) throws IOException {
+        Response response;
+        try {
+            // The request body must be read fully for the connection to be reused
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                response = new Response(413, "{\"status\":\"ERROR\",\"message\":\"Request body too large\"}");
+            } else if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                response = new Response(405, "{\"status\":\"ERROR\",\"message\":\"Method not allowed\"}");
+            } else {
+                Map<String, String> parameters = new HashMap<>();
+                parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+                parseParameters(new String(body, StandardCharsets.UTF_8), parameters);
+                response = handler.handle(parameters);
+            }
+        } catch (IllegalArgumentException e) {
+            StringBuilder json = new StringBuilder("{\"status\":\"ERROR\",\"message\":");
+            appendString(json, e.getMessage());
+            response = new Response(400, json.append('}').toString());
+        } catch (Exception e) {
+            logger.error("Unable to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            response = new Response(500, "{\"status\":\"ERROR\"}");
+        }
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+        if (body.length > MAX_BODY_SIZE) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return null;
+        }
+        return body;
+    }
+
+    private static void parseParameters(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private Lot lot(Map<String, String> parameters) {
+        String lotId = parameters.get("lot");
+        if (lotId == null || lotId.trim().isEmpty()) {
+            if (lots.size() == 1) {
+                return lots.values().iterator().next();
+            }
+            throw new IllegalArgumentException("Missing parameter: lot");
+        }
+        Lot lot = lots.get(lotId.trim());
+        if (lot == null) {
+            throw new IllegalArgumentException("Unknown parking lot: " + lotId.trim());
+        }
+        return lot;
+    }
+
+    private static String requireParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static int httpStatus(GateStatus status) {
+        switch (status) {
+            case OK:
+                return 200;
+            case ALREADY_PARKED:
+            case NO_SPOT_AVAILABLE:
+                return 409;
+            case TICKET_NOT_FOUND:
+                return 404;
+            default:
+                return 500;
+        }
+    }
+
+    private static void appendTime(StringBuilder json, Date time) {
+        json.append('"').append(time.toInstant()).append('"');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Handles the parameters of a request.
+     */
+    private interface RequestHandler {
+        Response handle(Map<String, String> parameters);
+    }
+
+    /**
+     * Services of one lot.
+     */
+    private static class Lot {
+        private final ParkingService parkingService;
+        private final ParkingSpotStore parkingSpotStore;
+        private volatile OccupancyService occupancyService;
+
+        private Lot(ParkingService parkingService, ParkingSpotStore parkingSpotStore) {
+            this.parkingService = parkingService;
+            this.parkingSpotStore = parkingSpotStore;
+        }
+    }
+
+    /**
+     * HTTP status and JSON body of a response.
+     */
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
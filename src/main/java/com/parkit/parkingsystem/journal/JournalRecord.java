@@ -0,0 +1,168 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.JournalRecordType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+
+/**
+ * One database write recorded in the write-behind journal: a ticket saved, an open ticket closed,
+ * or the availability of a parking spot changed. Sequence numbers are assigned by the journal, in write order.
+ */
+public class JournalRecord {
+
+    // Set by the journal writer thread, read by the threads counting unflushed tickets
+    private volatile long sequence;
+    private final JournalRecordType type;
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+    private final int parkingNumber;
+    private final boolean available;
+    private final double price;
+    private final Date inTime;
+    private final Date outTime;
+
+    /**
+     * Constructs a new JournalRecord.
+     * @param sequence the sequence number, 0 until written to the journal
+     * @param type the kind of write
+     * @param vehicleRegNumber the vehicle registration number, null for a parking spot update
+     * @param parkingType the parking type, null for a parking spot update
+     * @param parkingNumber the parking spot number
+     * @param available the new availability of the parking spot
+     * @param price the ticket price
+     * @param inTime the ticket in time
+     * @param outTime the ticket out time, null while the vehicle is parked
+     */
+    public JournalRecord(long sequence, JournalRecordType type, String vehicleRegNumber, ParkingType parkingType,
+                         int parkingNumber, boolean available, double price, Date inTime, Date outTime) {
+        this.sequence = sequence;
+        this.type = type;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.parkingNumber = parkingNumber;
+        this.available = available;
+        this.price = price;
+        this.inTime = inTime;
+        this.outTime = outTime;
+    }
+
+    /**
+     * Records a new ticket, on its parking spot.
+     * @param ticket the saved ticket
+     * @return the journal record
+     */
+    public static JournalRecord saveTicket(Ticket ticket) {
+        return new JournalRecord(0, JournalRecordType.SAVE_TICKET, ticket.getVehicleRegNumber(),
+                ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId(), false,
+                ticket.getPrice(), ticket.getInTime(), ticket.getOutTime());
+    }
+
+    /**
+     * Records the price and out time of the open ticket of a vehicle.
+     * @param ticket the updated ticket
+     * @return the journal record
+     */
+    public static JournalRecord updateTicket(Ticket ticket) {
+        return new JournalRecord(0, JournalRecordType.UPDATE_TICKET, ticket.getVehicleRegNumber(),
+                null, 0, false, ticket.getPrice(), null, ticket.getOutTime());
+    }
+
+    /**
+     * Records the availability of a parking spot.
+     * @param parkingSpot the updated parking spot
+     * @return the journal record
+     */
+    public static JournalRecord updateParking(ParkingSpot parkingSpot) {
+        return new JournalRecord(0, JournalRecordType.UPDATE_PARKING, null, null,
+                parkingSpot.getId(), parkingSpot.isAvailable(), 0, null, null);
+    }
+
+    /**
+     * Gets the sequence number of the record in the journal.
+     * @return the sequence number, 0 until written
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets the sequence number, when the record is written to the journal or read back from it.
+     * @param sequence the sequence number
+     */
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the kind of write.
+     * @return the record type
+     */
+    public JournalRecordType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the vehicle registration number of the ticket.
+     * @return the vehicle registration number, null for a parking spot update
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the parking type of a saved ticket.
+     * @return the parking type, null for the other records
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets the parking spot number.
+     * @return the parking spot number, 0 for a ticket update
+     */
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    /**
+     * Gets the new availability of an updated parking spot.
+     * @return true if the spot became available
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Gets the ticket price.
+     * @return the ticket price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets the in time of a saved ticket.
+     * @return the in time, null for the other records
+     */
+    public Date getInTime() {
+        return inTime;
+    }
+
+    /**
+     * Gets the out time of the ticket.
+     * @return the out time, null while the vehicle is parked
+     */
+    public Date getOutTime() {
+        return outTime;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + (vehicleRegNumber == null ? "" : " " + vehicleRegNumber)
+                + (parkingNumber == 0 ? "" : " spot " + parkingNumber);
+    }
+}
@@ -0,0 +1,425 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.JournalRecordType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the write-behind mode, stored as segment files named after their first sequence number.
+ * Appends are acknowledged once on disk. A single writer thread takes every append waiting at that time,
+ * writes them with one system call and makes them durable with one fsync (group commit),
+ * so the fsync cost is shared by all the gates writing at once.
+ * Each record is written as its payload length, the CRC32 of its payload and the payload itself; a record cut short
+ * by a crash fails its length or checksum and is dropped when the journal is opened again.
+ */
+public class TicketJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketJournal");
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    // Type, sequence, parking type, parking number, available, price, in time, out time, plate length
+    private static final int FIXED_PAYLOAD_SIZE = 1 + 8 + 1 + 4 + 1 + 8 + 8 + 8 + 2;
+    private static final int MAX_GROUP_SIZE = 1024;
+
+    private final Path directory;
+    private final long segmentSize;
+    // Segment files by first sequence number; the last one is being written
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+    private final AtomicLong groupCommits = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+
+    // Only used by the writer thread once started
+    private long nextSequence = 1;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private Consumer<List<JournalRecord>> listener;
+
+    private Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Opens the journal stored in a directory, creating the directory if needed.
+     * A record left incomplete at the end of the last segment by a crash is truncated.
+     * @param directory the journal directory.
+     * @param segmentSize the size from which a new segment file is started.
+     * @throws IOException if the journal could not be read.
+     */
+    public TicketJournal(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        Map.Entry<Long, Path> lastSegment = segments.lastEntry();
+        if (lastSegment != null) {
+            long[] lastSequence = {0};
+            scan(lastSegment.getValue(), true, record -> lastSequence[0] = record.getSequence());
+            nextSequence = Math.max(lastSegment.getKey(), lastSequence[0] + 1);
+        }
+    }
+
+    /**
+     * Reads back the records of the journal following a given sequence number, in sequence order.
+     * Must be called before {@link #start}.
+     * @param afterSequence the sequence number of the last record not to return.
+     * @return the records following the given one.
+     * @throws IOException if the journal could not be read or a segment other than the last one is damaged.
+     */
+    public List<JournalRecord> readFrom(long afterSequence) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long nextSegment = segments.higherKey(segment.getKey());
+            if (nextSegment != null && nextSegment - 1 <= afterSequence) {
+                continue;
+            }
+            scan(segment.getValue(), false, record -> {
+                if (record.getSequence() > afterSequence) {
+                    records.add(record);
+                }
+            });
+        }
+        return records;
+    }
+
+    /**
+     * Starts a new segment and the writer thread.
+     * @param minimumSequence the lowest sequence number to assign, to never reuse a number already flushed.
+     * @param listener receives the records once durable, in sequence order, on the writer thread;
+     *                 blocking in the listener holds back the next appends.
+     * @throws IOException if the segment could not be created.
+     */
+    public synchronized void start(long minimumSequence, Consumer<List<JournalRecord>> listener) throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Journal already started");
+        }
+        this.listener = listener;
+        nextSequence = Math.max(nextSequence, minimumSequence);
+        openSegment(nextSequence);
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends records to the journal and waits until they are durable.
+     * The records are given consecutive sequence numbers.
+     * @param records the records to append.
+     * @return the sequence number of the last record.
+     * @throws IOException if the records could not be written, or the journal is closed.
+     */
+    public long append(JournalRecord... records) throws IOException {
+        PendingAppend append = new PendingAppend(records);
+        synchronized (this) {
+            if (closed || writer == null) {
+                throw new IOException("Journal is not open for writing");
+            }
+            IOException writeFailure = failure;
+            if (writeFailure != null) {
+                throw new IOException("Journal is unusable after a write failure", writeFailure);
+            }
+            pendingAppends.add(append);
+        }
+        try {
+            // Not interruptible: the records may be on disk already, the caller must know for sure
+            return append.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Deletes the segments whose records are all flushed to the database. The segment being written is kept.
+     * @param flushedSequence the sequence number of the last record flushed.
+     */
+    public void checkpoint(long flushedSequence) {
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long nextSegment = segments.higherKey(segment.getKey());
+            if (nextSegment == null || nextSegment - 1 > flushedSequence) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(segment.getValue());
+                segments.remove(segment.getKey());
+            } catch (IOException e) {
+                logger.warn("Unable to delete journal segment {}", segment.getValue(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of fsyncs done, each making a group of appends durable.
+     * @return the number of group commits.
+     */
+    public long getGroupCommitCount() {
+        return groupCommits.get();
+    }
+
+    /**
+     * Gets the number of records written since the journal was started.
+     * @return the number of records written.
+     */
+    public long getRecordCount() {
+        return recordsWritten.get();
+    }
+
+    /**
+     * Writes the appends already queued, then stops the writer thread and closes the segment.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error closing journal segment", e);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>();
+        // No append is queued once closed is set, so the queue is fully drained before exiting
+        while (!closed || !pendingAppends.isEmpty()) {
+            try {
+                PendingAppend first = pendingAppends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                pendingAppends.drainTo(group, MAX_GROUP_SIZE - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                logger.warn("Journal writer interrupted, ignoring");
+            } catch (RuntimeException e) {
+                fail(group, new IOException("Unable to write journal records", e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<PendingAppend> group) {
+        if (failure != null) {
+            fail(group, failure);
+            return;
+        }
+        List<JournalRecord> written = new ArrayList<>();
+        try {
+            buffer.clear();
+            for (PendingAppend append : group) {
+                for (JournalRecord record : append.records) {
+                    record.setSequence(nextSequence++);
+                    encode(record);
+                    written.add(record);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.error("Unable to write {} journal records, the journal is now read-only", written.size(), e);
+            failure = e;
+            fail(group, e);
+            return;
+        }
+        groupCommits.incrementAndGet();
+        recordsWritten.addAndGet(written.size());
+        try {
+            listener.accept(written);
+        } catch (RuntimeException e) {
+            // The records are durable all the same: they are flushed when the journal is recovered
+            logger.error("Journal listener failed on records {} to {}", written.get(0), written.get(written.size() - 1), e);
+        }
+        for (PendingAppend append : group) {
+            append.result.complete(append.records[append.records.length - 1].getSequence());
+        }
+        try {
+            if (channel.size() >= segmentSize) {
+                channel.close();
+                openSegment(nextSequence);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to start a new journal segment, the journal is now read-only", e);
+            failure = e;
+        }
+    }
+
+    private static void fail(List<PendingAppend> group, IOException e) {
+        for (PendingAppend append : group) {
+            append.result.completeExceptionally(e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        // A segment named after the next sequence number holds no complete record
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segments.put(firstSequence, file);
+        syncDirectory();
+    }
+
+    private void syncDirectory() {
+        // Makes the new file itself durable; not supported on every platform
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to sync journal directory {}", directory, e);
+        }
+    }
+
+    private void encode(JournalRecord record) {
+        byte[] plate = record.getVehicleRegNumber() == null ? null : record.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        int payloadSize = FIXED_PAYLOAD_SIZE + (plate == null ? 0 : plate.length);
+        ensureCapacity(HEADER_SIZE + payloadSize);
+        int start = buffer.position();
+        buffer.putInt(payloadSize).putInt(0);
+        // Enum ordinals are stored: new constants must be added at the end
+        buffer.put((byte) record.getType().ordinal());
+        buffer.putLong(record.getSequence());
+        buffer.put(record.getParkingType() == null ? -1 : (byte) record.getParkingType().ordinal());
+        buffer.putInt(record.getParkingNumber());
+        buffer.put(record.isAvailable() ? (byte) 1 : 0);
+        buffer.putDouble(record.getPrice());
+        buffer.putLong(record.getInTime() == null ? -1 : record.getInTime().getTime());
+        buffer.putLong(record.getOutTime() == null ? -1 : record.getOutTime().getTime());
+        buffer.putShort(plate == null ? -1 : (short) plate.length);
+        if (plate != null) {
+            buffer.put(plate);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start + HEADER_SIZE).limit(buffer.position()));
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    private static JournalRecord decode(ByteBuffer payload) {
+        JournalRecordType type = JournalRecordType.values()[payload.get()];
+        long sequence = payload.getLong();
+        byte parkingType = payload.get();
+        int parkingNumber = payload.getInt();
+        boolean available = payload.get() == 1;
+        double price = payload.getDouble();
+        long inTime = payload.getLong();
+        long outTime = payload.getLong();
+        short plateLength = payload.getShort();
+        String plate = null;
+        if (plateLength >= 0) {
+            byte[] plateBytes = new byte[plateLength];
+            payload.get(plateBytes);
+            plate = new String(plateBytes, StandardCharsets.UTF_8);
+        }
+        return new JournalRecord(sequence, type, plate, parkingType < 0 ? null : ParkingType.values()[parkingType],
+                parkingNumber, available, price, inTime < 0 ? null : new Date(inTime), outTime < 0 ? null : new Date(outTime));
+    }
+
+    private void scan(Path file, boolean truncateDamagedTail, Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel segment = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) segment.size());
+            while (content.hasRemaining()) {
+                if (segment.read(content) < 0) {
+                    break;
+                }
+            }
+            content.flip();
+            while (content.hasRemaining()) {
+                int start = content.position();
+                if (!readRecord(content, consumer)) {
+                    if (!truncateDamagedTail) {
+                        throw new IOException("Journal segment " + file + " is damaged at offset " + start);
+                    }
+                    logger.warn("Truncating journal segment {} at offset {}: incomplete record left by a crash", file, start);
+                    segment.truncate(start);
+                    segment.force(true);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean readRecord(ByteBuffer content, Consumer<JournalRecord> consumer) {
+        if (content.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        int payloadSize = content.getInt();
+        int checksum = content.getInt();
+        if (payloadSize < FIXED_PAYLOAD_SIZE || payloadSize > content.remaining()) {
+            return false;
+        }
+        ByteBuffer payload = content.slice().limit(payloadSize);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        consumer.accept(decode(payload));
+        content.position(content.position() + payloadSize);
+        return true;
+    }
+
+    /**
+     * Records appended by one call, waiting for the writer thread.
+     */
+    private static class PendingAppend {
+        private final JournalRecord[] records;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private PendingAppend(JournalRecord[] records) {
+            this.records = records;
+        }
+    }
+}
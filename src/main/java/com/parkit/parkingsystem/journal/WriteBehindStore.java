@@ -0,0 +1,365 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.JournalRecordType;
+import com.parkit.parkingsystem.dao.JournalDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind mode of the ticket and parking spot DAOs: their writes are appended to the {@link TicketJournal}
+ * and acknowledged once on disk, then written to the database in batches by a background thread,
+ * so a slow database no longer holds back the gates. Up to {@code capacity} records wait for the database;
+ * beyond that, appends wait for the flush to catch up.
+ * The database is behind the journal by the records waiting, so the DAOs must answer the parking decisions
+ * from their in-memory spot index and ticket caches. At startup, {@link #recover()} writes the records
+ * left in the journal by a crash before the caches are loaded.
+ * A record the database rejects, e.g. on a constraint violation, is appended to a dead-letter file
+ * before the checkpoint moves past it, so it can be fixed and written by hand.
+ */
+public class WriteBehindStore implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("WriteBehindStore");
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+    private final TicketJournal journal;
+    private final JournalDAO journalDAO;
+    private final Path deadLetterFile;
+    private final BlockingQueue<JournalRecord> unflushed;
+    // Tickets of each vehicle journaled but maybe not yet in the database; the lists are never modified, only replaced
+    private final ConcurrentHashMap<String, List<JournalRecord>> unflushedTickets = new ConcurrentHashMap<>();
+    // Held exclusively while flushed tickets are forgotten, so a ticket count still finds
+    // the tickets flushed after the database snapshot it read
+    private final ReadWriteLock forgetLock = new ReentrantReadWriteLock();
+
+    private int batchSize = 1000;
+    private long flushedSequence;
+    private Thread flusher;
+    // Set on close: failed flushes are no longer retried
+    private volatile boolean closing;
+    // Set once the journal is closed, so no record is added to the unflushed ones any more
+    private volatile boolean journalClosed;
+    private volatile boolean flusherStopped;
+
+    /**
+     * Creates a write-behind store over a journal.
+     * @param journal the opened journal.
+     * @param journalDAO the DAO writing the records to the database.
+     * @param capacity the maximum number of records waiting for the database.
+     * @param deadLetterFile the file the records rejected by the database are appended to.
+     */
+    public WriteBehindStore(TicketJournal journal, JournalDAO journalDAO, int capacity, Path deadLetterFile) {
+        this.journal = journal;
+        this.journalDAO = journalDAO;
+        this.deadLetterFile = deadLetterFile;
+        this.unflushed = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Writes to the database the journal records following its checkpoint, i.e. left unflushed by a crash.
+     * @return the number of records recovered.
+     * @throws IOException if the journal could not be read.
+     * @throws SQLException if the records could not be written.
+     */
+    public int recover() throws IOException, SQLException {
+        long checkpoint = journalDAO.getCheckpoint();
+        List<JournalRecord> records = journal.readFrom(checkpoint);
+        for (int from = 0; from < records.size(); from += batchSize) {
+            List<JournalRecord> batch = records.subList(from, Math.min(from + batchSize, records.size()));
+            journalDAO.apply(batch, batch.get(batch.size() - 1).getSequence());
+        }
+        flushedSequence = records.isEmpty() ? checkpoint : records.get(records.size() - 1).getSequence();
+        journal.checkpoint(flushedSequence);
+        if (!records.isEmpty()) {
+            logger.info("Recovered {} journal records, up to #{}", records.size(), flushedSequence);
+        }
+        return records.size();
+    }
+
+    /**
+     * Starts accepting writes and flushing them to the database.
+     * @throws IOException if the journal could not be started.
+     */
+    public void start() throws IOException {
+        journal.start(flushedSequence + 1, this::enqueue);
+        // The segment recovered from is complete now that a new one is started
+        journal.checkpoint(flushedSequence);
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends records to the journal, returning once they are durable.
+     * @param records the records to append.
+     * @throws IOException if the records could not be written.
+     */
+    public void append(JournalRecord... records) throws IOException {
+        for (JournalRecord record : records) {
+            if (record.getType() == JournalRecordType.SAVE_TICKET) {
+                unflushedTickets.compute(record.getVehicleRegNumber(), (vehicle, tickets) -> {
+                    List<JournalRecord> updated = (tickets == null) ? new ArrayList<>(1) : new ArrayList<>(tickets);
+                    updated.add(record);
+                    return updated;
+                });
+            }
+        }
+        try {
+            journal.append(records);
+        } catch (IOException e) {
+            forgetTickets(Arrays.asList(records));
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the tickets of a vehicle, those stored in the database and those not flushed yet.
+     * The database is not waited on for more than the count query: the count and the checkpoint are read
+     * in one snapshot, and the unflushed tickets are those past that checkpoint.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the number of tickets, or -1 if the database could not be read.
+     */
+    public int countTickets(String vehicleRegNumber) {
+        forgetLock.readLock().lock();
+        try {
+            long[] stored = journalDAO.countTickets(vehicleRegNumber);
+            long checkpoint = stored[1];
+            int count = (int) stored[0];
+            for (JournalRecord ticket : unflushedTickets.getOrDefault(vehicleRegNumber, Collections.emptyList())) {
+                // Sequence 0: not even written to the journal yet
+                if (ticket.getSequence() == 0 || ticket.getSequence() > checkpoint) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (SQLException ex) {
+            logger.error("Error counting the tickets of vehicle {}", vehicleRegNumber, ex);
+            return -1;
+        } finally {
+            forgetLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of records waiting to be written to the database.
+     * @return the number of unflushed records.
+     */
+    public int getBacklog() {
+        return unflushed.size();
+    }
+
+    /**
+     * Sets the maximum number of records written to the database in one transaction.
+     * @param batchSize the batch size.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Stops accepting writes and flushes the records waiting, in one attempt:
+     * records that could not be written are left in the journal for the next startup.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        journal.close();
+        journalClosed = true;
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void forgetTickets(List<JournalRecord> records) {
+        for (JournalRecord record : records) {
+            if (record.getType() == JournalRecordType.SAVE_TICKET) {
+                unflushedTickets.computeIfPresent(record.getVehicleRegNumber(), (vehicle, tickets) -> {
+                    List<JournalRecord> updated = new ArrayList<>(tickets);
+                    updated.remove(record);
+                    return updated.isEmpty() ? null : updated;
+                });
+            }
+        }
+    }
+
+    private void enqueue(List<JournalRecord> records) {
+        for (JournalRecord record : records) {
+            // Waits while the backlog is full, holding back the appends
+            while (!offer(record)) {
+                if (flusherStopped) {
+                    // Left in the journal for the next startup
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean offer(JournalRecord record) {
+        try {
+            return unflushed.offer(record, 100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // The record is offered again: skipping it would have the next flush move the checkpoint past it.
+            // The interrupt is not restored, it would close the journal segment being written.
+            logger.warn("Journal writer interrupted, ignoring");
+            return false;
+        }
+    }
+
+    private void flushLoop() {
+        List<JournalRecord> batch = new ArrayList<>(batchSize);
+        try {
+            flushUntilClosed(batch);
+        } finally {
+            flusherStopped = true;
+        }
+    }
+
+    private void flushUntilClosed(List<JournalRecord> batch) {
+        while (!journalClosed || !unflushed.isEmpty()) {
+            try {
+                JournalRecord first = unflushed.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                unflushed.drainTo(batch, batchSize - 1);
+                if (!flush(batch)) {
+                    logger.error("Stopped flushing with {} records left, they will be recovered from the journal at the next startup",
+                            batch.size() + unflushed.size());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Journal flusher interrupted, ignoring");
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean flush(List<JournalRecord> batch) {
+        try {
+            return writeRetrying(batch, batch.get(batch.size() - 1).getSequence());
+        } catch (SQLException ex) {
+            logger.error("Journal records {} to {} rejected by the database, writing them one by one",
+                    batch.get(0), batch.get(batch.size() - 1), ex);
+        }
+        for (JournalRecord record : batch) {
+            try {
+                if (!writeRetrying(Collections.singletonList(record), record.getSequence())) {
+                    return false;
+                }
+            } catch (SQLException ex) {
+                logger.error("Journal record {} rejected by the database, moving it to {}", record, deadLetterFile, ex);
+                try {
+                    writeDeadLetter(record, ex);
+                } catch (IOException deadLetterEx) {
+                    logger.error("Unable to move journal record {} to {}", record, deadLetterFile, deadLetterEx);
+                    return false;
+                }
+                try {
+                    if (!writeRetrying(Collections.emptyList(), record.getSequence())) {
+                        return false;
+                    }
+                } catch (SQLException skipEx) {
+                    logger.error("Unable to move the journal checkpoint past record {}", record, skipEx);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes records, retrying on failures other than data errors until written or closed.
+     * @return false if the store was closed before the records could be written.
+     * @throws SQLException if the database rejected the records.
+     */
+    private boolean writeRetrying(List<JournalRecord> records, long lastSequence) throws SQLException {
+        long retryDelay = 100;
+        while (true) {
+            try {
+                write(records, lastSequence);
+                return true;
+            } catch (SQLException ex) {
+                if (isDataError(ex)) {
+                    throw ex;
+                }
+                if (closing) {
+                    logger.error("Unable to flush {} journal records at shutdown", records.size(), ex);
+                    return false;
+                }
+                logger.error("Unable to flush {} journal records, retrying in {} ms", records.size(), retryDelay, ex);
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException e) {
+                    logger.warn("Journal flusher interrupted, ignoring");
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void writeDeadLetter(JournalRecord record, SQLException ex) throws IOException {
+        String line = String.join("\t", String.valueOf(record.getSequence()), String.valueOf(record.getType()),
+                String.valueOf(record.getVehicleRegNumber()), String.valueOf(record.getParkingType()),
+                String.valueOf(record.getParkingNumber()), String.valueOf(record.isAvailable()), String.valueOf(record.getPrice()),
+                record.getInTime() == null ? "null" : String.valueOf(record.getInTime().getTime()),
+                record.getOutTime() == null ? "null" : String.valueOf(record.getOutTime().getTime()),
+                String.valueOf(ex.getMessage()).replaceAll("\\s+", " "));
+        // Durable before the checkpoint moves past the record
+        Files.write(deadLetterFile, Collections.singletonList(line), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+
+    private void write(List<JournalRecord> records, long lastSequence) throws SQLException {
+        journalDAO.apply(records, lastSequence);
+        forgetLock.writeLock().lock();
+        try {
+            forgetTickets(records);
+        } finally {
+            forgetLock.writeLock().unlock();
+        }
+        flushedSequence = lastSequence;
+        journal.checkpoint(lastSequence);
+    }
+
+    /**
+     * Tells a record the database will never accept, e.g. a constraint violation, from a failure worth retrying.
+     */
+    private static boolean isDataError(SQLException ex) {
+        for (SQLException e = ex; e != null; e = e.getNextException()) {
+            String sqlState = e.getSQLState();
+            if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                return true;
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLNonTransientException && !(cause instanceof SQLNonTransientConnectionException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Locale;
+
+/**
+ * Count and latency percentiles of one operation, in microseconds, as exposed over JMX and in the metrics dump.
+ */
+public class LatencySnapshot {
+    private final String name;
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    /**
+     * Constructs a new LatencySnapshot.
+     * @param name the name of the operation
+     * @param count the number of recorded latencies
+     * @param meanMicros the mean latency
+     * @param p50Micros the median latency
+     * @param p90Micros the 90th percentile
+     * @param p99Micros the 99th percentile
+     * @param p999Micros the 99.9th percentile
+     * @param maxMicros the maximum latency
+     */
+    @ConstructorProperties({"name", "count", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public LatencySnapshot(String name, long count, double meanMicros, double p50Micros, double p90Micros,
+                           double p99Micros, double p999Micros, double maxMicros) {
+        this.name = name;
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Gets the name of the operation.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean latency.
+     * @return the mean latency in microseconds
+     */
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    /**
+     * Gets the median latency.
+     * @return the median latency in microseconds
+     */
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    /**
+     * Gets the 90th percentile of the latencies.
+     * @return the 90th percentile in microseconds
+     */
+    public double getP90Micros() {
+        return p90Micros;
+    }
+
+    /**
+     * Gets the 99th percentile of the latencies.
+     * @return the 99th percentile in microseconds
+     */
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * Gets the 99.9th percentile of the latencies.
+     * @return the 99.9th percentile in microseconds
+     */
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    /**
+     * Gets the maximum latency.
+     * @return the maximum latency in microseconds
+     */
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-48s count=%-9d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                name, count, meanMicros, p50Micros, p90Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
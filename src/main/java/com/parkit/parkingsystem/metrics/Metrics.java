@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registry of the latency histograms of the application, one per measured operation, named
+ * {@code <Class>.<operation>}. Classes look their histograms up once, into static fields,
+ * and record every call into them, typically through {@link #time(LatencyHistogram, TimedCall)}.
+ */
+public class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final String OBJECT_NAME = "com.parkit.parkingsystem:type=Metrics";
+
+    // Sorted by name, so the dump groups the operations of each class
+    private static final ConcurrentNavigableMap<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets the histogram of an operation, creating it on first use.
+     * @param name the operation name.
+     * @return the histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Makes a call and records its latency, whether it returns or throws.
+     * @param histogram the histogram of the operation.
+     * @param call the call to time.
+     * @param <T> the type of the value returned.
+     * @param <E> the type of the exception thrown.
+     * @return the value returned by the call.
+     * @throws E if the call failed.
+     */
+    public static <T, E extends Exception> T time(LatencyHistogram histogram, TimedCall<T, E> call) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            histogram.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Makes a call returning nothing and records its latency, whether it returns or throws.
+     * @param histogram the histogram of the operation.
+     * @param run the call to time.
+     * @param <E> the type of the exception thrown.
+     * @throws E if the call failed.
+     */
+    public static <E extends Exception> void time(LatencyHistogram histogram, TimedRun<E> run) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            run.run();
+        } finally {
+            histogram.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Takes a snapshot of every histogram.
+     * @return the snapshots, by operation name.
+     */
+    public static List<LatencySnapshot> snapshot() {
+        List<LatencySnapshot> snapshots = new ArrayList<>(histograms.size());
+        for (LatencyHistogram histogram : histograms.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Formats the histograms that recorded something, one per line.
+     * @return the metrics dump, empty if nothing was recorded.
+     */
+    public static String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (LatencyHistogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+                dump.append(histogram.snapshot()).append(System.lineSeparator());
+            }
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Forgets every recorded latency.
+     */
+    public static void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Registers the metrics MXBean with the platform MBean server, once.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBeanImpl(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            logger.debug("Metrics MBean already registered");
+        } catch (JMException e) {
+            logger.error("Unable to register the metrics MBean", e);
+        }
+    }
+
+    private static class MetricsMBeanImpl implements MetricsMXBean {
+        @Override
+        public List<LatencySnapshot> getLatencies() {
+            return snapshot();
+        }
+
+        @Override
+        public String dump() {
+            return Metrics.dump();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
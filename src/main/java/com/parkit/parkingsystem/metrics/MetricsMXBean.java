@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link Metrics}, registered as {@code com.parkit.parkingsystem:type=Metrics}.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Gets the latencies of every measured operation.
+     * @return a snapshot of each histogram, by operation name.
+     */
+    List<LatencySnapshot> getLatencies();
+
+    /**
+     * Formats the latencies of every measured operation, one per line.
+     * @return the metrics dump.
+     */
+    String dump();
+
+    /**
+     * Forgets every recorded latency.
+     */
+    void reset();
+}
@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically logs the {@link Metrics} dump, at INFO level on the {@code Metrics} logger.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Starts dumping the metrics periodically, in a background thread.
+     * @param periodMillis the delay between two dumps.
+     */
+    public MetricsReporter(long periodMillis) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs the metrics dump now, if anything was recorded.
+     */
+    public void report() {
+        String dump = Metrics.dump();
+        if (!dump.isEmpty()) {
+            logger.info("Latencies:{}{}", System.lineSeparator(), dump);
+        }
+    }
+
+    /**
+     * Logs a last dump and stops the reporter.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+}
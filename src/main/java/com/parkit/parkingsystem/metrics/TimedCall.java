@@ -0,0 +1,17 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * A call returning a value, timed by {@link Metrics#time(LatencyHistogram, TimedCall)}.
+ * @param <T> the type of the value returned.
+ * @param <E> the type of the exception thrown, e.g. {@code SQLException} for a DAO call.
+ */
+@FunctionalInterface
+public interface TimedCall<T, E extends Exception> {
+
+    /**
+     * Makes the call.
+     * @return the value returned.
+     * @throws E if the call failed.
+     */
+    T call() throws E;
+}
@@ -0,0 +1,15 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * A call returning nothing, timed by {@link Metrics#time(LatencyHistogram, TimedRun)}.
+ * @param <E> the type of the exception thrown, e.g. {@code SQLException} for a DAO call.
+ */
+@FunctionalInterface
+public interface TimedRun<E extends Exception> {
+
+    /**
+     * Makes the call.
+     * @throws E if the call failed.
+     */
+    void run() throws E;
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+
+import java.util.Date;
+
+/**
+ * Outcome of the entry of a vehicle into the parking.
+ */
+public class EntryResult {
+    private final GateStatus status;
+    private final String vehicleRegNumber;
+    private final Ticket ticket;
+    private final boolean recurringUser;
+
+    /**
+     * Constructs a new EntryResult.
+     * @param status the outcome of the entry
+     * @param vehicleRegNumber the vehicle registration number
+     * @param ticket the ticket saved for the vehicle, or null if the vehicle was not parked
+     * @param recurringUser true if the vehicle already parked here before and will get the discount
+     */
+    public EntryResult(GateStatus status, String vehicleRegNumber, Ticket ticket, boolean recurringUser) {
+        this.status = status;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.ticket = ticket;
+        this.recurringUser = recurringUser;
+    }
+
+    /**
+     * Creates the result of an entry that did not park the vehicle.
+     * @param status the reason why the vehicle was not parked
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the entry result
+     */
+    public static EntryResult rejected(GateStatus status, String vehicleRegNumber) {
+        return new EntryResult(status, vehicleRegNumber, null, false);
+    }
+
+    /**
+     * Gets the outcome of the entry.
+     * @return the status
+     */
+    public GateStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the vehicle was parked.
+     * @return true if the status is OK
+     */
+    public boolean isSuccess() {
+        return status == GateStatus.OK;
+    }
+
+    /**
+     * Gets the vehicle registration number.
+     * @return the vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the ticket saved for the vehicle.
+     * @return the ticket, or null if the vehicle was not parked
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Gets the parking spot allocated to the vehicle.
+     * @return the parking spot, or null if the vehicle was not parked
+     */
+    public ParkingSpot getParkingSpot() {
+        return ticket == null ? null : ticket.getParkingSpot();
+    }
+
+    /**
+     * Gets the recorded in time of the vehicle.
+     * @return the in time, or null if the vehicle was not parked
+     */
+    public Date getInTime() {
+        return ticket == null ? null : ticket.getInTime();
+    }
+
+    /**
+     * Tells whether the vehicle already parked here before and will get the recurring user discount.
+     * @return true for a recurring user
+     */
+    public boolean isRecurringUser() {
+        return recurringUser;
+    }
+
+    @Override
+    public String toString() {
+        return "EntryResult{status=" + status + ", vehicleRegNumber=" + vehicleRegNumber
+                + (ticket == null ? "" : ", spot=" + ticket.getParkingSpot().getId() + ", inTime=" + ticket.getInTime())
+                + ", recurringUser=" + recurringUser + "}";
+    }
+}
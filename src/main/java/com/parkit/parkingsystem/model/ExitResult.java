@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+
+import java.util.Date;
+
+/**
+ * Outcome of the exit of a vehicle from the parking.
+ */
+public class ExitResult {
+    private final GateStatus status;
+    private final String vehicleRegNumber;
+    private final Ticket ticket;
+    private final boolean discount;
+
+    /**
+     * Constructs a new ExitResult.
+     * @param status the outcome of the exit
+     * @param vehicleRegNumber the vehicle registration number
+     * @param ticket the closed ticket of the vehicle, or null if no open ticket was found
+     * @param discount true if the recurring user discount was applied
+     */
+    public ExitResult(GateStatus status, String vehicleRegNumber, Ticket ticket, boolean discount) {
+        this.status = status;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.ticket = ticket;
+        this.discount = discount;
+    }
+
+    /**
+     * Creates the result of an exit that could not be recorded.
+     * @param status the reason why the exit was not recorded
+     * @param vehicleRegNumber the vehicle registration number
+     * @return the exit result
+     */
+    public static ExitResult rejected(GateStatus status, String vehicleRegNumber) {
+        return new ExitResult(status, vehicleRegNumber, null, false);
+    }
+
+    /**
+     * Gets the outcome of the exit.
+     * @return the status
+     */
+    public GateStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the exit was recorded.
+     * @return true if the status is OK
+     */
+    public boolean isSuccess() {
+        return status == GateStatus.OK;
+    }
+
+    /**
+     * Gets the vehicle registration number.
+     * @return the vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the closed ticket of the vehicle.
+     * @return the ticket, or null if no open ticket was found
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Gets the parking spot freed by the vehicle.
+     * @return the parking spot, or null if no open ticket was found
+     */
+    public ParkingSpot getParkingSpot() {
+        return ticket == null ? null : ticket.getParkingSpot();
+    }
+
+    /**
+     * Gets the recorded in time of the vehicle.
+     * @return the in time, or null if no open ticket was found
+     */
+    public Date getInTime() {
+        return ticket == null ? null : ticket.getInTime();
+    }
+
+    /**
+     * Gets the recorded out time of the vehicle.
+     * @return the out time, or null if no open ticket was found
+     */
+    public Date getOutTime() {
+        return ticket == null ? null : ticket.getOutTime();
+    }
+
+    /**
+     * Gets the fare to pay.
+     * @return the fare, 0 if no open ticket was found
+     */
+    public double getFare() {
+        return ticket == null ? 0 : ticket.getPrice();
+    }
+
+    /**
+     * Tells whether the recurring user discount was applied.
+     * @return true if the fare is discounted
+     */
+    public boolean isDiscount() {
+        return discount;
+    }
+
+    /**
+     * Gets the duration of the stay in minutes.
+     * @return the duration, 0 if no open ticket was found
+     */
+    public long getDurationMinutes() {
+        if (ticket == null || ticket.getOutTime() == null) {
+            return 0;
+        }
+        return (ticket.getOutTime().getTime() - ticket.getInTime().getTime()) / 60000;
+    }
+
+    @Override
+    public String toString() {
+        return "ExitResult{status=" + status + ", vehicleRegNumber=" + vehicleRegNumber
+                + (ticket == null ? "" : ", spot=" + ticket.getParkingSpot().getId() + ", inTime=" + ticket.getInTime()
+                + ", outTime=" + ticket.getOutTime() + ", fare=" + ticket.getPrice())
+                + ", discount=" + discount + "}";
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/**
+ * Plate read recorded by a gate camera: a vehicle entering or leaving the parking at a given time.
+ */
+public class GateEvent {
+    private final Date time;
+    private final GateEventType type;
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+
+    /**
+     * Constructs a new GateEvent.
+     * @param time the time the plate was read
+     * @param type whether the vehicle entered or left
+     * @param vehicleRegNumber the vehicle registration number
+     * @param parkingType the type of the vehicle, only known for entries
+     */
+    public GateEvent(Date time, GateEventType type, String vehicleRegNumber, ParkingType parkingType) {
+        this.time = time;
+        this.type = type;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+    }
+
+    /**
+     * Gets the time the plate was read.
+     * @return the event time
+     */
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Gets whether the vehicle entered or left.
+     * @return the event type
+     */
+    public GateEventType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the vehicle registration number.
+     * @return the vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the type of the vehicle.
+     * @return the parking type, null for exits
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    @Override
+    public String toString() {
+        return time.toInstant() + " " + type + " " + vehicleRegNumber + (parkingType == null ? "" : " " + parkingType);
+    }
+}
@@ -2,6 +2,8 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+import java.util.Objects;
+
 /**
  * Represents a parking spot within a parking system.
  */
@@ -9,6 +11,7 @@ public class ParkingSpot {
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String lotId;
 
     /**
      * Constructs a new ParkingSpot instance.
@@ -70,6 +73,22 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    /**
+     * Retrieves the lot of the parking spot.
+     * @return the lot identifier, null if not set
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Sets the lot of the parking spot, spot numbers being unique within a lot.
+     * @param lotId the lot identifier
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
     /**
      * Indicates whether some other object is "equal to" this one.
      * @param o the reference object with which to compare
@@ -80,7 +99,7 @@ public class ParkingSpot {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && Objects.equals(lotId, that.lotId);
     }
 
     /**
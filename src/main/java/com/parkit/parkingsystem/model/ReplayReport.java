@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of the replay of a camera event log.
+ */
+public class ReplayReport {
+    private final long eventsRead;
+    private final long eventsApplied;
+    private final long eventsRejected;
+    private final long eventsFailed;
+    private final long malformedLines;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a new ReplayReport.
+     * @param eventsRead the number of events read from the log
+     * @param eventsApplied the number of events recorded in the database
+     * @param eventsRejected the number of events refused by the parking, e.g. the exit of a vehicle not parked
+     * @param eventsFailed the number of events lost to a database error
+     * @param malformedLines the number of lines of the log that could not be parsed
+     * @param elapsedMillis the duration of the run in milliseconds
+     */
+    public ReplayReport(long eventsRead, long eventsApplied, long eventsRejected, long eventsFailed,
+                        long malformedLines, long elapsedMillis) {
+        this.eventsRead = eventsRead;
+        this.eventsApplied = eventsApplied;
+        this.eventsRejected = eventsRejected;
+        this.eventsFailed = eventsFailed;
+        this.malformedLines = malformedLines;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the number of events read from the log.
+     * @return the number of events read
+     */
+    public long getEventsRead() {
+        return eventsRead;
+    }
+
+    /**
+     * Gets the number of events recorded in the database.
+     * @return the number of events applied
+     */
+    public long getEventsApplied() {
+        return eventsApplied;
+    }
+
+    /**
+     * Gets the number of events refused by the parking, e.g. the exit of a vehicle not parked.
+     * @return the number of events rejected
+     */
+    public long getEventsRejected() {
+        return eventsRejected;
+    }
+
+    /**
+     * Gets the number of events lost to a database error.
+     * @return the number of events failed
+     */
+    public long getEventsFailed() {
+        return eventsFailed;
+    }
+
+    /**
+     * Gets the number of lines of the log that could not be parsed.
+     * @return the number of malformed lines
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Gets the duration of the run.
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the number of events read per second.
+     * @return the throughput in events per second
+     */
+    public double getEventsPerSecond() {
+        return elapsedMillis == 0 ? eventsRead : eventsRead * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Returns a one-line summary of the run, suitable for logging.
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("read=%d, applied=%d, rejected=%d, failed=%d, malformed=%d, elapsed=%dms, throughput=%.0f events/s",
+                eventsRead, eventsApplied, eventsRejected, eventsFailed, malformedLines, elapsedMillis, getEventsPerSecond());
+    }
+}
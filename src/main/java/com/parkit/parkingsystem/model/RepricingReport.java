@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a batch repricing of closed tickets.
+ */
+public class RepricingReport {
+    private final long ticketsRead;
+    private final long ticketsUpdated;
+    private final long ticketsFailed;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a new RepricingReport.
+     * @param ticketsRead the number of tickets read from the database
+     * @param ticketsUpdated the number of tickets whose price changed and was written back
+     * @param ticketsFailed the number of tickets that could not be written back
+     * @param elapsedMillis the duration of the run in milliseconds
+     */
+    public RepricingReport(long ticketsRead, long ticketsUpdated, long ticketsFailed, long elapsedMillis) {
+        this.ticketsRead = ticketsRead;
+        this.ticketsUpdated = ticketsUpdated;
+        this.ticketsFailed = ticketsFailed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the number of tickets read from the database.
+     * @return the number of tickets read
+     */
+    public long getTicketsRead() {
+        return ticketsRead;
+    }
+
+    /**
+     * Gets the number of tickets whose price changed and was written back.
+     * @return the number of tickets updated
+     */
+    public long getTicketsUpdated() {
+        return ticketsUpdated;
+    }
+
+    /**
+     * Gets the number of tickets that could not be written back.
+     * @return the number of tickets failed
+     */
+    public long getTicketsFailed() {
+        return ticketsFailed;
+    }
+
+    /**
+     * Gets the duration of the run.
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the number of tickets read per second.
+     * @return the throughput in tickets per second
+     */
+    public double getTicketsPerSecond() {
+        return elapsedMillis == 0 ? ticketsRead : ticketsRead * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Returns a one-line summary of the run, suitable for logging.
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("read=%d, updated=%d, failed=%d, elapsed=%dms, throughput=%.0f tickets/s",
+                ticketsRead, ticketsUpdated, ticketsFailed, elapsedMillis, getTicketsPerSecond());
+    }
+}
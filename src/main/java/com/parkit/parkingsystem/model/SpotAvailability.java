@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Number of available and total parking spots of a type.
+ */
+public class SpotAvailability {
+    private final ParkingType parkingType;
+    private final int available;
+    private final int total;
+
+    /**
+     * Constructs a new SpotAvailability.
+     * @param parkingType the type of the parking spots
+     * @param available the number of available spots
+     * @param total the total number of spots
+     */
+    public SpotAvailability(ParkingType parkingType, int available, int total) {
+        this.parkingType = parkingType;
+        this.available = available;
+        this.total = total;
+    }
+
+    /**
+     * Gets the type of the parking spots.
+     * @return the parking type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets the number of available spots.
+     * @return the number of available spots
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Gets the total number of spots.
+     * @return the total number of spots
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return parkingType + ": " + available + "/" + total + " available";
+    }
+}
@@ -13,9 +13,11 @@ public class Ticket {
     private String vehicleRegNumber;
     private double price;
     private String priceText;  // New field to store the price as text with EUR symbol
+    private boolean priceTextPending; // The price text is only formatted when first read
     private Date inTime;
     private Date outTime;
     private ParkingType parkingType; // New field for parking type
+    private String lotId;
 
     /**
      * Gets the unique identifier for the ticket.
@@ -81,11 +83,26 @@ public class Ticket {
         this.price = price;
     }
 
+    /**
+     * Sets the price charged for the parking from an amount in cents.
+     * The price text is formatted lazily, the first time it is read.
+     * @param priceInCents the new price, in cents
+     */
+    public void setPriceInCents(long priceInCents) {
+        this.price = priceInCents / 100.0;
+        this.priceText = null;
+        this.priceTextPending = true;
+    }
+
     /**
      * Gets the price as a text string, typically formatted with currency.
      * @return the price text
      */
     public String getPriceText() {
+        if (priceTextPending) {
+            priceText = String.format("%.2f EUR", price);
+            priceTextPending = false;
+        }
         return priceText;
     }
 
@@ -95,6 +112,7 @@ public class Ticket {
      */
     public void setPriceText(String priceText) {
         this.priceText = priceText;
+        this.priceTextPending = false;
     }
 
     /**
@@ -144,4 +162,20 @@ public class Ticket {
     public void setParkingType(ParkingType parkingType) {
         this.parkingType = parkingType;
     }
- }
\ No newline at end of file
+ 
+    /**
+     * Gets the lot the ticket was issued in.
+     * @return the lot identifier, null if not set
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Sets the lot the ticket was issued in.
+     * @param lotId the lot identifier
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/**
+ * Selects the tickets to export: an in time range, and optionally a parking type and a vehicle.
+ */
+public class TicketExportFilter {
+    private Date from;
+    private Date to;
+    private ParkingType parkingType;
+    private String vehicleRegNumber;
+
+    /**
+     * Constructs a new TicketExportFilter on an in time range.
+     * @param from the start of the in time range, inclusive
+     * @param to the end of the in time range, exclusive
+     */
+    public TicketExportFilter(Date from, Date to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Gets the start of the in time range, inclusive.
+     * @return the start of the range
+     */
+    public Date getFrom() {
+        return from;
+    }
+
+    /**
+     * Sets the start of the in time range, inclusive.
+     * @param from the start of the range
+     */
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    /**
+     * Gets the end of the in time range, exclusive.
+     * @return the end of the range
+     */
+    public Date getTo() {
+        return to;
+    }
+
+    /**
+     * Sets the end of the in time range, exclusive.
+     * @param to the end of the range
+     */
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    /**
+     * Gets the parking type of the exported tickets.
+     * @return the parking type, or null to export every type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Sets the parking type of the exported tickets.
+     * @param parkingType the parking type, or null to export every type
+     */
+    public void setParkingType(ParkingType parkingType) {
+        this.parkingType = parkingType;
+    }
+
+    /**
+     * Gets the registration number of the vehicle whose tickets are exported.
+     * @return the registration number, or null to export every vehicle
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Sets the registration number of the vehicle whose tickets are exported.
+     * @param vehicleRegNumber the registration number, or null to export every vehicle
+     */
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+}
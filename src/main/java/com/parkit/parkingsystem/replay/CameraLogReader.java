@@ -0,0 +1,158 @@
+package com.parkit.parkingsystem.replay;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Reads the plate reads buffered by the gate cameras during a network outage.
+ * The file holds one event per line: {@code <time>,<IN|OUT>,<plate>[,<CAR|BIKE>]}, the vehicle type being required
+ * for entries. Times are epoch milliseconds or ISO-8601, with an offset or else in the system time zone.
+ * Blank lines and lines starting with {@code #} are skipped; malformed lines are logged and skipped.
+ * The file is memory-mapped window by window, so files larger than the heap are read without copying them.
+ */
+public class CameraLogReader {
+
+    private static final Logger logger = LogManager.getLogger("CameraLogReader");
+
+    private final Path file;
+    private int windowSize = 64 * 1024 * 1024;
+    private long malformedLines;
+
+    /**
+     * Creates a reader of the given camera log file.
+     * @param file the camera log file.
+     */
+    public CameraLogReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads every event of the file, in file order.
+     * @param consumer the consumer receiving each event.
+     * @return the number of events read, malformed lines excluded.
+     * @throws IOException if the file could not be read, or holds a line longer than the mapping window.
+     */
+    public long read(Consumer<GateEvent> consumer) throws IOException {
+        long events = 0;
+        long lineNumber = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) == '\n') {
+                        events += parseLine(window, lineStart, i, ++lineNumber, consumer);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lastWindow) {
+                    if (lineStart < length) {
+                        events += parseLine(window, lineStart, length, ++lineNumber, consumer);
+                    }
+                    position = size;
+                } else if (lineStart == 0) {
+                    throw new IOException("Line " + (lineNumber + 1) + " of " + file + " is longer than " + windowSize + " bytes");
+                } else {
+                    // The partial line at the end of the window is read again at the start of the next one
+                    position += lineStart;
+                }
+            }
+        }
+        return events;
+    }
+
+    private int parseLine(MappedByteBuffer window, int start, int end, long lineNumber, Consumer<GateEvent> consumer) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        String line = new String(bytes, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+            return 0;
+        }
+        GateEvent event;
+        try {
+            event = parseEvent(line);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            malformedLines++;
+            logger.warn("Skipping malformed line {} of {}: {} ({})", lineNumber, file, line, e.getMessage());
+            return 0;
+        }
+        consumer.accept(event);
+        return 1;
+    }
+
+    private static GateEvent parseEvent(String line) {
+        String[] fields = line.split(",");
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("expected <time>,<IN|OUT>,<plate>[,<type>]");
+        }
+        Date time = parseTime(fields[0].trim());
+        String plate = fields[2].trim();
+        if (plate.isEmpty()) {
+            throw new IllegalArgumentException("missing plate");
+        }
+        switch (fields[1].trim().toUpperCase()) {
+            case "IN":
+            case "ENTRY":
+                if (fields.length < 4) {
+                    throw new IllegalArgumentException("missing vehicle type");
+                }
+                return new GateEvent(time, GateEventType.ENTRY, plate, ParkingType.valueOf(fields[3].trim().toUpperCase()));
+            case "OUT":
+            case "EXIT":
+                return new GateEvent(time, GateEventType.EXIT, plate, null);
+            default:
+                throw new IllegalArgumentException("unknown event type " + fields[1]);
+        }
+    }
+
+    private static Date parseTime(String time) {
+        if (!time.isEmpty() && time.chars().allMatch(Character::isDigit)) {
+            return new Date(Long.parseLong(time));
+        }
+        String isoTime = time.replace(' ', 'T');
+        if (isoTime.endsWith("Z")) {
+            return Date.from(Instant.parse(isoTime));
+        }
+        if (isoTime.lastIndexOf('+') > 0 || isoTime.lastIndexOf('-') > isoTime.indexOf('T')) {
+            return Date.from(OffsetDateTime.parse(isoTime).toInstant());
+        }
+        return Date.from(LocalDateTime.parse(isoTime).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Gets the number of malformed lines skipped by the last reads.
+     * @return the number of malformed lines
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Sets the size of the memory-mapped window, which bounds the length of a line.
+     * @param windowSize the window size in bytes
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+}
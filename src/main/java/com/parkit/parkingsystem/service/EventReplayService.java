@@ -0,0 +1,156 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.ReplayReport;
+import com.parkit.parkingsystem.replay.CameraLogReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays the entries and exits buffered by the gate cameras during a network outage, keeping their recorded times.
+ * Events are applied in file order through the {@link ParkingService}, one database transaction per batch of events
+ * instead of one per DAO call. A batch whose commit fails is rolled back as a whole and the caches are reloaded.
+ * On the in-memory store, which has no transactions, events are applied one by one.
+ */
+public class EventReplayService {
+
+    private static final Logger logger = LogManager.getLogger("EventReplayService");
+
+    private final ParkingSystem parkingSystem;
+
+    private int batchSize = 500;
+    private long progressInterval = 100000;
+
+    /**
+     * Creates a replay service applying events to the given parking system.
+     * @param parkingSystem the parking system.
+     */
+    public EventReplayService(ParkingSystem parkingSystem) {
+        this.parkingSystem = parkingSystem;
+    }
+
+    /**
+     * Replays every event of a camera log file.
+     * @param file the camera log file.
+     * @return the report of the run.
+     * @throws IOException if the file could not be read.
+     */
+    public ReplayReport replay(Path file) throws IOException {
+        logger.info("Replaying camera events from {}", file);
+        long start = System.currentTimeMillis();
+        CameraLogReader reader = new CameraLogReader(file);
+        List<GateEvent> batch = new ArrayList<>(batchSize);
+        // applied, rejected, failed
+        long[] counts = new long[3];
+        long read = reader.read(event -> {
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                applyBatch(batch, counts, start);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            applyBatch(batch, counts, start);
+        }
+        ReplayReport report = new ReplayReport(read, counts[0], counts[1], counts[2], reader.getMalformedLines(),
+                System.currentTimeMillis() - start);
+        logger.info("Replay done: {}", report);
+        return report;
+    }
+
+    private void applyBatch(List<GateEvent> batch, long[] counts, long start) {
+        TicketDAO ticketDAO = parkingSystem.getTicketDAO();
+        if (ticketDAO == null) {
+            applyEach(batch, counts, start);
+            return;
+        }
+        DataBaseConfig dataBaseConfig = ticketDAO.dataBaseConfig;
+        long applied = 0;
+        long rejected = 0;
+        long failed = 0;
+        try {
+            dataBaseConfig.beginTransaction();
+            for (GateEvent event : batch) {
+                GateStatus status = apply(event);
+                if (status == GateStatus.OK) {
+                    applied++;
+                } else if (status == GateStatus.ERROR) {
+                    failed++;
+                } else {
+                    rejected++;
+                    logger.debug("Event {} rejected: {}", event, status);
+                }
+            }
+            dataBaseConfig.commitTransaction();
+        } catch (SQLException | RuntimeException ex) {
+            logger.error("Unable to replay a batch of {} events starting with {}", batch.size(), batch.get(0), ex);
+            dataBaseConfig.rollbackTransaction();
+            // The caches were updated as if the batch had been committed
+            parkingSystem.reloadCaches();
+            applied = 0;
+            rejected = 0;
+            failed = batch.size();
+        }
+        long processedBefore = counts[0] + counts[1] + counts[2];
+        counts[0] += applied;
+        counts[1] += rejected;
+        counts[2] += failed;
+        reportProgress(processedBefore, processedBefore + batch.size(), start);
+    }
+
+    private void applyEach(List<GateEvent> batch, long[] counts, long start) {
+        long processedBefore = counts[0] + counts[1] + counts[2];
+        for (GateEvent event : batch) {
+            GateStatus status = apply(event);
+            if (status == GateStatus.OK) {
+                counts[0]++;
+            } else if (status == GateStatus.ERROR) {
+                counts[2]++;
+            } else {
+                counts[1]++;
+                logger.debug("Event {} rejected: {}", event, status);
+            }
+        }
+        reportProgress(processedBefore, processedBefore + batch.size(), start);
+    }
+
+    private GateStatus apply(GateEvent event) {
+        if (event.getType() == GateEventType.ENTRY) {
+            return parkingSystem.getParkingService().enter(event.getVehicleRegNumber(), event.getParkingType(), event.getTime()).getStatus();
+        }
+        return parkingSystem.getParkingService().exit(event.getVehicleRegNumber(), event.getTime()).getStatus();
+    }
+
+    private void reportProgress(long processedBefore, long processed, long start) {
+        if (processed / progressInterval != processedBefore / progressInterval) {
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            logger.info("Replayed {} events, {} events/s", processed, processed * 1000 / elapsed);
+        }
+    }
+
+    /**
+     * Sets the number of events applied in one database transaction.
+     * @param batchSize the batch size.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of events between two progress log lines.
+     * @param progressInterval the progress interval.
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+}
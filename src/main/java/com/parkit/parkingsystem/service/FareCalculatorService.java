@@ -3,6 +3,8 @@ package com.parkit.parkingsystem.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,6 +12,7 @@ import org.apache.logging.log4j.Logger;
 public class FareCalculatorService {
 
     private static final Logger logger = LogManager.getLogger("FareCalculatorService");
+    private static final LatencyHistogram calculateFareLatency = Metrics.histogram("FareCalculatorService.calculateFare");
 
     /**
      * Calculates the fare for a given ticket without applying any discounts.
@@ -32,8 +35,12 @@ public class FareCalculatorService {
      * @throws IllegalArgumentException if the out time of the ticket is before the in time or if it is null.
      */
     public void calculateFare(Ticket ticket, boolean discount) {
+        Metrics.time(calculateFareLatency, () -> doCalculateFare(ticket, discount));
+    }
+
+    private void doCalculateFare(Ticket ticket, boolean discount) {
         if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
-            logger.error("Out time provided is incorrect: " + ticket.getOutTime());
+            logger.error("Out time provided is incorrect: {}", ticket.getOutTime());
             throw new IllegalArgumentException("Out time provided is incorrect: " + ticket.getOutTime());
         }
 
@@ -43,7 +50,7 @@ public class FareCalculatorService {
 
         if (durationInMinutes <= 30) {
             ticket.setPrice(0); // First 30 minutes are free
-            logger.info("Parking duration is less than or equal to 30 minutes. No charge.");
+            logger.debug("Parking duration is less than or equal to 30 minutes. No charge.");
             return;
         }
 
@@ -75,7 +82,7 @@ public class FareCalculatorService {
             price = price.setScale(2, RoundingMode.HALF_UP);
             ticket.setPrice(price.doubleValue());
             ticket.setPriceText(String.format("%.2f EUR", price.doubleValue())); // Set the formatted price with EUR
-            logger.info("Calculated price: " + price.doubleValue());
+            logger.debug("Calculated price: {}", price);
         } else {
             logger.error("Parking spot or type is null");
             throw new IllegalArgumentException("Parking spot or type is null");
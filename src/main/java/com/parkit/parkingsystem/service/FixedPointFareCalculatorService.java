@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+
+/**
+ * Fare calculator working on whole cents with integer arithmetic, for batch rebilling of many tickets.
+ * It gives exactly the same prices as {@link FareCalculatorService} without allocating any BigDecimal,
+ * and leaves the price text to be formatted by the ticket only if it is ever read.
+ */
+public class FixedPointFareCalculatorService extends FareCalculatorService {
+
+    private static final Logger logger = LogManager.getLogger("FixedPointFareCalculatorService");
+    private static final LatencyHistogram calculateFareLatency = Metrics.histogram("FixedPointFareCalculatorService.calculateFare");
+
+    private static final long FREE_MINUTES = 30;
+    private static final long DISCOUNTED_PERCENT = 95;
+
+    // Hourly rates as an unscaled integer and a power of ten, e.g. 1.5 is 15 / 10
+    private static final long CAR_RATE_UNITS = unscaledRate(Fare.CAR_RATE_PER_HOUR);
+    private static final long CAR_RATE_DIVISOR = rateDivisor(Fare.CAR_RATE_PER_HOUR);
+    private static final long BIKE_RATE_UNITS = unscaledRate(Fare.BIKE_RATE_PER_HOUR);
+    private static final long BIKE_RATE_DIVISOR = rateDivisor(Fare.BIKE_RATE_PER_HOUR);
+
+    /**
+     * Calculates the fare for a given ticket, optionally applying the 5% recurring user discount.
+     * @param ticket the ticket for which to calculate the fare
+     * @param discount true if a discount should be applied, false otherwise
+     * @throws IllegalArgumentException if the out time of the ticket is before the in time or if it is null,
+     * or if the parking spot or its type is missing.
+     */
+    @Override
+    public void calculateFare(Ticket ticket, boolean discount) {
+        Metrics.time(calculateFareLatency, () -> doCalculateFare(ticket, discount));
+    }
+
+    private void doCalculateFare(Ticket ticket, boolean discount) {
+        if ((ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime()))) {
+            logger.error("Out time provided is incorrect: {}", ticket.getOutTime());
+            throw new IllegalArgumentException("Out time provided is incorrect: " + ticket.getOutTime());
+        }
+        if (ticket.getParkingSpot() == null || ticket.getParkingSpot().getParkingType() == null) {
+            logger.error("Parking spot or type is null");
+            throw new IllegalArgumentException("Parking spot or type is null");
+        }
+        long priceInCents = calculateFareInCents(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTime().getTime(), ticket.getOutTime().getTime(), discount);
+        if (priceInCents == 0) {
+            // Same as FareCalculatorService: free stays leave the price text untouched
+            ticket.setPrice(0);
+            return;
+        }
+        ticket.setPriceInCents(priceInCents);
+    }
+
+    /**
+     * Calculates the fare of a stay in cents, rounding half up like {@link FareCalculatorService}.
+     * @param parkingType the type of the parking spot.
+     * @param inTimeMillis the in time, in epoch milliseconds.
+     * @param outTimeMillis the out time, in epoch milliseconds, not before the in time.
+     * @param discount true if the 5% recurring user discount applies.
+     * @return the fare in cents.
+     */
+    public long calculateFareInCents(ParkingType parkingType, long inTimeMillis, long outTimeMillis, boolean discount) {
+        long durationInMinutes = (outTimeMillis - inTimeMillis) / 60000;
+        if (durationInMinutes <= FREE_MINUTES) {
+            return 0;
+        }
+        long chargeableMinutes = durationInMinutes - FREE_MINUTES;
+        long cents;
+        switch (parkingType) {
+            case CAR:
+                cents = roundHalfUp(chargeableMinutes * CAR_RATE_UNITS * 100, 60 * CAR_RATE_DIVISOR);
+                break;
+            case BIKE:
+                cents = roundHalfUp(chargeableMinutes * BIKE_RATE_UNITS * 100, 60 * BIKE_RATE_DIVISOR);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        if (discount) {
+            cents = roundHalfUp(cents * DISCOUNTED_PERCENT, 100);
+        }
+        return cents;
+    }
+
+    private static long roundHalfUp(long numerator, long denominator) {
+        return (2 * numerator + denominator) / (2 * denominator);
+    }
+
+    private static long unscaledRate(double rate) {
+        return BigDecimal.valueOf(rate).movePointRight(scaleOf(rate)).longValueExact();
+    }
+
+    private static long rateDivisor(double rate) {
+        return BigDecimal.ONE.movePointRight(scaleOf(rate)).longValueExact();
+    }
+
+    private static int scaleOf(double rate) {
+        return Math.max(0, BigDecimal.valueOf(rate).stripTrailingZeros().scale());
+    }
+}
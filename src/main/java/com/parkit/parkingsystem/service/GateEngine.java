@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Processes the entries and exits of many gates concurrently over one {@link ParkingService}.
+ * Each lane submits its commands and gets a future completed once the command is processed.
+ * Commands run on a bounded pool of worker threads; when every worker is busy and the queue is full,
+ * submitting blocks the lane until a slot frees up, rather than queueing without limit.
+ */
+public class GateEngine implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateEngine");
+
+    private final ParkingService parkingService;
+    private final ExecutorService workers;
+    // Commands running or waiting for a worker
+    private final Semaphore pendingCommands;
+
+    /**
+     * Creates an engine processing gate commands on the given number of worker threads.
+     * @param parkingService the parking service processing the commands.
+     * @param threads the number of worker threads, bounding the database connections used at once.
+     * @param queueCapacity the number of commands that may wait for a worker before lanes block.
+     */
+    public GateEngine(ParkingService parkingService, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Invalid gate engine size: " + threads + " threads, queue of " + queueCapacity);
+        }
+        this.parkingService = parkingService;
+        this.pendingCommands = new Semaphore(threads + queueCapacity);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gate-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits the entry of a vehicle, blocking while the engine is saturated.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @param parkingType the type of the vehicle.
+     * @return a future completed with the outcome of the entry.
+     * @throws InterruptedException if the lane was interrupted while waiting for the engine.
+     */
+    public CompletableFuture<EntryResult> submitEntry(String vehicleRegNumber, ParkingType parkingType) throws InterruptedException {
+        return submit(() -> parkingService.enter(vehicleRegNumber, parkingType));
+    }
+
+    /**
+     * Submits the exit of a vehicle, blocking while the engine is saturated.
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return a future completed with the outcome of the exit.
+     * @throws InterruptedException if the lane was interrupted while waiting for the engine.
+     */
+    public CompletableFuture<ExitResult> submitExit(String vehicleRegNumber) throws InterruptedException {
+        return submit(() -> parkingService.exit(vehicleRegNumber));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> command) throws InterruptedException {
+        pendingCommands.acquire();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return command.get();
+                } finally {
+                    pendingCommands.release();
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            pendingCommands.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting commands and waits for the submitted ones to complete.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Gate commands still running after 30 seconds, stopping them");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.SpotAvailability;
+
+/**
+ * Notified by the {@link OccupancyService} whenever the occupancy of a parking type changes, e.g. to refresh the signage.
+ */
+@FunctionalInterface
+public interface OccupancyListener {
+
+    /**
+     * Called on the thread of the entry or exit, or of the reconciliation, that changed the occupancy:
+     * must return quickly and not call back into the parking service.
+     * @param availability the new availability of the parking type.
+     */
+    void occupancyChanged(SpotAvailability availability);
+}
@@ -0,0 +1,216 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.storage.ParkingSpotStore;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of occupied spots of each {@link ParkingType} in memory, so the signage can poll the lot
+ * occupancy without counting the {@code parking} table. The counters are striped ({@link LongAdder}) so the gates
+ * update them without contending, and are moved by the {@link ParkingService} on every entry and exit.
+ * A reconciliation task periodically compares them with the {@code parking} table and corrects the drift
+ * left by operations outside of the parking service, e.g. a spot freed by hand in the database.
+ */
+public class OccupancyService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyService");
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final Map<ParkingType, Counters> countersByType = new EnumMap<>(ParkingType.class);
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService reconciler;
+
+    /**
+     * Creates an occupancy service with empty counters; call {@link #load()} to initialize them.
+     * @param parkingSpotStore the parking spot store counting the stored spots.
+     */
+    public OccupancyService(ParkingSpotStore parkingSpotStore) {
+        this.parkingSpotStore = parkingSpotStore;
+        for (ParkingType parkingType : ParkingType.values()) {
+            countersByType.put(parkingType, new Counters());
+        }
+    }
+
+    /**
+     * (Re)initializes the counters from the {@code parking} table.
+     * Entries and exits processed meanwhile may be lost, so this is meant for startup or after the caches were reloaded.
+     * @return true if every parking type was counted, false otherwise.
+     */
+    public synchronized boolean load() {
+        boolean loaded = true;
+        for (ParkingType parkingType : ParkingType.values()) {
+            SpotAvailability stored = parkingSpotStore.countParkingSpots(parkingType);
+            if (stored == null) {
+                logger.error("Unable to load the occupancy of {} spots", parkingType);
+                loaded = false;
+                continue;
+            }
+            Counters counters = countersByType.get(parkingType);
+            counters.total = stored.getTotal();
+            counters.occupied.reset();
+            counters.occupied.add(stored.getTotal() - stored.getAvailable());
+            counters.pendingDrift = 0;
+            notifyListeners(parkingType);
+        }
+        return loaded;
+    }
+
+    /**
+     * Counts a vehicle parked on a spot of the given type.
+     * @param parkingType the type of the spot.
+     */
+    public void vehicleEntered(ParkingType parkingType) {
+        countersByType.get(parkingType).occupied.increment();
+        notifyListeners(parkingType);
+    }
+
+    /**
+     * Counts a vehicle leaving a spot of the given type.
+     * @param parkingType the type of the spot.
+     */
+    public void vehicleLeft(ParkingType parkingType) {
+        countersByType.get(parkingType).occupied.decrement();
+        notifyListeners(parkingType);
+    }
+
+    /**
+     * Gets the number of available and total spots of a type, from the counters.
+     * @param parkingType the type of spot.
+     * @return the availability of the spots of this type.
+     */
+    public SpotAvailability getAvailability(ParkingType parkingType) {
+        Counters counters = countersByType.get(parkingType);
+        int total = counters.total;
+        long occupied = counters.occupied.sum();
+        int available = (int) Math.max(0, Math.min(total, total - occupied));
+        return new SpotAvailability(parkingType, available, total);
+    }
+
+    /**
+     * Subscribes a listener to the occupancy changes.
+     * @param listener the listener to notify.
+     */
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unsubscribes a listener from the occupancy changes.
+     * @param listener the listener to remove.
+     */
+    public void removeListener(OccupancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Compares the counters with the {@code parking} table and corrects them.
+     * A type whose counter moved while the table was counted is skipped, and a drift is only corrected once
+     * two reconciliations in a row found the same one: an entry committed to the database but not counted yet
+     * is therefore not mistaken for a drift.
+     * @return the number of parking types whose counter was corrected.
+     */
+    public synchronized int reconcile() {
+        int corrected = 0;
+        for (ParkingType parkingType : ParkingType.values()) {
+            Counters counters = countersByType.get(parkingType);
+            long before = counters.occupied.sum();
+            SpotAvailability stored = parkingSpotStore.countParkingSpots(parkingType);
+            if (stored == null) {
+                logger.error("Unable to reconcile the occupancy of {} spots", parkingType);
+                continue;
+            }
+            long after = counters.occupied.sum();
+            boolean changed = counters.total != stored.getTotal();
+            counters.total = stored.getTotal();
+            if (before != after) {
+                counters.pendingDrift = 0;
+            } else {
+                long drift = (stored.getTotal() - stored.getAvailable()) - after;
+                if (drift != 0 && drift == counters.pendingDrift) {
+                    logger.warn("Occupancy of {} spots was {} off the parking table, corrected", parkingType, drift);
+                    counters.occupied.add(drift);
+                    counters.pendingDrift = 0;
+                    changed = true;
+                    corrected++;
+                } else {
+                    counters.pendingDrift = drift;
+                }
+            }
+            if (changed) {
+                notifyListeners(parkingType);
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Starts reconciling the counters with the {@code parking} table periodically, in a background thread.
+     * @param periodMillis the delay between two reconciliations.
+     */
+    public synchronized void startReconciliation(long periodMillis) {
+        if (reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reconciliation task.
+     */
+    @Override
+    public synchronized void close() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+            reconciler = null;
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            logger.error("Occupancy reconciliation failed", e);
+        }
+    }
+
+    private void notifyListeners(ParkingType parkingType) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        SpotAvailability availability = getAvailability(parkingType);
+        for (OccupancyListener listener : listeners) {
+            try {
+                listener.occupancyChanged(availability);
+            } catch (RuntimeException e) {
+                logger.error("Occupancy listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Counters of one parking type.
+     */
+    private static class Counters {
+        private final LongAdder occupied = new LongAdder();
+        private volatile int total;
+        // Drift found by the last reconciliation, only accessed under the service lock
+        private long pendingDrift;
+    }
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.metrics.MetricsReporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parking systems of the lots served by one deployment, each on the database its lot is routed to.
+ */
+public class ParkingLots implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingLots");
+
+    private final Map<String, ParkingSystem> parkingSystems = new LinkedHashMap<>();
+    private MetricsReporter metricsReporter;
+
+    /**
+     * Loads the parking system of every lot of the router, as {@code ParkingSystem.load} does for one lot.
+     * With several lots, the write-behind mode is not supported and the metrics are logged once for all of them.
+     * @param router the router of the lots to their database.
+     * @return the loaded lots.
+     * @throws IllegalStateException if the write-behind journal or a store snapshot could not be recovered.
+     */
+    public static ParkingLots load(ShardRouter router) {
+        ParkingLots parkingLots = new ParkingLots();
+        boolean singleLot = router.getLots().size() == 1;
+        try {
+            for (String lotId : router.getLots()) {
+                parkingLots.add(lotId, ParkingSystem.load(null, lotId, router.getDataBaseConfig(lotId), singleLot));
+            }
+        } catch (RuntimeException e) {
+            parkingLots.close();
+            throw e;
+        }
+        long dumpMillis = Long.getLong("parkit.metrics.dumpMillis", 0);
+        if (dumpMillis > 0 && !singleLot) {
+            parkingLots.metricsReporter = new MetricsReporter(dumpMillis);
+        }
+        logger.info("Parking lots loaded: {}", router.getLots());
+        return parkingLots;
+    }
+
+    /**
+     * Adds the parking system of a lot.
+     * @param lotId the lot identifier.
+     * @param parkingSystem the parking system of the lot.
+     */
+    public void add(String lotId, ParkingSystem parkingSystem) {
+        parkingSystems.put(lotId, parkingSystem);
+    }
+
+    /**
+     * Gets the parking system of a lot.
+     * @param lotId the lot identifier.
+     * @return the parking system, null if the lot is not served.
+     */
+    public ParkingSystem get(String lotId) {
+        return parkingSystems.get(lotId);
+    }
+
+    /**
+     * Gets the lots served.
+     * @return the lot identifiers.
+     */
+    public Set<String> getLotIds() {
+        return Collections.unmodifiableSet(parkingSystems.keySet());
+    }
+
+    /**
+     * Closes the parking system of every lot.
+     */
+    @Override
+    public void close() {
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        parkingSystems.values().forEach(ParkingSystem::close);
+    }
+}
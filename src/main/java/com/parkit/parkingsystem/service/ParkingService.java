@@ -1,17 +1,23 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.constants.GateStatus;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.storage.ParkingSpotStore;
+import com.parkit.parkingsystem.storage.TicketStore;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.sql.Timestamp;
 import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages the operations related to parking vehicles and processing their exit.
@@ -19,108 +25,247 @@ import java.util.Optional;
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
+    private static final LatencyHistogram enterLatency = Metrics.histogram("ParkingService.enter");
+    private static final LatencyHistogram exitLatency = Metrics.histogram("ParkingService.exit");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final int PLATE_LOCK_STRIPES = 64;
+
+    private FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private TicketDAO ticketDAO;
+    private ParkingSpotStore parkingSpotStore;
+    private TicketStore ticketStore;
+    // Counts the occupied spots for the signage, optional
+    private OccupancyService occupancyService;
+    // Serializes the entry and exit of a same vehicle arriving at two gates at once
+    private final Lock[] plateLocks = new Lock[PLATE_LOCK_STRIPES];
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotStore, TicketStore ticketStore){
         this.inputReaderUtil = inputReaderUtil;
-        this.parkingSpotDAO = parkingSpotDAO;
-        this.ticketDAO = ticketDAO;
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        for (int i = 0; i < PLATE_LOCK_STRIPES; i++) {
+            plateLocks[i] = new ReentrantLock();
+        }
     }
 
     /**
-     * Processes the entry of a vehicle into the parking.
-     * Registers the vehicle, allocates a parking spot, and saves the parking ticket.
+     * Processes the entry of a vehicle into the parking, reading the vehicle from the console.
+     * Registers the vehicle, then allocates a parking spot and saves the parking ticket in a single transaction.
      */
     public void processIncomingVehicle() {
         try {
             String vehicleRegNumber = getVehicleRegNumber();
-            if (ticketDAO.isVehicleCurrentlyParked(vehicleRegNumber)) {
+            if (ticketStore.isVehicleCurrentlyParked(vehicleRegNumber)) {
                 System.out.println("Vehicle is already parked.");
                 return;
             }
+            processIncomingVehicle(vehicleRegNumber, getVehicleType());
+        } catch(Exception e) {
+            logger.error("Unable to process incoming vehicle", e);
+        }
+    }
+
+    /**
+     * Processes the entry of a given vehicle into the parking and prints the outcome to the console.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @param parkingType The type of the vehicle.
+     * @return true if the vehicle was parked, false otherwise.
+     */
+    public boolean processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType) {
+        EntryResult result = enter(vehicleRegNumber, parkingType);
+        switch (result.getStatus()) {
+            case OK:
+                if (result.isRecurringUser()) {
+                    System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount.");
+                }
+                System.out.println("Generated Ticket and saved in DB");
+                System.out.println("Please park your vehicle in spot number:" + result.getParkingSpot().getId());
+                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + result.getInTime());
+                break;
+            case ALREADY_PARKED:
+                System.out.println("Vehicle is already parked.");
+                break;
+            case NO_SPOT_AVAILABLE:
+                System.out.println("No parking spot available for this vehicle type.");
+                break;
+            default:
+                System.out.println("Unable to process incoming vehicle. Error occurred");
+        }
+        return result.isSuccess();
+    }
 
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot != null && parkingSpot.getId() > 0){
-                parkingSpot.setAvailable(false);
-                boolean updated = parkingSpotDAO.updateParking(parkingSpot);
-                logger.info("Parking spot {} set to unavailable: {}", parkingSpot.getId(), updated);
+    /**
+     * Registers the entry of a vehicle into the parking, without any console input or output.
+     * Allocates a parking spot and saves the parking ticket in a single transaction.
+     * Safe to call from several gates at once: operations on the same vehicle are serialized.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @param parkingType The type of the vehicle.
+     * @return The outcome of the entry, with the allocated spot and in time when the vehicle was parked.
+     */
+    public EntryResult enter(String vehicleRegNumber, ParkingType parkingType) {
+        return enter(vehicleRegNumber, parkingType, new Date());
+    }
 
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticket.setParkingType(parkingSpot.getParkingType());
+    /**
+     * Registers the entry of a vehicle into the parking at a given time, e.g. when replaying recorded camera events.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @param parkingType The type of the vehicle.
+     * @param inTime The in time to record.
+     * @return The outcome of the entry, with the allocated spot and in time when the vehicle was parked.
+     */
+    public EntryResult enter(String vehicleRegNumber, ParkingType parkingType, Date inTime) {
+        long startNanos = System.nanoTime();
+        Lock plateLock = plateLock(vehicleRegNumber);
+        plateLock.lock();
+        try {
+            if (ticketStore.isVehicleCurrentlyParked(vehicleRegNumber)) {
+                return EntryResult.rejected(GateStatus.ALREADY_PARKED, vehicleRegNumber);
+            }
 
-                ticketDAO.saveTicket(ticket);
+            Ticket ticket = new Ticket();
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTime(inTime);
+            ticket.setOutTime(null);
 
-                if (ticketDAO.getNbTicket(vehicleRegNumber) > 1) {
-                    System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount.");
-                }
+            // Claims the spot and saves the ticket in one transaction
+            ParkingSpot parkingSpot = ticketStore.saveTicketOnNextAvailableSlot(ticket, parkingType);
+            if (parkingSpot == null) {
+                logger.error("Error fetching parking number from DB. Parking slots might be full");
+                return EntryResult.rejected(GateStatus.NO_SPOT_AVAILABLE, vehicleRegNumber);
+            }
+            logger.debug("Parking spot {} allocated to ticket {}", parkingSpot.getId(), ticket.getId());
 
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
+            if (occupancyService != null) {
+                occupancyService.vehicleEntered(parkingType);
             }
+            boolean recurringUser = ticketStore.getNbTicket(vehicleRegNumber) > 1;
+            return new EntryResult(GateStatus.OK, vehicleRegNumber, ticket, recurringUser);
         } catch(Exception e) {
             logger.error("Unable to process incoming vehicle", e);
+            return EntryResult.rejected(GateStatus.ERROR, vehicleRegNumber);
+        } finally {
+            plateLock.unlock();
+            enterLatency.recordSince(startNanos);
         }
     }
 
     /**
-     * Processes the exit of a vehicle from the parking.
+     * Processes the exit of a vehicle from the parking, reading the vehicle from the console.
      * Calculates the parking fare and updates the parking ticket and spot status.
      */
     public void processExitingVehicle() {
         try {
-            String vehicleRegNumber = getVehicleRegNumber();
-            Optional<Ticket> optionalTicket = ticketDAO.getTicket(vehicleRegNumber);
-            if (optionalTicket.isPresent()) {
-                Ticket ticket = optionalTicket.get();
-                Date outTime = new Date();
-                ticket.setOutTime(outTime);
-    
-                if (ticket.getOutTime() == null) {
-                    logger.error("outTime is null before updating the ticket");
-                } else {
-                    logger.debug("Updating ticket with ID: " + ticket.getId() + " and outTime: " + new Timestamp(ticket.getOutTime().getTime()));
-                }
-    
-                int ticketCount = ticketDAO.getNbTicket(vehicleRegNumber);
-                boolean discount = (ticketCount > 1);
-                fareCalculatorService.calculateFare(ticket, discount);  // Using calculateFare with discount
-    
-                if (ticketDAO.updateTicket(ticket)) {
-                    ParkingSpot parkingSpot = ticket.getParkingSpot();
-                    parkingSpot.setAvailable(true);
-                    parkingSpotDAO.updateParking(parkingSpot);
-    
-                    long durationMillis = outTime.getTime() - ticket.getInTime().getTime();
-                    long minutes = (durationMillis / 1000) / 60;
-                    long hours = minutes / 60;
-                    minutes = minutes % 60;
-    
-                    System.out.println("Please pay the parking fare: " + ticket.getPriceText());
-                    System.out.println("You have stayed " + hours + " hours and " + minutes + " minutes in our parking.");
-                    System.out.println("Recorded out-time for vehicle number: " + ticket.getVehicleRegNumber() + " is: " + outTime);
-                } else {
-                    System.out.println("Unable to update ticket information. Error occurred");
-                }
-            } else {
+            processExitingVehicle(getVehicleRegNumber());
+        } catch (Exception e) {
+            logger.error("Unable to process exiting vehicle", e);
+        }
+    }
+
+    /**
+     * Processes the exit of a given vehicle from the parking and prints the outcome to the console.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @return true if the exit was recorded, false otherwise.
+     */
+    public boolean processExitingVehicle(String vehicleRegNumber) {
+        ExitResult result = exit(vehicleRegNumber);
+        switch (result.getStatus()) {
+            case OK:
+                long minutes = result.getDurationMinutes();
+                System.out.println("Please pay the parking fare: " + result.getTicket().getPriceText());
+                System.out.println("You have stayed " + minutes / 60 + " hours and " + minutes % 60 + " minutes in our parking.");
+                System.out.println("Recorded out-time for vehicle number: " + vehicleRegNumber + " is: " + result.getOutTime());
+                break;
+            case TICKET_NOT_FOUND:
                 System.out.println("Ticket not found");
+                break;
+            default:
+                System.out.println("Unable to update ticket information. Error occurred");
+        }
+        return result.isSuccess();
+    }
+
+    /**
+     * Registers the exit of a vehicle from the parking, without any console input or output.
+     * Calculates the parking fare and updates the parking ticket and spot status.
+     * Safe to call from several gates at once: operations on the same vehicle are serialized.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @return The outcome of the exit, with the closed ticket and its fare when the exit was recorded.
+     */
+    public ExitResult exit(String vehicleRegNumber) {
+        return exit(vehicleRegNumber, new Date());
+    }
+
+    /**
+     * Registers the exit of a vehicle from the parking at a given time, e.g. when replaying recorded camera events.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @param outTime The out time to record, from which the fare is calculated.
+     * @return The outcome of the exit, with the closed ticket and its fare when the exit was recorded,
+     * {@code TICKET_NOT_FOUND} if the vehicle is not parked, {@code ERROR} if the ticket or the spot could not be updated.
+     */
+    public ExitResult exit(String vehicleRegNumber, Date outTime) {
+        long startNanos = System.nanoTime();
+        Lock plateLock = plateLock(vehicleRegNumber);
+        plateLock.lock();
+        try {
+            Optional<Ticket> optionalTicket = ticketStore.getTicket(vehicleRegNumber);
+            // A closed ticket means the vehicle already left, e.g. a duplicate camera read: nothing to change
+            if (!optionalTicket.isPresent() || optionalTicket.get().getOutTime() != null) {
+                return ExitResult.rejected(GateStatus.TICKET_NOT_FOUND, vehicleRegNumber);
+            }
+            Ticket ticket = optionalTicket.get();
+            ticket.setOutTime(outTime);
+            logger.debug("Updating ticket with ID: {} and outTime: {}", ticket.getId(), ticket.getOutTime());
+
+            int ticketCount = ticketStore.getNbTicket(vehicleRegNumber);
+            boolean discount = (ticketCount > 1);
+            fareCalculatorService.calculateFare(ticket, discount);  // Using calculateFare with discount
+
+            if (!ticketStore.updateTicket(ticket)) {
+                return ExitResult.rejected(GateStatus.ERROR, vehicleRegNumber);
             }
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            if (!parkingSpotStore.updateParking(parkingSpot)) {
+                // The occupancy is left alone: the spot is still taken in the store
+                logger.error("Ticket {} of vehicle {} is closed but parking spot {} could not be freed",
+                        ticket.getId(), vehicleRegNumber, parkingSpot.getId());
+                return ExitResult.rejected(GateStatus.ERROR, vehicleRegNumber);
+            }
+            if (occupancyService != null) {
+                occupancyService.vehicleLeft(parkingSpot.getParkingType());
+            }
+            return new ExitResult(GateStatus.OK, vehicleRegNumber, ticket, discount);
         } catch (Exception e) {
             logger.error("Unable to process exiting vehicle", e);
+            return ExitResult.rejected(GateStatus.ERROR, vehicleRegNumber);
+        } finally {
+            plateLock.unlock();
+            exitLatency.recordSince(startNanos);
         }
     }
 
+    /**
+     * Sets the occupancy service counting the entries and exits, null to stop counting them.
+     * @param occupancyService the occupancy service.
+     */
+    public void setOccupancyService(OccupancyService occupancyService) {
+        this.occupancyService = occupancyService;
+    }
+
+    /**
+     * Sets the fare calculator pricing the exits, the {@code Fare} rates by default.
+     * @param fareCalculatorService the fare calculator.
+     */
+    public void setFareCalculatorService(FareCalculatorService fareCalculatorService) {
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    private Lock plateLock(String vehicleRegNumber) {
+        return plateLocks[vehicleRegNumber.hashCode() & (PLATE_LOCK_STRIPES - 1)];
+    }
+
     /**
      * Retrieves the vehicle registration number from the user.
      * @return The vehicle registration number as entered by the user.
@@ -139,7 +284,7 @@ public class ParkingService {
         ParkingSpot parkingSpot = null;
         try {
             ParkingType parkingType = getVehicleType();
-            parkingSpot = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingSpot = parkingSpotStore.getNextAvailableSlot(parkingType);
             if (parkingSpot == null || parkingSpot.getId() <= 0) {
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
@@ -0,0 +1,379 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.ActiveTicketCache;
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.StorageType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JournalDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.journal.WriteBehindStore;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.MetricsReporter;
+import com.parkit.parkingsystem.storage.InMemoryStore;
+import com.parkit.parkingsystem.storage.ParkingSpotStore;
+import com.parkit.parkingsystem.storage.TicketStore;
+import com.parkit.parkingsystem.tariff.TariffLoader;
+import com.parkit.parkingsystem.tariff.TariffReloader;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * Wires the storage, the in-memory caches and the parking service together,
+ * for every front end of the parking: the interactive shell, the gate engine and the HTTP endpoint.
+ */
+public class ParkingSystem {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSystem");
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final TicketStore ticketStore;
+    // Null unless the storage is JDBC
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final ParkingService parkingService;
+    private InMemoryStore inMemoryStore;
+    private OccupancyService occupancyService;
+    private MetricsReporter metricsReporter;
+    private TariffReloader tariffReloader;
+
+    /**
+     * Creates a parking system over the given storage.
+     * @param inputReaderUtil the console reader of the interactive shell, null for the other front ends.
+     * @param parkingSpotStore the parking spot store.
+     * @param ticketStore the ticket store.
+     */
+    public ParkingSystem(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotStore, TicketStore ticketStore) {
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        this.parkingSpotDAO = (parkingSpotStore instanceof ParkingSpotDAO) ? (ParkingSpotDAO) parkingSpotStore : null;
+        this.ticketDAO = (ticketStore instanceof TicketDAO) ? (TicketDAO) ticketStore : null;
+        this.parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, ticketStore);
+    }
+
+    /**
+     * Creates the storage selected by {@code parkit.storage}: {@code jdbc} (the default) or {@code memory}.
+     * With JDBC, the DAOs are created on the configured database and the spot index and the ticket caches are loaded.
+     * The visit count cache size is set with {@code parkit.cache.visitCount.maxSize}, and
+     * {@code parkit.cache.consistencyCheck} makes the active ticket cache check every lookup against the database.
+     * Setting {@code parkit.writeBehind.journal} to a directory turns on the write-behind mode: the journal found
+     * there is first recovered into the database, then writes are journaled and flushed in the background.
+     * The occupancy counters are reconciled with the parking table every {@code parkit.occupancy.reconcileMillis}
+     * (60 s by default, 0 to disable); not in write-behind mode, where the table trails the counters.
+     * The in-memory store is described in {@link #loadInMemory(InputReaderUtil, String)}.
+     * The latency metrics are exposed over JMX, and logged every {@code parkit.metrics.dumpMillis} if set.
+     * The lot is selected by {@code parkit.lot}, routed to its database by {@link ShardRouter#fromSystemProperties()}.
+     * The fares are calculated from the {@code Fare} rates, or from the tariff file of {@link #getTariffFile(String)},
+     * which is checked for changes every {@code parkit.tariff.reloadMillis} (10 s by default, 0 to disable).
+     * @param inputReaderUtil the console reader of the interactive shell, null for the other front ends.
+     * @return the loaded parking system.
+     * @throws IllegalStateException if the write-behind journal, the store snapshot or the tariff could not be read.
+     * @throws IllegalArgumentException if the lot is not configured, or its tariff is not valid.
+     */
+    public static ParkingSystem load(InputReaderUtil inputReaderUtil) {
+        String lotId = getLotId();
+        ShardRouter router = ShardRouter.fromSystemProperties();
+        return load(inputReaderUtil, lotId, router.getDataBaseConfig(lotId), true);
+    }
+
+    /**
+     * Loads the parking system of one lot, as {@link #load(InputReaderUtil)} does.
+     * @param inputReaderUtil the console reader of the interactive shell, null for the other front ends.
+     * @param lotId the lot identifier.
+     * @param dataBaseConfig the database holding the lot, unused with the in-memory store.
+     * @param singleLot whether this is the only lot served. The write-behind mode, whose checkpoint is per database,
+     *                  is only supported then, and the metrics are left to the caller to log otherwise.
+     * @return the loaded parking system.
+     * @throws IllegalStateException if the write-behind journal, the store snapshot or the tariff could not be read.
+     * @throws IllegalArgumentException if the tariff of the lot is not valid.
+     */
+    public static ParkingSystem load(InputReaderUtil inputReaderUtil, String lotId, DataBaseConfig dataBaseConfig, boolean singleLot) {
+        if (getStorageType() == StorageType.MEMORY) {
+            return start(loadInMemory(inputReaderUtil, lotId), lotId, false, singleLot);
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.lotId = lotId;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.lotId = lotId;
+        String journalDirectory = System.getProperty("parkit.writeBehind.journal");
+        if (journalDirectory != null && !singleLot) {
+            logger.warn("Write-behind mode only applies to a single lot, ignored for lot {}", lotId);
+            journalDirectory = null;
+        }
+        // Recovered before loading the caches, which are read from the database
+        WriteBehindStore writeBehindStore = (journalDirectory == null) ? null
+                : recoverWriteBehindStore(Paths.get(journalDirectory), lotId, dataBaseConfig);
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.visitCountCache = new VisitCountCache(Integer.getInteger("parkit.cache.visitCount.maxSize", 10000));
+        ActiveTicketCache activeTicketCache = ticketDAO.loadActiveTicketCache();
+        if (activeTicketCache != null) {
+            activeTicketCache.setConsistencyCheck(Boolean.getBoolean("parkit.cache.consistencyCheck"));
+        }
+        if (writeBehindStore != null) {
+            startWriteBehind(writeBehindStore, parkingSpotDAO, ticketDAO);
+        }
+        return start(new ParkingSystem(inputReaderUtil, parkingSpotDAO, ticketDAO), lotId, ticketDAO.writeBehindStore == null, singleLot);
+    }
+
+    /**
+     * Creates a parking system over an {@link InMemoryStore}, without any database.
+     * With {@code parkit.storage.snapshot} set to a file, the store is restored from that file if it exists,
+     * and written to it every {@code parkit.storage.snapshotMillis} (10 s by default) and on {@link #close()}.
+     * Otherwise, or if the file does not exist yet, the store starts empty with {@code parkit.storage.carSpots}
+     * car spots and {@code parkit.storage.bikeSpots} bike spots (3 and 2 by default, like {@code resources/Data.sql}).
+     * Each lot has its own store; the snapshot file of a lot other than the default one is suffixed with its id.
+     * @param inputReaderUtil the console reader of the interactive shell, null for the other front ends.
+     * @param lotId the lot identifier.
+     * @return the parking system, without occupancy service nor metrics.
+     * @throws IllegalStateException if the snapshot could not be read.
+     */
+    public static ParkingSystem loadInMemory(InputReaderUtil inputReaderUtil, String lotId) {
+        if (System.getProperty("parkit.writeBehind.journal") != null) {
+            logger.warn("Write-behind mode only applies to JDBC storage, ignored");
+        }
+        String snapshot = System.getProperty("parkit.storage.snapshot");
+        if (snapshot != null && !DBConstants.DEFAULT_LOT_ID.equals(lotId)) {
+            snapshot = snapshot + "." + lotId;
+        }
+        Path snapshotFile = (snapshot == null) ? null : Paths.get(snapshot);
+        InMemoryStore store;
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try {
+                store = InMemoryStore.restore(snapshotFile);
+            } catch (IOException e) {
+                // Starting empty would overwrite the snapshot with an empty store at the next one
+                throw new IllegalStateException("Unable to restore the in-memory store from " + snapshotFile, e);
+            }
+        } else {
+            store = new InMemoryStore(Integer.getInteger("parkit.storage.carSpots", 3), Integer.getInteger("parkit.storage.bikeSpots", 2));
+        }
+        store.setLotId(lotId);
+        if (snapshotFile != null) {
+            store.startSnapshots(snapshotFile, Long.getLong("parkit.storage.snapshotMillis", 10000));
+        }
+        ParkingSystem parkingSystem = new ParkingSystem(inputReaderUtil, store, store);
+        parkingSystem.inMemoryStore = store;
+        logger.info("In-memory storage on for lot {}, snapshot file: {}", lotId, snapshotFile);
+        return parkingSystem;
+    }
+
+    /**
+     * Gets the storage selected by {@code parkit.storage}.
+     * @return the storage type, JDBC by default.
+     */
+    public static StorageType getStorageType() {
+        return StorageType.valueOf(System.getProperty("parkit.storage", "jdbc").toUpperCase());
+    }
+
+    /**
+     * Gets the lot selected by {@code parkit.lot}, for the front ends serving a single lot.
+     * @return the lot identifier, {@code default} if not set.
+     */
+    public static String getLotId() {
+        return System.getProperty("parkit.lot", DBConstants.DEFAULT_LOT_ID);
+    }
+
+    /**
+     * Gets the tariff file of a lot, set with {@code parkit.lot.<lot>.tariff}, or {@code parkit.tariff} for every lot.
+     * The file format is described in {@link TariffLoader}.
+     * @param lotId the lot identifier.
+     * @return the tariff file, null if the {@code Fare} rates apply.
+     */
+    public static Path getTariffFile(String lotId) {
+        String tariff = System.getProperty("parkit.lot." + lotId + ".tariff", System.getProperty("parkit.tariff"));
+        return (tariff == null) ? null : Paths.get(tariff);
+    }
+
+    private static ParkingSystem start(ParkingSystem parkingSystem, String lotId, boolean reconcile, boolean reportMetrics) {
+        Path tariffFile = getTariffFile(lotId);
+        if (tariffFile != null) {
+            parkingSystem.startTariff(tariffFile);
+        }
+        OccupancyService occupancyService = new OccupancyService(parkingSystem.parkingSpotStore);
+        occupancyService.load();
+        long reconcileMillis = Long.getLong("parkit.occupancy.reconcileMillis", 60000);
+        if (reconcileMillis > 0 && reconcile) {
+            occupancyService.startReconciliation(reconcileMillis);
+        }
+        parkingSystem.setOccupancyService(occupancyService);
+        Metrics.registerMBean();
+        long dumpMillis = Long.getLong("parkit.metrics.dumpMillis", 0);
+        if (dumpMillis > 0 && reportMetrics) {
+            parkingSystem.metricsReporter = new MetricsReporter(dumpMillis);
+        }
+        return parkingSystem;
+    }
+
+    private void startTariff(Path tariffFile) {
+        TariffReloader reloader = new TariffReloader(tariffFile);
+        TariffFareCalculatorService fareCalculatorService;
+        try {
+            fareCalculatorService = new TariffFareCalculatorService(reloader.load());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load the tariff from " + tariffFile, e);
+        }
+        parkingService.setFareCalculatorService(fareCalculatorService);
+        long reloadMillis = Long.getLong("parkit.tariff.reloadMillis", 10000);
+        if (reloadMillis > 0) {
+            tariffReloader = reloader;
+            tariffReloader.start(reloadMillis, fareCalculatorService::setTariff);
+        }
+        logger.info("Tariff loaded from {}", tariffFile);
+    }
+
+    private static WriteBehindStore recoverWriteBehindStore(Path journalDirectory, String lotId, DataBaseConfig dataBaseConfig) {
+        try {
+            TicketJournal journal = new TicketJournal(journalDirectory, Long.getLong("parkit.writeBehind.segmentSize", 16L * 1024 * 1024));
+            JournalDAO journalDAO = new JournalDAO();
+            journalDAO.dataBaseConfig = dataBaseConfig;
+            journalDAO.lotId = lotId;
+            WriteBehindStore writeBehindStore = new WriteBehindStore(journal, journalDAO, Integer.getInteger("parkit.writeBehind.capacity", 100000),
+                    journalDirectory.resolve("rejected-records.tsv"));
+            writeBehindStore.recover();
+            return writeBehindStore;
+        } catch (IOException | SQLException e) {
+            // Writing to the database before the journal is recovered would have the journal overwrite newer data later
+            throw new IllegalStateException("Unable to recover the write-behind journal in " + journalDirectory, e);
+        }
+    }
+
+    private static void startWriteBehind(WriteBehindStore writeBehindStore, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        if (ticketDAO.parkingSpotIndex == null || ticketDAO.activeTicketCache == null) {
+            logger.error("Write-behind mode needs the spot index and the active ticket cache, writing to the database directly");
+            writeBehindStore.close();
+            return;
+        }
+        // The database is behind the journal: it can no longer be used to check the cache
+        ticketDAO.activeTicketCache.setConsistencyCheck(false);
+        try {
+            writeBehindStore.start();
+        } catch (IOException e) {
+            writeBehindStore.close();
+            throw new IllegalStateException("Unable to start the write-behind journal", e);
+        }
+        ticketDAO.writeBehindStore = writeBehindStore;
+        parkingSpotDAO.writeBehindStore = writeBehindStore;
+        logger.info("Write-behind mode on");
+    }
+
+    /**
+     * Releases the resources of the parking system: stops the background tasks, logs the last metrics dump
+     * and, in write-behind mode, flushes the journal to the database, or writes the last in-memory store snapshot.
+     */
+    public void close() {
+        if (occupancyService != null) {
+            occupancyService.close();
+        }
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        if (tariffReloader != null) {
+            tariffReloader.close();
+        }
+        if (ticketDAO != null && ticketDAO.writeBehindStore != null) {
+            ticketDAO.writeBehindStore.close();
+        }
+        if (inMemoryStore != null) {
+            inMemoryStore.close();
+        }
+    }
+
+    /**
+     * Reloads the spot index and the active ticket cache from the database and empties the visit count cache,
+     * after a transaction spanning several parking operations was rolled back behind their back.
+     * In write-behind mode the writes are journaled outside of any transaction and the caches are kept,
+     * and the in-memory store has no caches.
+     */
+    public void reloadCaches() {
+        if (ticketDAO == null || ticketDAO.writeBehindStore != null) {
+            return;
+        }
+        if (ticketDAO.parkingSpotIndex != null) {
+            parkingSpotDAO.parkingSpotIndex = null;
+            ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        }
+        ActiveTicketCache activeTicketCache = ticketDAO.activeTicketCache;
+        if (activeTicketCache != null) {
+            ticketDAO.activeTicketCache = null;
+            ActiveTicketCache reloaded = ticketDAO.loadActiveTicketCache();
+            if (reloaded != null) {
+                reloaded.setConsistencyCheck(activeTicketCache.isConsistencyCheck());
+            }
+        }
+        if (ticketDAO.visitCountCache != null) {
+            ticketDAO.visitCountCache.clear();
+        }
+        if (occupancyService != null) {
+            occupancyService.load();
+        }
+    }
+
+    /**
+     * Gets the parking spot store.
+     * @return the parking spot store.
+     */
+    public ParkingSpotStore getParkingSpotStore() {
+        return parkingSpotStore;
+    }
+
+    /**
+     * Gets the ticket store.
+     * @return the ticket store.
+     */
+    public TicketStore getTicketStore() {
+        return ticketStore;
+    }
+
+    /**
+     * Gets the parking spot DAO.
+     * @return the parking spot DAO, null if the storage is not JDBC.
+     */
+    public ParkingSpotDAO getParkingSpotDAO() {
+        return parkingSpotDAO;
+    }
+
+    /**
+     * Gets the ticket DAO.
+     * @return the ticket DAO, null if the storage is not JDBC.
+     */
+    public TicketDAO getTicketDAO() {
+        return ticketDAO;
+    }
+
+    /**
+     * Sets the occupancy service, counting the entries and exits of the parking service.
+     * @param occupancyService the occupancy service, null to stop counting.
+     */
+    public void setOccupancyService(OccupancyService occupancyService) {
+        this.occupancyService = occupancyService;
+        parkingService.setOccupancyService(occupancyService);
+    }
+
+    /**
+     * Gets the occupancy service.
+     * @return the occupancy service, null if not set.
+     */
+    public OccupancyService getOccupancyService() {
+        return occupancyService;
+    }
+
+    /**
+     * Gets the parking service.
+     * @return the parking service.
+     */
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+}
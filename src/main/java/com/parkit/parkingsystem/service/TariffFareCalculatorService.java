@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.tariff.Tariff;
+
+/**
+ * Fare calculator pricing stays with a compiled {@link Tariff}: time bands, daily caps, free minutes and discount
+ * as configured rather than the {@code Fare} constants. The tariff can be replaced while tickets are being priced;
+ * each calculation uses the tariff current when it starts.
+ */
+public class TariffFareCalculatorService extends FixedPointFareCalculatorService {
+
+    private volatile Tariff tariff;
+
+    /**
+     * Creates a calculator with the given tariff.
+     * @param tariff the initial tariff.
+     */
+    public TariffFareCalculatorService(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    /**
+     * Calculates the fare of a stay in cents with the current tariff.
+     * @param parkingType the type of the parking spot.
+     * @param inTimeMillis the in time, in epoch milliseconds.
+     * @param outTimeMillis the out time, in epoch milliseconds, not before the in time.
+     * @param discount true if the recurring user discount applies.
+     * @return the fare in cents.
+     */
+    @Override
+    public long calculateFareInCents(ParkingType parkingType, long inTimeMillis, long outTimeMillis, boolean discount) {
+        return tariff.calculateFareInCents(parkingType, inTimeMillis, outTimeMillis, discount);
+    }
+
+    /**
+     * Replaces the tariff, for the calculations starting from now on.
+     * @param tariff the new tariff.
+     */
+    public void setTariff(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    /**
+     * Gets the current tariff.
+     * @return the tariff.
+     */
+    public Tariff getTariff() {
+        return tariff;
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.Date;
+
+/**
+ * Keeps the hot ticket table small by moving the closed tickets older than a retention window to the archive.
+ * Tickets are archived in chunks, one short transaction each, so the gates writing to the same table are barely held up.
+ * Visit counts and exports keep including the archived tickets, see {@link TicketDAO#archiveTickets(Date, int)}.
+ */
+public class TicketArchivalService {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchivalService");
+
+    private final TicketDAO ticketDAO;
+
+    private int chunkSize = 1000;
+
+    /**
+     * Creates an archival service moving tickets through the given DAO.
+     * @param ticketDAO the ticket DAO.
+     */
+    public TicketArchivalService(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+    }
+
+    /**
+     * Archives every ticket closed more than the given number of days ago.
+     * @param retentionDays the number of days closed tickets stay in the hot table.
+     * @return the number of tickets archived.
+     * @throws SQLException if a chunk could not be archived; the chunks archived before stay archived.
+     */
+    public long archiveOlderThan(int retentionDays) throws SQLException {
+        return archive(new Date(System.currentTimeMillis() - retentionDays * 86400_000L));
+    }
+
+    /**
+     * Archives every ticket closed before the given time.
+     * @param before the out time before which tickets are archived, exclusive.
+     * @return the number of tickets archived.
+     * @throws SQLException if a chunk could not be archived; the chunks archived before stay archived.
+     */
+    public long archive(Date before) throws SQLException {
+        logger.info("Archiving the tickets closed before {}", before);
+        long start = System.currentTimeMillis();
+        long archived = 0;
+        int chunk;
+        do {
+            chunk = ticketDAO.archiveTickets(before, chunkSize);
+            archived += chunk;
+        } while (chunk == chunkSize);
+        logger.info("Archived {} tickets in {} ms", archived, System.currentTimeMillis() - start);
+        return archived;
+    }
+
+    /**
+     * Sets the number of tickets archived per transaction.
+     * @param chunkSize the chunk size
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.export.ColumnarTicketWriter;
+import com.parkit.parkingsystem.export.CsvTicketWriter;
+import com.parkit.parkingsystem.export.TicketWriter;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports tickets to a CSV or columnar file for reporting, so reports no longer run ad-hoc queries on the database.
+ * Tickets are streamed from the database straight to the file, so memory stays constant whatever the number of rows.
+ */
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    private final TicketDAO ticketDAO;
+
+    private int fetchSize = 1000;
+    private int bufferSize = 64 * 1024;
+    private int rowGroupSize = 4096;
+
+    /**
+     * Creates an export service reading tickets through the given DAO.
+     * @param ticketDAO the ticket DAO.
+     */
+    public TicketExportService(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+    }
+
+    /**
+     * Exports the tickets matching a filter to a file, replacing it if it exists.
+     * @param filter the tickets to export.
+     * @param format the format of the file.
+     * @param file the file to write.
+     * @param gzip true to compress the file with gzip.
+     * @return the number of tickets exported.
+     * @throws SQLException if the tickets could not be read.
+     * @throws IOException if the file could not be written.
+     */
+    public long export(TicketExportFilter filter, ExportFormat format, Path file, boolean gzip) throws SQLException, IOException {
+        logger.info("Exporting tickets as {} to {}", format, file);
+        long start = System.currentTimeMillis();
+        long count;
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (gzip) {
+                // The gzip stream buffers on its own; the writer buffer keeps the calls to it large
+                try (OutputStream out = new GZIPOutputStream(Channels.newOutputStream(fileChannel), bufferSize);
+                     WritableByteChannel channel = Channels.newChannel(out)) {
+                    count = export(filter, newWriter(format, channel));
+                }
+            } else {
+                count = export(filter, newWriter(format, fileChannel));
+            }
+        }
+        logger.info("Exported {} tickets in {} ms", count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * Exports the tickets matching a filter with the given writer.
+     * @param filter the tickets to export.
+     * @param writer the writer of the tickets.
+     * @return the number of tickets exported.
+     * @throws SQLException if the tickets could not be read.
+     * @throws IOException if the tickets could not be written.
+     */
+    public long export(TicketExportFilter filter, TicketWriter writer) throws SQLException, IOException {
+        long count;
+        try {
+            count = ticketDAO.streamTickets(filter, fetchSize, ticket -> {
+                try {
+                    writer.write(ticket);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        return count;
+    }
+
+    private TicketWriter newWriter(ExportFormat format, WritableByteChannel channel) {
+        switch (format) {
+            case CSV:
+                return new CsvTicketWriter(channel, bufferSize);
+            case COLUMNAR:
+                return new ColumnarTicketWriter(channel, bufferSize, rowGroupSize);
+            default:
+                throw new IllegalArgumentException("Unknown export format");
+        }
+    }
+
+    /**
+     * Sets the number of rows fetched from the database per round trip.
+     * @param fetchSize the fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the size of the write buffer in bytes.
+     * @param bufferSize the buffer size
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets the number of tickets per row group of the columnar format.
+     * @param rowGroupSize the row group size
+     */
+    public void setRowGroupSize(int rowGroupSize) {
+        this.rowGroupSize = rowGroupSize;
+    }
+}
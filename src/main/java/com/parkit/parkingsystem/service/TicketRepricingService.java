@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recomputes the fare of the closed tickets of a date range, typically after the rates in {@code Fare} or the tariff changed.
+ * Tickets are streamed from the database in chunks; each chunk is priced on a worker thread
+ * and the changed prices are written back with one JDBC batch per chunk.
+ */
+public class TicketRepricingService {
+
+    private static final Logger logger = LogManager.getLogger("TicketRepricingService");
+
+    private final TicketDAO ticketDAO;
+    private FixedPointFareCalculatorService fareCalculatorService = new FixedPointFareCalculatorService();
+
+    private int chunkSize = 1000;
+    private int fetchSize = 1000;
+    // Each worker holds a pooled connection while writing, on top of the one used for streaming
+    private int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    private long progressInterval = 100000;
+
+    /**
+     * Creates a repricing service reading and writing tickets through the given DAO.
+     * @param ticketDAO the ticket DAO.
+     */
+    public TicketRepricingService(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+    }
+
+    /**
+     * Reprices every closed ticket whose in time falls in the given range.
+     * Only the tickets whose price changed are written back.
+     * @param from the start of the in time range, inclusive.
+     * @param to the end of the in time range, exclusive.
+     * @return the report of the run.
+     * @throws SQLException if the tickets could not be read.
+     */
+    public RepricingReport reprice(Date from, Date to) throws SQLException {
+        logger.info("Repricing closed tickets with an in time from {} to {}", from, to);
+        long start = System.currentTimeMillis();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Bounds the chunks waiting for a worker, so memory stays constant whatever the number of tickets
+        Semaphore pendingChunks = new Semaphore(threads * 2);
+        AtomicLong processed = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Chunk[] current = {new Chunk(chunkSize)};
+        long read;
+        try {
+            read = ticketDAO.streamClosedTickets(from, to, fetchSize, (ticket, recurringUser) -> {
+                current[0].add(ticket, recurringUser);
+                if (current[0].size() == chunkSize) {
+                    submit(workers, pendingChunks, current[0], start, processed, updated, failed);
+                    current[0] = new Chunk(chunkSize);
+                }
+            });
+            if (current[0].size() > 0) {
+                submit(workers, pendingChunks, current[0], start, processed, updated, failed);
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        RepricingReport report = new RepricingReport(read, updated.get(), failed.get(), System.currentTimeMillis() - start);
+        logger.info("Repricing done: {}", report);
+        return report;
+    }
+
+    private void submit(ExecutorService workers, Semaphore pendingChunks, Chunk chunk, long start,
+                        AtomicLong processed, AtomicLong updated, AtomicLong failed) {
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while repricing tickets", e);
+        }
+        workers.execute(() -> {
+            try {
+                List<Ticket> changed = chunk.reprice();
+                if (!changed.isEmpty()) {
+                    ticketDAO.updateTicketPrices(changed);
+                }
+                updated.addAndGet(changed.size());
+            } catch (SQLException | RuntimeException ex) {
+                logger.error("Unable to reprice a chunk of {} tickets", chunk.size(), ex);
+                failed.addAndGet(chunk.size());
+            } finally {
+                reportProgress(processed.addAndGet(chunk.size()), chunk.size(), updated.get(), start);
+                pendingChunks.release();
+            }
+        });
+    }
+
+    private void reportProgress(long processed, int chunkSize, long updated, long start) {
+        if (processed / progressInterval != (processed - chunkSize) / progressInterval) {
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            logger.info("Repriced {} tickets, {} updated, {} tickets/s", processed, updated, processed * 1000 / elapsed);
+        }
+    }
+
+    /**
+     * Sets the fare calculator giving the new prices, the {@code Fare} rates by default.
+     * @param fareCalculatorService the fare calculator
+     */
+    public void setFareCalculatorService(FixedPointFareCalculatorService fareCalculatorService) {
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    /**
+     * Sets the number of tickets priced and written back together.
+     * @param chunkSize the chunk size
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database per round trip.
+     * @param fetchSize the fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the number of worker threads pricing and writing back chunks.
+     * @param threads the number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets how many tickets are processed between two progress log lines.
+     * @param progressInterval the number of tickets between progress reports
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Tickets read together, with the recurring user flag of each one.
+     */
+    private class Chunk {
+        private final List<Ticket> tickets;
+        private final boolean[] recurringUsers;
+
+        private Chunk(int capacity) {
+            this.tickets = new ArrayList<>(capacity);
+            this.recurringUsers = new boolean[capacity];
+        }
+
+        private void add(Ticket ticket, boolean recurringUser) {
+            recurringUsers[tickets.size()] = recurringUser;
+            tickets.add(ticket);
+        }
+
+        private int size() {
+            return tickets.size();
+        }
+
+        private List<Ticket> reprice() {
+            List<Ticket> changed = new ArrayList<>();
+            for (int i = 0; i < tickets.size(); i++) {
+                Ticket ticket = tickets.get(i);
+                long priceInCents = fareCalculatorService.calculateFareInCents(ticket.getParkingType(),
+                        ticket.getInTime().getTime(), ticket.getOutTime().getTime(), recurringUsers[i]);
+                if (Math.round(ticket.getPrice() * 100) != priceInCents) {
+                    ticket.setPriceInCents(priceInCents);
+                    changed.add(ticket);
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Parking spots and tickets kept in the memory of the process, for small sites and load tests without a MySQL server.
+ * The free spots live in a {@link ParkingSpotIndex}, so concurrent entries claim their spot without locking,
+ * and the tickets are indexed by ID and by plate. Nothing is durable until {@link #snapshot(Path)} writes the
+ * whole store to a file, which {@link #restore(Path)} reads back at the next startup; {@link #startSnapshots(Path, long)}
+ * takes one periodically, and {@link #close()} a last one. Operations completed after the last snapshot are lost by a crash.
+ * Tickets are copied in and out of the store, as a database would, so callers cannot modify them behind its back.
+ */
+public class InMemoryStore implements ParkingSpotStore, TicketStore, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryStore");
+
+    private static final int SNAPSHOT_MAGIC = 0x50534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Type of each spot, indexed by spot number
+    private final ParkingType[] spotTypes;
+    private final ParkingSpotIndex freeSpots = new ParkingSpotIndex();
+    private final Map<Integer, Ticket> ticketsById = new ConcurrentHashMap<>();
+    private final Map<String, PlateTickets> ticketsByPlate = new ConcurrentHashMap<>();
+    private final AtomicInteger lastTicketId = new AtomicInteger();
+    // Shared by the operations, exclusive for a snapshot to copy a consistent state
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService snapshotter;
+    private Path snapshotFile;
+    private volatile String lotId = DBConstants.DEFAULT_LOT_ID;
+
+    /**
+     * Creates an empty store with free spots numbered from 1, cars first then bikes, like {@code resources/Data.sql}.
+     * @param carSpots the number of car spots.
+     * @param bikeSpots the number of bike spots.
+     */
+    public InMemoryStore(int carSpots, int bikeSpots) {
+        this.spotTypes = new ParkingType[carSpots + bikeSpots + 1];
+        List<ParkingSpot> parkingSpots = new ArrayList<>(carSpots + bikeSpots);
+        for (int number = 1; number < spotTypes.length; number++) {
+            spotTypes[number] = (number <= carSpots) ? ParkingType.CAR : ParkingType.BIKE;
+            parkingSpots.add(new ParkingSpot(number, spotTypes[number], true));
+        }
+        freeSpots.load(parkingSpots);
+    }
+
+    private InMemoryStore(ParkingType[] spotTypes, List<ParkingSpot> parkingSpots) {
+        this.spotTypes = spotTypes;
+        freeSpots.load(parkingSpots);
+    }
+
+    /**
+     * Reads a store back from a snapshot file.
+     * @param file the snapshot file written by {@link #snapshot(Path)}.
+     * @return the restored store.
+     * @throws IOException if the file could not be read or is not a snapshot.
+     */
+    public static InMemoryStore restore(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, 65536))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a parking store snapshot: " + file);
+            }
+            int spotCount = in.readInt();
+            ParkingType[] spotTypes = new ParkingType[spotCount + 1];
+            List<ParkingSpot> parkingSpots = new ArrayList<>(spotCount);
+            for (int number = 1; number <= spotCount; number++) {
+                spotTypes[number] = ParkingType.values()[in.readByte()];
+                parkingSpots.add(new ParkingSpot(number, spotTypes[number], in.readBoolean()));
+            }
+            InMemoryStore store = new InMemoryStore(spotTypes, parkingSpots);
+            int ticketCount = in.readInt();
+            for (int i = 0; i < ticketCount; i++) {
+                Ticket ticket = new Ticket();
+                ticket.setId(in.readInt());
+                ParkingType parkingType = ParkingType.values()[in.readByte()];
+                ticket.setParkingSpot(new ParkingSpot(in.readInt(), parkingType, false));
+                ticket.setParkingType(parkingType);
+                ticket.setVehicleRegNumber(in.readUTF());
+                ticket.setPrice(in.readDouble());
+                ticket.setInTime(new Date(in.readLong()));
+                long outTime = in.readLong();
+                ticket.setOutTime(outTime < 0 ? null : new Date(outTime));
+                store.addTicket(ticket);
+                store.lastTicketId.accumulateAndGet(ticket.getId(), Math::max);
+            }
+            logger.info("Restored in-memory store from {}: {} spots, {} tickets", file, spotCount, ticketCount);
+            return store;
+        }
+    }
+
+    /**
+     * Sets the lot of the store, set on the spots and tickets it returns. The lot is not part of the snapshots.
+     * @param lotId the lot identifier.
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
+    /**
+     * Gets the lot of the store.
+     * @return the lot identifier.
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Writes the whole store to a file, replacing it atomically.
+     * Operations are held back while the store is copied, not while the copy is written.
+     * @param file the snapshot file.
+     * @throws IOException if the snapshot could not be written.
+     */
+    public void snapshot(Path file) throws IOException {
+        List<ParkingSpot> parkingSpots;
+        List<Ticket> tickets;
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            parkingSpots = getAllParkingSpots();
+            tickets = new ArrayList<>(ticketsById.size());
+            for (Ticket ticket : ticketsById.values()) {
+                tickets.add(copy(ticket));
+            }
+        } finally {
+            lock.unlock();
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 65536))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(parkingSpots.size());
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                out.writeByte(parkingSpot.getParkingType().ordinal());
+                out.writeBoolean(parkingSpot.isAvailable());
+            }
+            out.writeInt(tickets.size());
+            for (Ticket ticket : tickets) {
+                out.writeInt(ticket.getId());
+                out.writeByte(ticket.getParkingSpot().getParkingType().ordinal());
+                out.writeInt(ticket.getParkingSpot().getId());
+                out.writeUTF(ticket.getVehicleRegNumber());
+                out.writeDouble(ticket.getPrice());
+                out.writeLong(ticket.getInTime().getTime());
+                out.writeLong(ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime());
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Snapshot of the in-memory store written to {}: {} tickets", file, tickets.size());
+    }
+
+    /**
+     * Starts writing a snapshot periodically, in a background thread, and a last one on {@link #close()}.
+     * @param file the snapshot file.
+     * @param periodMillis the delay between two snapshots.
+     */
+    public synchronized void startSnapshots(Path file, long periodMillis) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotFile = file;
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots and writes a last one.
+     */
+    @Override
+    public synchronized void close() {
+        if (snapshotter == null) {
+            return;
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotter = null;
+        snapshotQuietly();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot(snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            // An exception would cancel the periodic task
+            logger.error("Unable to write the snapshot of the in-memory store to {}", snapshotFile, e);
+        }
+    }
+
+    @Override
+    public ParkingSpot getNextAvailableSlot(ParkingType parkingType) {
+        int parkingNumber = freeSpots.peek(parkingType);
+        return parkingNumber > 0 ? newParkingSpot(parkingNumber, parkingType, true) : null;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        int number = parkingSpot.getId();
+        if (number <= 0 || number >= spotTypes.length) {
+            logger.error("Unknown parking spot {}", number);
+            return false;
+        }
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            if (parkingSpot.isAvailable()) {
+                freeSpots.release(spotTypes[number], number);
+            } else {
+                freeSpots.occupy(spotTypes[number], number);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ParkingSpot getParkingSpot(int id) {
+        if (id <= 0 || id >= spotTypes.length) {
+            return null;
+        }
+        return newParkingSpot(id, spotTypes[id], freeSpots.isFree(spotTypes[id], id));
+    }
+
+    @Override
+    public SpotAvailability getAvailability(ParkingType parkingType) {
+        return new SpotAvailability(parkingType, freeSpots.getAvailableCount(parkingType), freeSpots.getTotalCount(parkingType));
+    }
+
+    @Override
+    public SpotAvailability countParkingSpots(ParkingType parkingType) {
+        return getAvailability(parkingType);
+    }
+
+    @Override
+    public List<ParkingSpot> getAllParkingSpots() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>(spotTypes.length - 1);
+        for (int number = 1; number < spotTypes.length; number++) {
+            parkingSpots.add(newParkingSpot(number, spotTypes[number], freeSpots.isFree(spotTypes[number], number)));
+        }
+        return parkingSpots;
+    }
+
+    @Override
+    public boolean isVehicleCurrentlyParked(String vehicleRegNumber) {
+        PlateTickets plateTickets = ticketsByPlate.get(vehicleRegNumber);
+        if (plateTickets == null) {
+            return false;
+        }
+        synchronized (plateTickets) {
+            return plateTickets.latest.getOutTime() == null;
+        }
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            ticket.setId(lastTicketId.incrementAndGet());
+            ticket.setLotId(lotId);
+            addTicket(copy(ticket));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ParkingSpot saveTicketOnNextAvailableSlot(Ticket ticket, ParkingType parkingType) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            int parkingNumber = freeSpots.allocate(parkingType);
+            if (parkingNumber <= 0) {
+                return null;
+            }
+            ParkingSpot parkingSpot = newParkingSpot(parkingNumber, parkingType, false);
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setParkingType(parkingType);
+            ticket.setLotId(lotId);
+            ticket.setId(lastTicketId.incrementAndGet());
+            addTicket(copy(ticket));
+            return parkingSpot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addTicket(Ticket ticket) {
+        ticketsById.put(ticket.getId(), ticket);
+        PlateTickets plateTickets = ticketsByPlate.computeIfAbsent(ticket.getVehicleRegNumber(), plate -> new PlateTickets());
+        synchronized (plateTickets) {
+            plateTickets.count++;
+            if (plateTickets.latest == null || !ticket.getInTime().before(plateTickets.latest.getInTime())) {
+                plateTickets.latest = ticket;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Ticket> getTicket(String vehicleRegNumber) {
+        PlateTickets plateTickets = ticketsByPlate.get(vehicleRegNumber);
+        if (plateTickets == null) {
+            return Optional.empty();
+        }
+        synchronized (plateTickets) {
+            if (plateTickets.latest.getOutTime() != null) {
+                return Optional.empty();
+            }
+            return Optional.of(copy(plateTickets.latest));
+        }
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        Ticket stored = ticketsById.get(ticket.getId());
+        if (stored == null) {
+            logger.error("Error updating ticket with ID: {}", ticket.getId());
+            return false;
+        }
+        PlateTickets plateTickets = ticketsByPlate.get(stored.getVehicleRegNumber());
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            synchronized (plateTickets) {
+                stored.setPrice(ticket.getPrice());
+                stored.setOutTime(ticket.getOutTime());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        PlateTickets plateTickets = ticketsByPlate.get(vehicleRegNumber);
+        if (plateTickets == null) {
+            return 0;
+        }
+        synchronized (plateTickets) {
+            return plateTickets.count;
+        }
+    }
+
+    private ParkingSpot newParkingSpot(int number, ParkingType parkingType, boolean available) {
+        ParkingSpot parkingSpot = new ParkingSpot(number, parkingType, available);
+        parkingSpot.setLotId(lotId);
+        return parkingSpot;
+    }
+
+    private Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setLotId(lotId);
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        copy.setParkingSpot(newParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        copy.setParkingType(ticket.getParkingType());
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime() == null ? null : new Date(ticket.getInTime().getTime()));
+        copy.setOutTime(ticket.getOutTime() == null ? null : new Date(ticket.getOutTime().getTime()));
+        return copy;
+    }
+
+    /**
+     * Ticket count and most recent ticket of one vehicle, guarded by its own monitor.
+     */
+    private static class PlateTickets {
+        private int count;
+        private Ticket latest;
+    }
+}
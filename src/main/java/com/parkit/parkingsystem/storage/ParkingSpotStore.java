@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotAvailability;
+
+import java.util.List;
+
+/**
+ * Storage of the parking spots, as used by the parking service and the gates.
+ * Implemented over JDBC by {@link com.parkit.parkingsystem.dao.ParkingSpotDAO} and in process by {@link InMemoryStore}.
+ */
+public interface ParkingSpotStore {
+
+    /**
+     * Retrieves the next available parking spot of a specified type, without claiming it.
+     * @param parkingType The type of parking spot to search for.
+     * @return An instance of ParkingSpot if available, otherwise null.
+     */
+    ParkingSpot getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Updates the availability of a parking spot.
+     * @param parkingSpot The parking spot to update.
+     * @return true if the update was successful, false otherwise.
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * Retrieves a parking spot by its ID.
+     * @param id The ID of the parking spot to retrieve.
+     * @return The ParkingSpot object if found, otherwise null.
+     */
+    ParkingSpot getParkingSpot(int id);
+
+    /**
+     * Counts the available and total parking spots of a type, from the fastest source available.
+     * @param parkingType The type of parking spot to count.
+     * @return The availability of the spots of this type, or null if it could not be fetched.
+     */
+    SpotAvailability getAvailability(ParkingType parkingType);
+
+    /**
+     * Counts the available and total parking spots of a type from the stored spots, bypassing any cache.
+     * @param parkingType The type of parking spot to count.
+     * @return The availability of the spots of this type, or null if it could not be fetched.
+     */
+    SpotAvailability countParkingSpots(ParkingType parkingType);
+
+    /**
+     * Retrieves every parking spot.
+     * @return The list of parking spots, empty if they could not be fetched.
+     */
+    List<ParkingSpot> getAllParkingSpots();
+}
@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.storage;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Optional;
+
+/**
+ * Storage of the parking tickets, as used by the parking service for entries and exits.
+ * Implemented over JDBC by {@link com.parkit.parkingsystem.dao.TicketDAO} and in process by {@link InMemoryStore}.
+ * The batch jobs (repricing, export) stream the ticket table and stay on {@code TicketDAO}.
+ */
+public interface TicketStore {
+
+    /**
+     * Checks if a vehicle is currently parked, i.e. has a ticket without an out time.
+     * @param vehicleRegNumber The vehicle registration number to check.
+     * @return true if the vehicle is currently parked, false otherwise.
+     */
+    boolean isVehicleCurrentlyParked(String vehicleRegNumber);
+
+    /**
+     * Saves a ticket.
+     * @param ticket The ticket object to save.
+     * @return true if the ticket was saved successfully, false otherwise.
+     */
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * Claims the next available parking spot of the given type and saves the ticket on it, atomically:
+     * concurrent entries each claim a different spot.
+     * On success the ticket is updated with its parking spot and, when known, its generated ID.
+     * @param ticket The ticket to save, with its vehicle registration number and in time set.
+     * @param parkingType The type of parking spot to claim.
+     * @return The claimed parking spot, or null if none is available or the ticket could not be saved.
+     */
+    ParkingSpot saveTicketOnNextAvailableSlot(Ticket ticket, ParkingType parkingType);
+
+    /**
+     * Retrieves the open ticket of a parked vehicle. Closed tickets are never returned.
+     * @param vehicleRegNumber The vehicle registration number.
+     * @return An Optional containing the open ticket, or an empty Optional if the vehicle is not parked.
+     */
+    Optional<Ticket> getTicket(String vehicleRegNumber);
+
+    /**
+     * Updates the price and out time of a given ticket.
+     * @param ticket The ticket to update.
+     * @return true if the update was successful, false otherwise.
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * Retrieves the number of tickets associated with a specific vehicle registration number.
+     * @param vehicleRegNumber The vehicle registration number to check.
+     * @return The number of tickets found.
+     */
+    int getNbTicket(String vehicleRegNumber);
+}
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.tariff;
+
+/**
+ * Compiled rates of one vehicle type: the hourly rate of every minute of the week, stored as running totals
+ * so that the cost of any span of minutes is a difference of two lookups.
+ * Amounts are in cents per hour times minutes, 60 of which make a cent.
+ */
+public class RateTable {
+
+    /**
+     * Minutes in a week, the period of the table, starting on Monday at midnight.
+     */
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final long[] cumulative;
+    private final long dailyCapUnits;
+    // Running totals of the capped cost of whole days over two weeks from Monday, so any run of days fits
+    private final long[] cumulativeDays;
+
+    /**
+     * Compiles a rate table.
+     * @param centsPerHour the hourly rate in cents of each minute of the week, from Monday 00:00.
+     * @param dailyCapCents the maximum fare of a calendar day in cents, negative for none.
+     */
+    public RateTable(int[] centsPerHour, long dailyCapCents) {
+        if (centsPerHour.length != MINUTES_PER_WEEK) {
+            throw new IllegalArgumentException("A rate table has one rate per minute of the week");
+        }
+        cumulative = new long[MINUTES_PER_WEEK + 1];
+        for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+            cumulative[minute + 1] = cumulative[minute] + centsPerHour[minute];
+        }
+        dailyCapUnits = (dailyCapCents < 0) ? Long.MAX_VALUE : dailyCapCents * 60;
+        cumulativeDays = new long[2 * 7 + 1];
+        for (int day = 0; day < 2 * 7; day++) {
+            cumulativeDays[day + 1] = cumulativeDays[day] + dayUnits((day % 7) * MINUTES_PER_DAY, MINUTES_PER_DAY);
+        }
+    }
+
+    /**
+     * Gets the cost of a span of minutes within one calendar day, capped by the daily cap.
+     * @param minuteOfWeek the first minute of the span, from Monday 00:00.
+     * @param minutes the length of the span, not past the end of the day.
+     * @return the cost in cents per hour times minutes.
+     */
+    public long dayUnits(int minuteOfWeek, int minutes) {
+        return capDayUnits(spanUnits(minuteOfWeek, minutes));
+    }
+
+    /**
+     * Gets the cost of a span of minutes within one calendar day, without the daily cap.
+     * A day cut by a change of the zone offset is priced span by span, then capped as a whole.
+     * @param minuteOfWeek the first minute of the span, from Monday 00:00.
+     * @param minutes the length of the span, not past the end of the day.
+     * @return the cost in cents per hour times minutes.
+     */
+    public long spanUnits(int minuteOfWeek, int minutes) {
+        return cumulative[minuteOfWeek + minutes] - cumulative[minuteOfWeek];
+    }
+
+    /**
+     * Applies the daily cap to the cost of a calendar day.
+     * @param units the cost of the day in cents per hour times minutes.
+     * @return the capped cost.
+     */
+    public long capDayUnits(long units) {
+        return Math.min(units, dailyCapUnits);
+    }
+
+    /**
+     * Gets the cost of a run of whole days, each capped by the daily cap: full weeks at the cost of a week,
+     * then the remaining days, whatever the number of days.
+     * @param firstDayOfWeek the first day, 0 for Monday.
+     * @param days the number of days.
+     * @return the cost in cents per hour times minutes.
+     */
+    public long daysUnits(int firstDayOfWeek, long days) {
+        int remainingDays = (int) (days % 7);
+        return (days / 7) * cumulativeDays[7]
+                + cumulativeDays[firstDayOfWeek + remainingDays] - cumulativeDays[firstDayOfWeek];
+    }
+
+    /**
+     * Gets the hourly rate of a minute of the week.
+     * @param minuteOfWeek the minute, from Monday 00:00.
+     * @return the rate in cents per hour.
+     */
+    public long getCentsPerHour(int minuteOfWeek) {
+        return cumulative[minuteOfWeek + 1] - cumulative[minuteOfWeek];
+    }
+}
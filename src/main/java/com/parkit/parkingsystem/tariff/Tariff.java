@@ -0,0 +1,169 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Compiled, immutable set of fare rules: free minutes, recurring user discount, and one {@link RateTable}
+ * per vehicle type holding its time bands and daily cap. Built by {@link TariffLoader}, and shared by
+ * every thread pricing tickets; a new tariff replaces it as a whole.
+ */
+public class Tariff {
+
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+
+    private final int freeMinutes;
+    private final int recurringDiscountPercent;
+    private final ZoneId zone;
+    private final ZoneRules zoneRules;
+    private final Map<ParkingType, RateTable> rateTables;
+
+    /**
+     * Creates a tariff.
+     * @param freeMinutes the minutes free at the start of every stay; shorter stays are free.
+     * @param recurringDiscountPercent the discount of the recurring users, in percent.
+     * @param zone the time zone of the time bands and calendar days.
+     * @param rateTables the rate table of every vehicle type.
+     */
+    public Tariff(int freeMinutes, int recurringDiscountPercent, ZoneId zone, Map<ParkingType, RateTable> rateTables) {
+        this.freeMinutes = freeMinutes;
+        this.recurringDiscountPercent = recurringDiscountPercent;
+        this.zone = zone;
+        this.zoneRules = zone.getRules();
+        this.rateTables = new EnumMap<>(rateTables);
+    }
+
+    /**
+     * Builds the flat tariff of the {@link Fare} rates, 30 free minutes and a 5% recurring user discount,
+     * giving the same prices as {@code FareCalculatorService}.
+     * @return the default tariff.
+     */
+    public static Tariff defaultTariff() {
+        Map<ParkingType, RateTable> rateTables = new EnumMap<>(ParkingType.class);
+        rateTables.put(ParkingType.CAR, flatRateTable(TariffLoader.parseCents(String.valueOf(Fare.CAR_RATE_PER_HOUR))));
+        rateTables.put(ParkingType.BIKE, flatRateTable(TariffLoader.parseCents(String.valueOf(Fare.BIKE_RATE_PER_HOUR))));
+        return new Tariff(30, 5, ZoneId.systemDefault(), rateTables);
+    }
+
+    private static RateTable flatRateTable(int centsPerHour) {
+        int[] rates = new int[RateTable.MINUTES_PER_WEEK];
+        Arrays.fill(rates, centsPerHour);
+        return new RateTable(rates, -1);
+    }
+
+    /**
+     * Calculates the fare of a stay in cents. The chargeable minutes, after the free ones, are split at the
+     * local midnights, each day costing the sum of the rates of its minutes, up to the daily cap.
+     * Each minute is priced at its local time: on the 23 and 25 hour days of a change of the zone offset,
+     * the skipped hour is not charged and the repeated one is charged twice.
+     * The partial first and last days, and the days of an offset change, are priced from the rate table span by span,
+     * and the whole 24 hour days in between all at once by {@link RateTable#daysUnits(int, long)},
+     * so a 30 day stay costs little more than a 1 hour one.
+     * @param parkingType the type of the parking spot.
+     * @param inTimeMillis the in time, in epoch milliseconds.
+     * @param outTimeMillis the out time, in epoch milliseconds, not before the in time.
+     * @param discount true if the recurring user discount applies.
+     * @return the fare in cents, rounded half up.
+     * @throws IllegalArgumentException if the tariff has no rates for the parking type.
+     */
+    public long calculateFareInCents(ParkingType parkingType, long inTimeMillis, long outTimeMillis, boolean discount) {
+        RateTable rateTable = rateTables.get(parkingType);
+        if (rateTable == null) {
+            throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        long durationInMinutes = (outTimeMillis - inTimeMillis) / MILLIS_PER_MINUTE;
+        if (durationInMinutes <= freeMinutes) {
+            return 0;
+        }
+        long remaining = durationInMinutes - freeMinutes;
+        long time = inTimeMillis + freeMinutes * MILLIS_PER_MINUTE;
+        long units = 0;
+        while (remaining > 0) {
+            ZonedDateTime local = Instant.ofEpochMilli(time).atZone(zone);
+            if (local.getHour() == 0 && local.getMinute() == 0) {
+                long days = Math.min(remaining / MINUTES_PER_DAY, wholeDaysBeforeOffsetChange(time));
+                if (days > 0) {
+                    units += rateTable.daysUnits(local.getDayOfWeek().getValue() - 1, days);
+                    remaining -= days * MINUTES_PER_DAY;
+                    time += days * MILLIS_PER_DAY;
+                    continue;
+                }
+            }
+            long nextMidnight = local.truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant().toEpochMilli();
+            long dayUnits = 0;
+            // The day is priced span by span between the offset changes, each span at the local time of its minutes
+            while (remaining > 0 && time < nextMidnight) {
+                ZonedDateTime spanStart = Instant.ofEpochMilli(time).atZone(zone);
+                int minuteOfWeek = (spanStart.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+                        + spanStart.getHour() * 60 + spanStart.getMinute();
+                // Also ends at the local midnight of its start, which an offset change at midnight moves back
+                long spanEnd = Math.min(nextMidnight, spanStart.truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant().toEpochMilli());
+                ZoneOffsetTransition transition = zoneRules.nextTransition(spanStart.toInstant());
+                if (transition != null) {
+                    spanEnd = Math.min(spanEnd, transition.toEpochSecond() * 1000);
+                }
+                // A minute cut by the end of the span is charged at the local time it starts
+                int minutes = (int) Math.min(remaining, (spanEnd - time + MILLIS_PER_MINUTE - 1) / MILLIS_PER_MINUTE);
+                dayUnits += rateTable.spanUnits(minuteOfWeek, minutes);
+                remaining -= minutes;
+                time += minutes * MILLIS_PER_MINUTE;
+            }
+            units += rateTable.capDayUnits(dayUnits);
+        }
+        long cents = roundHalfUp(units, 60);
+        if (discount) {
+            cents = roundHalfUp(cents * (100 - recurringDiscountPercent), 100);
+        }
+        return cents;
+    }
+
+    private long wholeDaysBeforeOffsetChange(long time) {
+        ZoneOffsetTransition transition = zoneRules.nextTransition(Instant.ofEpochMilli(time));
+        if (transition == null) {
+            return Long.MAX_VALUE;
+        }
+        // The 24 hour days ending by the change; the day of the change is shorter or longer
+        return (transition.toEpochSecond() * 1000 - time) / MILLIS_PER_DAY;
+    }
+
+    private static long roundHalfUp(long numerator, long denominator) {
+        return (2 * numerator + denominator) / (2 * denominator);
+    }
+
+    /**
+     * Gets the minutes free at the start of every stay.
+     * @return the free minutes.
+     */
+    public int getFreeMinutes() {
+        return freeMinutes;
+    }
+
+    /**
+     * Gets the discount of the recurring users.
+     * @return the discount in percent.
+     */
+    public int getRecurringDiscountPercent() {
+        return recurringDiscountPercent;
+    }
+
+    /**
+     * Gets the rate table of a vehicle type.
+     * @param parkingType the vehicle type.
+     * @return the rate table, null if the tariff does not price this type.
+     */
+    public RateTable getRateTable(ParkingType parkingType) {
+        return rateTables.get(parkingType);
+    }
+}
@@ -0,0 +1,197 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads a tariff from a properties file and compiles it into a {@link Tariff}, once, so that pricing a stay
+ * never parses anything. The file looks like:
+ * <pre>
+ * freeMinutes=30
+ * recurringDiscountPercent=5
+ * zone=Europe/Paris
+ * car.rate=1.5
+ * car.dailyCap=15
+ * car.bands=night,weekend
+ * car.band.night.days=MON-FRI
+ * car.band.night.from=20:00
+ * car.band.night.to=08:00
+ * car.band.night.rate=0.75
+ * car.band.weekend.days=SAT,SUN
+ * car.band.weekend.rate=1
+ * bike.rate=1
+ * </pre>
+ * Every vehicle type needs a base hourly {@code rate}; amounts are in euros with at most 2 decimals.
+ * The free minutes, discount and zone default to 30, 5 and the system zone, and a type has no daily cap by default.
+ * A band applies from {@code from} (00:00 by default) to {@code to} (24:00 by default) on each of its days,
+ * running on into the next day when {@code to} is not after {@code from}; the bands are listed in order,
+ * the last one winning where they overlap.
+ */
+public class TariffLoader {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private TariffLoader() {
+    }
+
+    /**
+     * Reads and compiles a tariff file.
+     * @param file the properties file.
+     * @return the compiled tariff.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if the file is not a valid tariff.
+     */
+    public static Tariff load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return compile(properties);
+    }
+
+    /**
+     * Compiles a tariff from its properties.
+     * @param properties the tariff properties, as described above.
+     * @return the compiled tariff.
+     * @throws IllegalArgumentException if the properties are not a valid tariff.
+     */
+    public static Tariff compile(Properties properties) {
+        int freeMinutes = parseInt(properties, "freeMinutes", 30);
+        int recurringDiscountPercent = parseInt(properties, "recurringDiscountPercent", 5);
+        if (freeMinutes < 0 || recurringDiscountPercent < 0 || recurringDiscountPercent > 100) {
+            throw new IllegalArgumentException("Invalid free minutes or recurring discount");
+        }
+        ZoneId zone;
+        try {
+            zone = properties.containsKey("zone") ? ZoneId.of(properties.getProperty("zone").trim()) : ZoneId.systemDefault();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid zone: " + properties.getProperty("zone"), e);
+        }
+        Map<ParkingType, RateTable> rateTables = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            rateTables.put(parkingType, compileRateTable(properties, parkingType.name().toLowerCase()));
+        }
+        return new Tariff(freeMinutes, recurringDiscountPercent, zone, rateTables);
+    }
+
+    private static RateTable compileRateTable(Properties properties, String type) {
+        String rate = properties.getProperty(type + ".rate");
+        if (rate == null) {
+            throw new IllegalArgumentException("Missing property " + type + ".rate");
+        }
+        int[] rates = new int[RateTable.MINUTES_PER_WEEK];
+        Arrays.fill(rates, parseCents(rate));
+        String bands = properties.getProperty(type + ".bands", "").trim();
+        if (!bands.isEmpty()) {
+            for (String band : bands.split(",")) {
+                applyBand(properties, type + ".band." + band.trim(), rates);
+            }
+        }
+        String dailyCap = properties.getProperty(type + ".dailyCap");
+        return new RateTable(rates, (dailyCap == null) ? -1 : parseCents(dailyCap));
+    }
+
+    private static void applyBand(Properties properties, String prefix, int[] rates) {
+        String rate = properties.getProperty(prefix + ".rate");
+        String days = properties.getProperty(prefix + ".days");
+        if (rate == null || days == null) {
+            throw new IllegalArgumentException("Missing property " + prefix + ".rate or " + prefix + ".days");
+        }
+        int centsPerHour = parseCents(rate);
+        int from = parseTime(properties.getProperty(prefix + ".from", "00:00"));
+        int to = parseTime(properties.getProperty(prefix + ".to", "24:00"));
+        int length = (to > from) ? to - from : MINUTES_PER_DAY - from + to;
+        for (DayOfWeek day : parseDays(days)) {
+            int start = (day.getValue() - 1) * MINUTES_PER_DAY + from;
+            for (int minute = start; minute < start + length; minute++) {
+                // Sunday night runs on into Monday morning
+                rates[minute % RateTable.MINUTES_PER_WEEK] = centsPerHour;
+            }
+        }
+    }
+
+    /**
+     * Parses an amount in euros into whole cents.
+     * @param amount the amount, with at most 2 decimals.
+     * @return the amount in cents.
+     * @throws IllegalArgumentException if the amount is not a positive or zero number of whole cents.
+     */
+    static int parseCents(String amount) {
+        try {
+            int cents = new BigDecimal(amount.trim()).movePointRight(2).intValueExact();
+            if (cents < 0) {
+                throw new IllegalArgumentException("Negative amount: " + amount);
+            }
+            return cents;
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount, expected whole cents: " + amount, e);
+        }
+    }
+
+    private static int parseTime(String time) {
+        String[] parts = time.trim().split(":");
+        try {
+            int minutes = (parts.length == 2) ? Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]) : -1;
+            if (minutes < 0 || minutes > MINUTES_PER_DAY || Integer.parseInt(parts[1]) >= 60) {
+                throw new IllegalArgumentException("Invalid time, expected HH:mm: " + time);
+            }
+            return minutes;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time, expected HH:mm: " + time, e);
+        }
+    }
+
+    private static DayOfWeek[] parseDays(String days) {
+        boolean[] selected = new boolean[7];
+        for (String item : days.split(",")) {
+            String[] range = item.trim().split("-");
+            if (range.length > 2) {
+                throw new IllegalArgumentException("Invalid days: " + days);
+            }
+            DayOfWeek first = parseDay(range[0]);
+            DayOfWeek last = (range.length == 2) ? parseDay(range[1]) : first;
+            // A range may wrap around the week, as in FRI-MON
+            for (DayOfWeek day = first; ; day = day.plus(1)) {
+                selected[day.getValue() - 1] = true;
+                if (day == last) {
+                    break;
+                }
+            }
+        }
+        return Arrays.stream(DayOfWeek.values()).filter(day -> selected[day.getValue() - 1]).toArray(DayOfWeek[]::new);
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        String name = day.trim().toUpperCase();
+        if (name.length() >= 3) {
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                if (dayOfWeek.name().startsWith(name)) {
+                    return dayOfWeek;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid day: " + day);
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return (value == null) ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+        }
+    }
+}
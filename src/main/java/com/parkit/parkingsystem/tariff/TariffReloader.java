@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.tariff;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a tariff file and hands every new version of it, once compiled, to a consumer.
+ * A file that fails to load is logged and skipped, the consumer keeping the last good tariff.
+ * The file is only compiled again when its last modified time changes.
+ */
+public class TariffReloader implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TariffReloader");
+
+    private final Path file;
+    private ScheduledExecutorService scheduler;
+    private FileTime lastModified;
+
+    /**
+     * Creates a reloader, without loading the file yet.
+     * @param file the tariff file.
+     */
+    public TariffReloader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the file now, whether it changed or not, remembering its version.
+     * @return the compiled tariff.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if the file is not a valid tariff.
+     */
+    public synchronized Tariff load() throws IOException {
+        // Remembered before loading, so that a broken file is not reported again until it changes
+        lastModified = Files.getLastModifiedTime(file);
+        return TariffLoader.load(file);
+    }
+
+    /**
+     * Loads the file if it changed since the last load.
+     * @return the new tariff, null if the file did not change or could not be loaded.
+     */
+    public synchronized Tariff reload() {
+        try {
+            if (Files.getLastModifiedTime(file).equals(lastModified)) {
+                return null;
+            }
+            Tariff tariff = load();
+            logger.info("Tariff reloaded from {}", file);
+            return tariff;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Unable to load the tariff from {}, keeping the current one", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts checking the file for changes periodically, in a background thread.
+     * @param periodMillis the delay between two checks.
+     * @param consumer the consumer of the new tariffs, swapping them in.
+     */
+    public synchronized void start(long periodMillis, Consumer<Tariff> consumer) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tariff-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            Tariff tariff = reload();
+            if (tariff != null) {
+                consumer.accept(tariff);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
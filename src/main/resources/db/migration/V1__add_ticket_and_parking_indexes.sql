@@ -0,0 +1,7 @@
+/* Ticket lookups filter on the plate, then on the open ticket or the latest in time */
+create index IDX_TICKET_PLATE_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+create index IDX_TICKET_PLATE_OUT_TIME on ticket(VEHICLE_REG_NUMBER, OUT_TIME);
+/* Loading the open tickets at startup */
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+/* Next available spot of a given type */
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
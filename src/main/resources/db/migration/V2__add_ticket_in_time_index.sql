@@ -0,0 +1,2 @@
+/* Date range scans without a plate: exports and repricing */
+create index IDX_TICKET_IN_TIME on ticket(IN_TIME);
@@ -0,0 +1,3 @@
+/* Last write-behind journal record flushed to the database, updated in the same transaction as the records */
+create table journal_checkpoint(ID int PRIMARY KEY, LAST_SEQUENCE bigint NOT NULL);
+insert into journal_checkpoint(ID, LAST_SEQUENCE) values(1, 0);
@@ -0,0 +1,18 @@
+/* Several lots share a shard: spot numbers are unique per lot, and every query filters on the lot first */
+/* The foreign key of resources/Data.sql, named by MySQL, references the primary key being replaced */
+alter table ticket drop foreign key ticket_ibfk_1;
+alter table parking add column LOT_ID varchar(20) NOT NULL DEFAULT 'default';
+alter table parking drop primary key;
+alter table parking add primary key (LOT_ID, PARKING_NUMBER);
+alter table ticket add column LOT_ID varchar(20) NOT NULL DEFAULT 'default';
+alter table ticket add constraint FK_TICKET_PARKING foreign key (LOT_ID, PARKING_NUMBER) references parking(LOT_ID, PARKING_NUMBER);
+drop index IDX_PARKING_TYPE_AVAILABLE on parking;
+create index IDX_PARKING_LOT_TYPE_AVAILABLE on parking(LOT_ID, TYPE, AVAILABLE, PARKING_NUMBER);
+drop index IDX_TICKET_PLATE_IN_TIME on ticket;
+create index IDX_TICKET_LOT_PLATE_IN_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, IN_TIME);
+drop index IDX_TICKET_PLATE_OUT_TIME on ticket;
+create index IDX_TICKET_LOT_PLATE_OUT_TIME on ticket(LOT_ID, VEHICLE_REG_NUMBER, OUT_TIME);
+drop index IDX_TICKET_OUT_TIME on ticket;
+create index IDX_TICKET_LOT_OUT_TIME on ticket(LOT_ID, OUT_TIME);
+drop index IDX_TICKET_IN_TIME on ticket;
+create index IDX_TICKET_LOT_IN_TIME on ticket(LOT_ID, IN_TIME)
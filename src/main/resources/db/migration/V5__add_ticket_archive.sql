@@ -0,0 +1,20 @@
+/* Closed tickets moved out of the hot ticket table by the archival job.
+   IN_TIME is part of the primary key so that the table can be partitioned by range of IN_TIME on MySQL */
+create table ticket_archive(
+ ID int NOT NULL,
+ LOT_ID varchar(20) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE DOUBLE,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PARKING_TYPE varchar(10) NOT NULL,
+ PRIMARY KEY (ID, IN_TIME));
+create index IDX_TICKET_ARCHIVE_LOT_IN_TIME on ticket_archive(LOT_ID, IN_TIME);
+/* Per-plate summary of the archived tickets, added to the hot table when counting the visits of a vehicle */
+create table ticket_plate_summary(
+ LOT_ID varchar(20) NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ TICKET_COUNT int NOT NULL,
+ FIRST_IN_TIME DATETIME NOT NULL,
+ PRIMARY KEY (LOT_ID, VEHICLE_REG_NUMBER))
@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ActiveTicketCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveTicketCacheTest {
+
+    private ActiveTicketCache activeTicketCache;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        activeTicketCache = new ActiveTicketCache();
+    }
+
+    private static Ticket newTicket(int id, String vehicleRegNumber, Date inTime) {
+        ParkingSpot parkingSpot = new ParkingSpot(id, ParkingType.CAR, false);
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(inTime);
+        ticket.setParkingType(ParkingType.CAR);
+        return ticket;
+    }
+
+    @Test
+    public void loadReplacesTheCachedTickets() {
+        activeTicketCache.put(newTicket(1, "ABCDEF", new Date()));
+
+        activeTicketCache.load(Arrays.asList(newTicket(2, "GHIJKL", new Date()), newTicket(3, "MNOPQR", new Date())));
+
+        assertEquals(2, activeTicketCache.size());
+        assertFalse(activeTicketCache.contains("ABCDEF"));
+        assertTrue(activeTicketCache.contains("GHIJKL"));
+        assertEquals(3, activeTicketCache.get("MNOPQR").get().getId());
+        assertFalse(activeTicketCache.get("ABCDEF").isPresent());
+    }
+
+    @Test
+    public void ticketsAreCopiedInAndOut() {
+        Ticket ticket = newTicket(1, "ABCDEF", new Date());
+        activeTicketCache.put(ticket);
+        ticket.setId(2);
+
+        Ticket cached = activeTicketCache.get("ABCDEF").get();
+        cached.setOutTime(new Date());
+
+        assertEquals(1, cached.getId());
+        assertNull(activeTicketCache.get("ABCDEF").get().getOutTime());
+    }
+
+    @Test
+    public void onlyTheCachedTicketIsRemoved() {
+        activeTicketCache.put(newTicket(2, "ABCDEF", new Date()));
+
+        activeTicketCache.remove(newTicket(1, "ABCDEF", new Date()));
+        assertTrue(activeTicketCache.contains("ABCDEF"));
+        activeTicketCache.remove(newTicket(2, "ABCDEF", new Date()));
+        assertFalse(activeTicketCache.contains("ABCDEF"));
+    }
+
+    @Test
+    public void cachedTicketsKeepTheirLot() {
+        Ticket ticket = newTicket(1, "ABCDEF", new Date());
+        ticket.getParkingSpot().setLotId("north");
+        ticket.setLotId("north");
+
+        activeTicketCache.put(ticket);
+        Ticket cached = activeTicketCache.get("ABCDEF").get();
+
+        assertNotSame(ticket, cached);
+        assertEquals("north", cached.getLotId());
+        assertEquals("north", cached.getParkingSpot().getLotId());
+    }
+
+    @Test
+    public void reconcileFixesEveryDifferenceWithTheDatabase() {
+        Date snapshotTime = new Date();
+        Date before = new Date(snapshotTime.getTime() - 60_000);
+        activeTicketCache.put(newTicket(1, "LEFT", before));
+        activeTicketCache.put(newTicket(2, "STALE", before));
+        activeTicketCache.put(newTicket(3, "PARKED", before));
+        activeTicketCache.put(newTicket(4, "ENTERED", new Date(snapshotTime.getTime() + 1000)));
+
+        int differences = activeTicketCache.reconcile(Arrays.asList(newTicket(5, "STALE", before),
+                newTicket(3, "PARKED", before), newTicket(6, "MISSING", before)), snapshotTime);
+
+        assertEquals(3, differences);
+        assertFalse(activeTicketCache.contains("LEFT"));
+        assertEquals(5, activeTicketCache.get("STALE").get().getId());
+        assertEquals(3, activeTicketCache.get("PARKED").get().getId());
+        assertEquals(6, activeTicketCache.get("MISSING").get().getId());
+        // Entered after the database was read: the snapshot cannot tell
+        assertTrue(activeTicketCache.contains("ENTERED"));
+        assertEquals(0, activeTicketCache.reconcile(Collections.emptyList(), before));
+    }
+
+    @Test
+    public void consistencyCheckReconcilesTheCacheWithTheDatabase() throws SQLException {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("activeTickets");
+        dataBaseConfig.createSchema();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ActiveTicketCache loaded = ticketDAO.loadActiveTicketCache();
+        loaded.setConsistencyCheck(true);
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            // Written behind the back of the cache
+            statement.executeUpdate("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, PARKING_TYPE) "
+                    + "values(1, 'ABCDEF', 0, timestampadd(MINUTE, -5, now()), 'CAR')");
+        }
+        assertFalse(loaded.contains("ABCDEF"));
+
+        assertTrue(ticketDAO.isVehicleCurrentlyParked("ABCDEF"));
+        assertTrue(loaded.contains("ABCDEF"));
+
+        loaded.setConsistencyCheck(false);
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.executeUpdate("update ticket set OUT_TIME = now() where VEHICLE_REG_NUMBER = 'ABCDEF'");
+        }
+        assertTrue(ticketDAO.isVehicleCurrentlyParked("ABCDEF"));
+        loaded.setConsistencyCheck(true);
+        assertFalse(ticketDAO.isVehicleCurrentlyParked("ABCDEF"));
+        assertEquals(0, loaded.size());
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.replay.CameraLogReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraLogReaderTest {
+
+    private Path file;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        file = Files.createTempFile("camera", ".log");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void readsEveryTimeFormat() throws IOException {
+        Files.write(file, ("# buffered by gate 2\n"
+                + "1700000000000,IN,AB-123,CAR\n"
+                + "\n"
+                + "2023-11-14T22:13:20Z,out,AB-123\r\n"
+                + "2024-03-01T08:15:00,ENTRY,CD-456,bike").getBytes(StandardCharsets.UTF_8));
+        CameraLogReader reader = new CameraLogReader(file);
+        List<GateEvent> events = new ArrayList<>();
+
+        assertEquals(3, reader.read(events::add));
+
+        assertEquals(1700000000000L, events.get(0).getTime().getTime());
+        assertEquals(GateEventType.ENTRY, events.get(0).getType());
+        assertEquals(ParkingType.CAR, events.get(0).getParkingType());
+        assertEquals(1700000000000L, events.get(1).getTime().getTime());
+        assertEquals(GateEventType.EXIT, events.get(1).getType());
+        assertEquals("AB-123", events.get(1).getVehicleRegNumber());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 8, 15).atZone(ZoneId.systemDefault()).toInstant(),
+                events.get(2).getTime().toInstant());
+        assertEquals(ParkingType.BIKE, events.get(2).getParkingType());
+        assertEquals(0, reader.getMalformedLines());
+    }
+
+    @Test
+    public void skipsMalformedLines() throws IOException {
+        Files.write(file, ("1700000000000,IN,AB-123\n"
+                + "yesterday,OUT,AB-123\n"
+                + "1700000000000,PASS,AB-123\n"
+                + "1700000000000,OUT,AB-123\n").getBytes(StandardCharsets.UTF_8));
+        CameraLogReader reader = new CameraLogReader(file);
+        List<GateEvent> events = new ArrayList<>();
+
+        assertEquals(1, reader.read(events::add));
+
+        assertEquals(GateEventType.EXIT, events.get(0).getType());
+        assertEquals(3, reader.getMalformedLines());
+    }
+
+    @Test
+    public void readsLinesSpanningMappingWindows() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            log.append(1700000000000L + i).append(",IN,PLATE-").append(i).append(",CAR\n");
+        }
+        Files.write(file, log.toString().getBytes(StandardCharsets.UTF_8));
+        CameraLogReader reader = new CameraLogReader(file);
+        reader.setWindowSize(64);
+        List<GateEvent> events = new ArrayList<>();
+
+        assertEquals(100, reader.read(events::add));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("PLATE-" + i, events.get(i).getVehicleRegNumber());
+            assertEquals(1700000000000L + i, events.get(i).getTime().getTime());
+        }
+    }
+
+    @Test
+    public void rejectsLinesLongerThanTheWindow() throws IOException {
+        Files.write(file, "1700000000000,IN,AB-123,CAR\n1700000000000,OUT,AB-123\n".getBytes(StandardCharsets.UTF_8));
+        CameraLogReader reader = new CameraLogReader(file);
+        reader.setWindowSize(16);
+
+        assertThrows(IOException.class, () -> reader.read(event -> { }));
+    }
+}
@@ -0,0 +1,214 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.PoolConfig;
+import com.parkit.parkingsystem.config.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private List<Connection> physicalConnections;
+    private List<PreparedStatement> physicalStatements;
+    private PoolConfig config;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        physicalConnections = new ArrayList<>();
+        physicalStatements = new ArrayList<>();
+        config = new PoolConfig();
+        config.setMinIdle(0);
+        config.setMaxSize(2);
+        config.setAcquireTimeoutMillis(100);
+        config.setHousekeepingIntervalMillis(60000);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool() {
+        pool = new ConnectionPool("test", () -> {
+            Connection connection = mock(Connection.class);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                PreparedStatement statement = mock(PreparedStatement.class);
+                when(statement.executeQuery()).thenReturn(mock(ResultSet.class));
+                physicalStatements.add(statement);
+                return statement;
+            });
+            physicalConnections.add(connection);
+            return connection;
+        }, config);
+        return pool;
+    }
+
+    @Test
+    public void closedConnectionIsReused() throws Exception {
+        newPool();
+
+        pool.borrow().close();
+        pool.borrow().close();
+
+        assertEquals(1, physicalConnections.size());
+        verify(physicalConnections.get(0), never()).close();
+        PoolStats stats = pool.getStats();
+        assertEquals(2, stats.getBorrowCount());
+        assertEquals(1, stats.getIdleConnections());
+        assertEquals(0, stats.getActiveConnections());
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws Exception {
+        newPool();
+        pool.borrow();
+        pool.borrow();
+
+        assertThrows(SQLException.class, () -> pool.borrow());
+        assertEquals(1, pool.getStats().getTimeoutCount());
+    }
+
+    @Test
+    public void invalidConnectionIsDiscardedOnBorrow() throws Exception {
+        config.setValidationIdleThresholdMillis(0);
+        newPool();
+        pool.borrow().close();
+        when(physicalConnections.get(0).isValid(anyInt())).thenReturn(false);
+
+        pool.borrow();
+
+        assertEquals(2, physicalConnections.size());
+        verify(physicalConnections.get(0)).close();
+    }
+
+    @Test
+    public void recentlyReturnedConnectionIsNotValidated() throws Exception {
+        newPool();
+        pool.borrow().close();
+
+        pool.borrow().close();
+
+        assertEquals(1, physicalConnections.size());
+        verify(physicalConnections.get(0), never()).isValid(anyInt());
+    }
+
+    @Test
+    public void batchBorrowsHaveTheirOwnLeakThreshold() throws Exception {
+        config.setHousekeepingIntervalMillis(10);
+        config.setLeakDetectionThresholdMillis(20);
+        config.setBatchLeakDetectionThresholdMillis(0);
+        newPool();
+
+        pool.borrowForBatch();
+        Thread.sleep(100);
+        assertEquals(0, pool.getStats().getLeakCount());
+
+        pool.borrow();
+        Thread.sleep(100);
+        assertEquals(1, pool.getStats().getLeakCount());
+    }
+
+    @Test
+    public void returnedConnectionCannotBeUsedAnymore() throws Exception {
+        newPool();
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("select 1"));
+    }
+
+    @Test
+    public void pendingTransactionIsRolledBackOnReturn() throws Exception {
+        newPool();
+        Connection connection = pool.borrow();
+        when(physicalConnections.get(0).getAutoCommit()).thenReturn(false);
+
+        connection.close();
+
+        verify(physicalConnections.get(0)).rollback();
+        verify(physicalConnections.get(0)).setAutoCommit(true);
+    }
+
+    @Test
+    public void preparedStatementIsReusedAcrossBorrows() throws Exception {
+        newPool();
+        Connection connection = pool.borrow();
+        PreparedStatement ps = connection.prepareStatement("select 1");
+        ps.setString(1, "ABCDEF");
+        ResultSet rs = ps.executeQuery();
+        ps.close();
+        connection.close();
+
+        connection = pool.borrow();
+        connection.prepareStatement("select 1").executeQuery();
+
+        verify(physicalConnections.get(0), times(1)).prepareStatement("select 1");
+        verify(rs).close();
+        PoolStats stats = pool.getStats();
+        assertEquals(1, stats.getStatementCacheHits());
+        assertEquals(1, stats.getStatementCacheMisses());
+    }
+
+    @Test
+    public void statementWithChangedSettingsIsNotReused() throws Exception {
+        newPool();
+        Connection connection = pool.borrow();
+        PreparedStatement ps = connection.prepareStatement("select 1");
+        ps.setFetchSize(100);
+        ps.close();
+
+        connection.prepareStatement("select 1");
+
+        verify(physicalConnections.get(0), times(2)).prepareStatement("select 1");
+        assertEquals(0, pool.getStats().getStatementCacheHits());
+    }
+
+    @Test
+    public void statementLeftOpenIsClosedOnReturn() throws Exception {
+        newPool();
+        Connection connection = pool.borrow();
+        connection.prepareStatement("select 1");
+        connection.prepareStatement("select 2").close();
+
+        connection.close();
+
+        verify(physicalStatements.get(0)).close();
+        verify(physicalStatements.get(1), never()).close();
+        connection = pool.borrow();
+        connection.prepareStatement("select 1");
+        connection.prepareStatement("select 2");
+        assertEquals(3, physicalStatements.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() throws Exception {
+        config.setStatementCacheSize(1);
+        newPool();
+        Connection connection = pool.borrow();
+        connection.prepareStatement("select 1").close();
+        connection.prepareStatement("select 2").close();
+        connection.prepareStatement("select 1").close();
+
+        verify(physicalConnections.get(0), times(2)).prepareStatement("select 1");
+        assertEquals(0, pool.getStats().getStatementCacheHits());
+    }
+}
@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ReplayReport;
+import com.parkit.parkingsystem.service.EventReplayService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EventReplayServiceTest {
+
+    @Mock
+    private ParkingSystem parkingSystem;
+    @Mock
+    private ParkingService parkingService;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+
+    private Path file;
+    private EventReplayService replayService;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        lenient().when(parkingSystem.getTicketDAO()).thenReturn(ticketDAO);
+        lenient().when(parkingSystem.getParkingService()).thenReturn(parkingService);
+        file = Files.createTempFile("camera", ".log");
+        Files.write(file, ("1000,IN,AB-123,CAR\n"
+                + "2000,IN,CD-456,BIKE\n"
+                + "3000,OUT,AB-123\n"
+                + "4000,OUT,EF-789\n"
+                + "garbage\n").getBytes(StandardCharsets.UTF_8));
+        replayService = new EventReplayService(parkingSystem);
+        replayService.setBatchSize(2);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void replaysEventsInBatchedTransactionsWithTheirRecordedTimes() throws Exception {
+        when(parkingService.enter(any(), any(), any())).thenReturn(new EntryResult(GateStatus.OK, "plate", null, false));
+        when(parkingService.exit("AB-123", new Date(3000))).thenReturn(new ExitResult(GateStatus.OK, "AB-123", null, false));
+        doReturn(ExitResult.rejected(GateStatus.TICKET_NOT_FOUND, "EF-789")).when(parkingService).exit("EF-789", new Date(4000));
+
+        ReplayReport report = replayService.replay(file);
+
+        assertEquals(4, report.getEventsRead());
+        assertEquals(3, report.getEventsApplied());
+        assertEquals(1, report.getEventsRejected());
+        assertEquals(0, report.getEventsFailed());
+        assertEquals(1, report.getMalformedLines());
+        InOrder inOrder = inOrder(dataBaseConfig, parkingService);
+        inOrder.verify(dataBaseConfig).beginTransaction();
+        inOrder.verify(parkingService).enter("AB-123", ParkingType.CAR, new Date(1000));
+        inOrder.verify(parkingService).enter("CD-456", ParkingType.BIKE, new Date(2000));
+        inOrder.verify(dataBaseConfig).commitTransaction();
+        inOrder.verify(dataBaseConfig).beginTransaction();
+        inOrder.verify(parkingService).exit("AB-123", new Date(3000));
+        inOrder.verify(parkingService).exit("EF-789", new Date(4000));
+        inOrder.verify(dataBaseConfig).commitTransaction();
+        verify(parkingSystem, never()).reloadCaches();
+    }
+
+    @Test
+    public void failedCommitRollsBackTheBatchAndReloadsTheCaches() throws Exception {
+        when(parkingService.enter(any(), any(), any())).thenReturn(new EntryResult(GateStatus.OK, "plate", null, false));
+        when(parkingService.exit(any(), any())).thenReturn(new ExitResult(GateStatus.OK, "plate", null, false));
+        doThrow(new SQLException("Connection lost")).doNothing().when(dataBaseConfig).commitTransaction();
+
+        ReplayReport report = replayService.replay(file);
+
+        assertEquals(2, report.getEventsApplied());
+        assertEquals(2, report.getEventsFailed());
+        verify(dataBaseConfig, times(1)).rollbackTransaction();
+        verify(parkingSystem, times(1)).reloadCaches();
+    }
+}
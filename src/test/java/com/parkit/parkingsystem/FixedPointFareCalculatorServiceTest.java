@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FixedPointFareCalculatorService;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential test: the fixed-point calculator must give exactly the same results as FareCalculatorService.
+ */
+public class FixedPointFareCalculatorServiceTest {
+
+    private static FareCalculatorService fareCalculatorService;
+    private static FixedPointFareCalculatorService fixedPointFareCalculatorService;
+    private static Level fareCalculatorLogLevel;
+
+    @BeforeAll
+    private static void setUp() {
+        // The reference calculator logs every price at DEBUG
+        fareCalculatorLogLevel = LogManager.getLogger("FareCalculatorService").getLevel();
+        Configurator.setLevel("FareCalculatorService", Level.WARN);
+        fareCalculatorService = new FareCalculatorService();
+        fixedPointFareCalculatorService = new FixedPointFareCalculatorService();
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        Configurator.setLevel("FareCalculatorService", fareCalculatorLogLevel);
+    }
+
+    private static Ticket newTicket(ParkingType parkingType, long durationMillis) {
+        Date outTime = new Date();
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setInTime(new Date(outTime.getTime() - durationMillis));
+        ticket.setOutTime(outTime);
+        return ticket;
+    }
+
+    private static void assertSameFare(ParkingType parkingType, long durationMillis, boolean discount) {
+        Ticket expected = newTicket(parkingType, durationMillis);
+        Ticket actual = newTicket(parkingType, durationMillis);
+        actual.setInTime(expected.getInTime());
+        actual.setOutTime(expected.getOutTime());
+
+        fareCalculatorService.calculateFare(expected, discount);
+        fixedPointFareCalculatorService.calculateFare(actual, discount);
+
+        String stay = parkingType + " " + durationMillis + "ms discount=" + discount;
+        assertEquals(Double.doubleToLongBits(expected.getPrice()), Double.doubleToLongBits(actual.getPrice()), stay);
+        assertEquals(expected.getPriceText(), actual.getPriceText(), stay);
+    }
+
+    @Test
+    public void sameFareForEveryMinuteOfTheFirstWeek() {
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (long minutes = 0; minutes <= 7 * 24 * 60; minutes++) {
+                assertSameFare(parkingType, minutes * 60000, false);
+                assertSameFare(parkingType, minutes * 60000, true);
+            }
+        }
+    }
+
+    @Test
+    public void sameFareForPartialMinutesAndLongStays() {
+        long[] durations = {1, 59999, 30 * 60000 + 59999, 31 * 60000 + 1, 365L * 24 * 3600000 + 12345, 10L * 365 * 24 * 3600000};
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (long duration : durations) {
+                assertSameFare(parkingType, duration, false);
+                assertSameFare(parkingType, duration, true);
+            }
+        }
+    }
+
+    @Test
+    public void priceTextIsFormattedWhenRead() {
+        Ticket ticket = newTicket(ParkingType.CAR, 90 * 60000);
+
+        fixedPointFareCalculatorService.calculateFare(ticket, false);
+
+        assertEquals(1.5, ticket.getPrice());
+        assertEquals(String.format("%.2f EUR", 1.5), ticket.getPriceText());
+    }
+
+    @Test
+    public void outTimeBeforeInTimeIsRejected() {
+        Ticket ticket = newTicket(ParkingType.CAR, -60000);
+
+        assertThrows(IllegalArgumentException.class, () -> fixedPointFareCalculatorService.calculateFare(ticket, false));
+    }
+}
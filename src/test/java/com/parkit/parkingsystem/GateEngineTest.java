@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateEngine;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GateEngineTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    @Test
+    public void commandsCompleteWithTheirResult() throws Exception {
+        EntryResult entryResult = new EntryResult(GateStatus.OK, "ABCDEF", new Ticket(), false);
+        when(parkingService.enter("ABCDEF", ParkingType.CAR)).thenReturn(entryResult);
+        when(parkingService.exit("GHIJKL")).thenReturn(ExitResult.rejected(GateStatus.TICKET_NOT_FOUND, "GHIJKL"));
+
+        try (GateEngine gateEngine = new GateEngine(parkingService, 2, 10)) {
+            assertSame(entryResult, gateEngine.submitEntry("ABCDEF", ParkingType.CAR).get(5, TimeUnit.SECONDS));
+            assertEquals(GateStatus.TICKET_NOT_FOUND, gateEngine.submitExit("GHIJKL").get(5, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    @Test
+    public void submitBlocksWhileTheEngineIsSaturated() throws Exception {
+        CountDownLatch entryStarted = new CountDownLatch(1);
+        CountDownLatch releaseEntry = new CountDownLatch(1);
+        when(parkingService.enter("ABCDEF", ParkingType.CAR)).thenAnswer(invocation -> {
+            entryStarted.countDown();
+            releaseEntry.await();
+            return new EntryResult(GateStatus.OK, "ABCDEF", new Ticket(), false);
+        });
+        when(parkingService.exit("GHIJKL")).thenReturn(new ExitResult(GateStatus.OK, "GHIJKL", new Ticket(), false));
+
+        try (GateEngine gateEngine = new GateEngine(parkingService, 1, 0)) {
+            CompletableFuture<EntryResult> entry = gateEngine.submitEntry("ABCDEF", ParkingType.CAR);
+            assertTrue(entryStarted.await(5, TimeUnit.SECONDS));
+            CompletableFuture<CompletableFuture<ExitResult>> exitSubmission = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return gateEngine.submitExit("GHIJKL");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            Thread.sleep(200);
+            assertFalse(exitSubmission.isDone());
+
+            releaseEntry.countDown();
+            assertTrue(entry.get(5, TimeUnit.SECONDS).isSuccess());
+            assertTrue(exitSubmission.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).isSuccess());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.http.GateHttpServer;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingLots;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.storage.InMemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GateHttpServerTest {
+
+    @Mock
+    private ParkingService parkingService;
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private GateHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        server = new GateHttpServer(parkingService, parkingSpotDAO, new InetSocketAddress("localhost", 0), 2);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        server.close();
+    }
+
+    private HttpResponse<String> post(String path, String form) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void entryParksTheVehicle() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(3, ParkingType.CAR, false));
+        ticket.setInTime(new Date(0));
+        when(parkingService.enter("AB-123", ParkingType.CAR)).thenReturn(new EntryResult(GateStatus.OK, "AB-123", ticket, true));
+
+        HttpResponse<String> response = post("/entry", "plate=AB-123&type=car");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"status\":\"OK\",\"plate\":\"AB-123\",\"spot\":3,\"inTime\":\"1970-01-01T00:00:00Z\",\"recurringUser\":true}",
+                response.body());
+    }
+
+    @Test
+    public void entryWithoutTypeIsRejected() throws Exception {
+        HttpResponse<String> response = post("/entry?plate=AB-123", "");
+
+        assertEquals(400, response.statusCode());
+        assertEquals("{\"status\":\"ERROR\",\"message\":\"Missing parameter: type\"}", response.body());
+        verifyZeroInteractions(parkingService);
+    }
+
+    @Test
+    public void exitOfAnUnknownVehicle() throws Exception {
+        when(parkingService.exit("AB-123")).thenReturn(ExitResult.rejected(GateStatus.TICKET_NOT_FOUND, "AB-123"));
+
+        HttpResponse<String> response = post("/exit", "plate=AB-123");
+
+        assertEquals(404, response.statusCode());
+        assertEquals("{\"status\":\"TICKET_NOT_FOUND\",\"plate\":\"AB-123\"}", response.body());
+    }
+
+    @Test
+    public void availabilityOfEveryType() throws Exception {
+        doReturn(new SpotAvailability(ParkingType.CAR, 2, 3)).when(parkingSpotDAO).getAvailability(ParkingType.CAR);
+        doReturn(new SpotAvailability(ParkingType.BIKE, 0, 2)).when(parkingSpotDAO).getAvailability(ParkingType.BIKE);
+
+        HttpResponse<String> response = get("/availability");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"CAR\":{\"available\":2,\"total\":3},\"BIKE\":{\"available\":0,\"total\":2}}", response.body());
+        assertEquals(405, post("/availability", "").statusCode());
+    }
+
+    @Test
+    public void requestsAreRoutedToTheirLot() throws Exception {
+        InMemoryStore north = new InMemoryStore(2, 1);
+        InMemoryStore south = new InMemoryStore(1, 1);
+        north.setLotId("north");
+        south.setLotId("south");
+        ParkingLots parkingLots = new ParkingLots();
+        parkingLots.add("north", new ParkingSystem(null, north, north));
+        parkingLots.add("south", new ParkingSystem(null, south, south));
+        server.close();
+        server = new GateHttpServer(parkingLots, new InetSocketAddress("localhost", 0), 2);
+        server.start();
+
+        assertEquals(200, post("/entry", "plate=AB-123&type=car&lot=north").statusCode());
+        assertEquals(200, post("/entry", "plate=AB-123&type=car&lot=south").statusCode());
+
+        assertTrue(north.isVehicleCurrentlyParked("AB-123"));
+        assertEquals("south", south.getTicket("AB-123").get().getLotId());
+        assertEquals("{\"CAR\":{\"available\":1,\"total\":2},\"BIKE\":{\"available\":1,\"total\":1}}",
+                get("/availability?lot=north").body());
+        assertEquals(409, post("/entry", "plate=CD-456&type=car&lot=south").statusCode());
+        HttpResponse<String> response = post("/exit", "plate=AB-123&lot=east");
+        assertEquals(400, response.statusCode());
+        assertEquals("{\"status\":\"ERROR\",\"message\":\"Unknown parking lot: east\"}", response.body());
+        assertEquals(400, post("/exit", "plate=AB-123").statusCode());
+    }
+}
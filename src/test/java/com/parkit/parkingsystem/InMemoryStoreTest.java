@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.storage.InMemoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStoreTest {
+
+    private InMemoryStore store;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        store = new InMemoryStore(2, 1);
+        parkingService = new ParkingService(null, store, store);
+    }
+
+    @Test
+    public void entryAndExitGoThroughTheStore() {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * 3600_000L);
+        EntryResult entry = parkingService.enter("ABCDEF", ParkingType.CAR, inTime);
+
+        assertEquals(GateStatus.OK, entry.getStatus());
+        assertEquals(1, entry.getTicket().getParkingSpot().getId());
+        assertTrue(store.isVehicleCurrentlyParked("ABCDEF"));
+        assertFalse(store.getParkingSpot(1).isAvailable());
+        assertEquals(1, store.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(GateStatus.ALREADY_PARKED, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+
+        ExitResult exit = parkingService.exit("ABCDEF");
+
+        assertEquals(GateStatus.OK, exit.getStatus());
+        assertEquals(2.25, exit.getFare(), 0.01);
+        assertFalse(store.isVehicleCurrentlyParked("ABCDEF"));
+        assertTrue(store.getParkingSpot(1).isAvailable());
+        assertEquals(2.25, exit.getTicket().getPrice(), 0.01);
+        assertFalse(store.getTicket("ABCDEF").isPresent());
+        assertEquals(1, store.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    public void vehicleThatAlreadyLeftCannotExitAgain() {
+        store = new InMemoryStore(1, 0);
+        parkingService = new ParkingService(null, store, store);
+        parkingService.enter("AAAAAA", ParkingType.CAR, new Date(System.currentTimeMillis() - 2 * 3600_000L));
+        double fare = parkingService.exit("AAAAAA").getFare();
+        parkingService.enter("BBBBBB", ParkingType.CAR);
+
+        ExitResult exit = parkingService.exit("AAAAAA");
+
+        assertEquals(GateStatus.TICKET_NOT_FOUND, exit.getStatus());
+        assertFalse(store.getParkingSpot(1).isAvailable());
+        assertEquals(0, store.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(GateStatus.NO_SPOT_AVAILABLE, parkingService.enter("CCCCCC", ParkingType.CAR).getStatus());
+        assertEquals(1, store.getNbTicket("AAAAAA"));
+        assertFalse(store.getTicket("AAAAAA").isPresent());
+        assertTrue(store.isVehicleCurrentlyParked("BBBBBB"));
+        assertEquals(2.25, fare, 0.01);
+    }
+
+    @Test
+    public void ticketsAreCopiedInAndOut() {
+        store.saveTicketOnNextAvailableSlot(newTicket("ABCDEF"), ParkingType.BIKE);
+
+        Ticket ticket = store.getTicket("ABCDEF").get();
+        assertEquals(3, ticket.getParkingSpot().getId());
+        ticket.setOutTime(new Date());
+
+        assertNull(store.getTicket("ABCDEF").get().getOutTime());
+        assertNull(store.saveTicketOnNextAvailableSlot(newTicket("GHIJKL"), ParkingType.BIKE));
+    }
+
+    @Test
+    public void snapshotIsRestored() throws Exception {
+        parkingService.enter("ABCDEF", ParkingType.CAR, new Date(System.currentTimeMillis() - 3600_000L));
+        parkingService.exit("ABCDEF");
+        parkingService.enter("ABCDEF", ParkingType.CAR);
+        parkingService.enter("GHIJKL", ParkingType.BIKE);
+        Path file = Files.createTempDirectory("store").resolve("store.snapshot");
+
+        store.snapshot(file);
+        InMemoryStore restored = InMemoryStore.restore(file);
+
+        assertEquals(2, restored.getNbTicket("ABCDEF"));
+        assertTrue(restored.isVehicleCurrentlyParked("ABCDEF"));
+        assertTrue(restored.isVehicleCurrentlyParked("GHIJKL"));
+        assertEquals(1, restored.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(0, restored.getAvailability(ParkingType.BIKE).getAvailable());
+        assertEquals(store.getTicket("ABCDEF").get().getId(), restored.getTicket("ABCDEF").get().getId());
+        Ticket ticket = newTicket("MNOPQR");
+        restored.saveTicketOnNextAvailableSlot(ticket, ParkingType.CAR);
+        assertEquals(4, ticket.getId());
+    }
+
+    private Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+}
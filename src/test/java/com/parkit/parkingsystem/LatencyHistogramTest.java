@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.LatencySnapshot;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinThePrecisionOfTheBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(5000000, histogram.getValueAtPercentile(50), 5000000 * 0.032);
+        assertEquals(9900000, histogram.getValueAtPercentile(99), 9900000 * 0.032);
+        assertEquals(10000000, histogram.getValueAtPercentile(100));
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(5000.5, snapshot.getMeanMicros(), 0.001);
+        assertEquals(10000, snapshot.getMaxMicros(), 0.001);
+    }
+
+    @Test
+    public void smallAndHugeValuesAreRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertTrue(histogram.getValueAtPercentile(100) > 1000L * 1000 * 1000 * 1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void latenciesAreExposedOverJmx() throws Exception {
+        Metrics.histogram("LatencyHistogramTest.operation").record(2000);
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData[] latencies = (CompositeData[]) server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=Metrics"), "Latencies");
+        boolean found = false;
+        for (CompositeData latency : latencies) {
+            if ("LatencyHistogramTest.operation".equals(latency.get("name"))) {
+                found = true;
+                assertEquals(1L, latency.get("count"));
+            }
+        }
+        assertTrue(found);
+        assertTrue(Metrics.dump().contains("LatencyHistogramTest.operation"));
+    }
+}
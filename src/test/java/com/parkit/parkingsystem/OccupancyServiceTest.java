@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.SpotAvailability;
+import com.parkit.parkingsystem.service.OccupancyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OccupancyServiceTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private OccupancyService occupancyService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        doReturn(new SpotAvailability(ParkingType.CAR, 2, 3)).when(parkingSpotDAO).countParkingSpots(ParkingType.CAR);
+        doReturn(new SpotAvailability(ParkingType.BIKE, 2, 2)).when(parkingSpotDAO).countParkingSpots(ParkingType.BIKE);
+        occupancyService = new OccupancyService(parkingSpotDAO);
+        assertTrue(occupancyService.load());
+    }
+
+    @Test
+    public void entriesAndExitsMoveTheCounters() {
+        List<SpotAvailability> notified = new ArrayList<>();
+        occupancyService.addListener(notified::add);
+
+        occupancyService.vehicleEntered(ParkingType.CAR);
+        occupancyService.vehicleEntered(ParkingType.BIKE);
+        occupancyService.vehicleLeft(ParkingType.CAR);
+
+        assertEquals(2, occupancyService.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(3, occupancyService.getAvailability(ParkingType.CAR).getTotal());
+        assertEquals(1, occupancyService.getAvailability(ParkingType.BIKE).getAvailable());
+        assertEquals(3, notified.size());
+        assertEquals(1, notified.get(0).getAvailable());
+        assertEquals(ParkingType.BIKE, notified.get(1).getParkingType());
+    }
+
+    @Test
+    public void driftIsCorrectedOnceConfirmedByTwoReconciliations() {
+        // A spot freed directly in the database
+        doReturn(new SpotAvailability(ParkingType.CAR, 3, 3)).when(parkingSpotDAO).countParkingSpots(ParkingType.CAR);
+
+        assertEquals(0, occupancyService.reconcile());
+        assertEquals(2, occupancyService.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(1, occupancyService.reconcile());
+        assertEquals(3, occupancyService.getAvailability(ParkingType.CAR).getAvailable());
+        assertEquals(0, occupancyService.reconcile());
+    }
+
+    @Test
+    public void transientDriftIsNotCorrected() {
+        // An entry committed to the database, counted before the next reconciliation
+        doReturn(new SpotAvailability(ParkingType.CAR, 1, 3)).when(parkingSpotDAO).countParkingSpots(ParkingType.CAR);
+        occupancyService.reconcile();
+        occupancyService.vehicleEntered(ParkingType.CAR);
+
+        assertEquals(0, occupancyService.reconcile());
+        assertEquals(1, occupancyService.getAvailability(ParkingType.CAR).getAvailable());
+    }
+}
@@ -1,10 +1,14 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.constants.GateStatus;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OccupancyService;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 
@@ -23,6 +27,7 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,20 +70,128 @@ public class ParkingServiceTest {
     @Test
     public void testProcessIncomingVehicle() throws Exception {
     when(inputReaderUtil.readSelection()).thenReturn(1); // Simulate a valid vehicle type selection
-    ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, true);
-    when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(parkingSpot);
+    ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+    when(ticketDAO.saveTicketOnNextAvailableSlot(any(Ticket.class), any(ParkingType.class))).thenReturn(parkingSpot);
     when(ticketDAO.isVehicleCurrentlyParked(anyString())).thenReturn(false);
     when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
 
     parkingService.processIncomingVehicle();
 
     verify(inputReaderUtil, times(1)).readVehicleRegistrationNumber();
-    verify(parkingSpotDAO, times(1)).getNextAvailableSlot(any(ParkingType.class));
-    verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
-    verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
+    verify(ticketDAO, times(1)).saveTicketOnNextAvailableSlot(any(Ticket.class), eq(ParkingType.CAR));
+    verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
     verify(ticketDAO, times(1)).getNbTicket(anyString()); // Check for recurring user
 }
 
+    @Test
+    public void testProcessIncomingVehicleNoSpotAvailable() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(ticketDAO.isVehicleCurrentlyParked(anyString())).thenReturn(false);
+        when(ticketDAO.saveTicketOnNextAvailableSlot(any(Ticket.class), any(ParkingType.class))).thenReturn(null);
+
+        parkingService.processIncomingVehicle();
+
+        verify(ticketDAO, times(1)).saveTicketOnNextAvailableSlot(any(Ticket.class), eq(ParkingType.CAR));
+        verify(ticketDAO, never()).getNbTicket(anyString());
+    }
+
+    @Test
+    public void testEnterReturnsTheAllocatedSpot() {
+        ParkingSpot parkingSpot = new ParkingSpot(4, ParkingType.BIKE, false);
+        when(ticketDAO.isVehicleCurrentlyParked("GHIJKL")).thenReturn(false);
+        when(ticketDAO.saveTicketOnNextAvailableSlot(any(Ticket.class), eq(ParkingType.BIKE))).thenAnswer(invocation -> {
+            invocation.<Ticket>getArgument(0).setParkingSpot(parkingSpot);
+            return parkingSpot;
+        });
+        when(ticketDAO.getNbTicket("GHIJKL")).thenReturn(2);
+
+        EntryResult result = parkingService.enter("GHIJKL", ParkingType.BIKE);
+
+        assertEquals(GateStatus.OK, result.getStatus());
+        assertEquals(4, result.getParkingSpot().getId());
+        assertNotNull(result.getInTime());
+        assertTrue(result.isRecurringUser());
+        verifyNoMoreInteractions(inputReaderUtil);
+    }
+
+    @Test
+    public void testEnterVehicleAlreadyParked() {
+        when(ticketDAO.isVehicleCurrentlyParked("GHIJKL")).thenReturn(true);
+
+        EntryResult result = parkingService.enter("GHIJKL", ParkingType.CAR);
+
+        assertEquals(GateStatus.ALREADY_PARKED, result.getStatus());
+        assertNull(result.getTicket());
+        verify(ticketDAO, never()).saveTicketOnNextAvailableSlot(any(Ticket.class), any(ParkingType.class));
+    }
+
+    @Test
+    public void testExitReturnsTheFare() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber("GHIJKL");
+        when(ticketDAO.getTicket("GHIJKL")).thenReturn(Optional.of(ticket));
+        when(ticketDAO.getNbTicket("GHIJKL")).thenReturn(1);
+
+        ExitResult result = parkingService.exit("GHIJKL");
+
+        assertEquals(GateStatus.OK, result.getStatus());
+        assertEquals(0.75, result.getFare());
+        assertFalse(result.isDiscount());
+        assertEquals(60, result.getDurationMinutes());
+        assertTrue(parkingSpot.isAvailable());
+        verifyNoMoreInteractions(inputReaderUtil);
+    }
+
+    @Test
+    public void testExitTicketNotFound() {
+        when(ticketDAO.getTicket("GHIJKL")).thenReturn(Optional.empty());
+
+        ExitResult result = parkingService.exit("GHIJKL");
+
+        assertEquals(GateStatus.TICKET_NOT_FOUND, result.getStatus());
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void testExitOfAVehicleThatAlreadyLeft() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, true);
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (2 * 60 * 60 * 1000)));
+        ticket.setOutTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        ticket.setPrice(1.5);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber("GHIJKL");
+        when(ticketDAO.getTicket("GHIJKL")).thenReturn(Optional.of(ticket));
+
+        ExitResult result = parkingService.exit("GHIJKL");
+
+        assertEquals(GateStatus.TICKET_NOT_FOUND, result.getStatus());
+        assertEquals(1.5, ticket.getPrice());
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void testExitWhenTheSpotCannotBeFreed() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber("GHIJKL");
+        when(ticketDAO.getTicket("GHIJKL")).thenReturn(Optional.of(ticket));
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(false);
+        OccupancyService occupancyService = mock(OccupancyService.class);
+        parkingService.setOccupancyService(occupancyService);
+
+        ExitResult result = parkingService.exit("GHIJKL");
+
+        assertEquals(GateStatus.ERROR, result.getStatus());
+        verify(occupancyService, never()).vehicleLeft(any(ParkingType.class));
+    }
+
     @Test
     public void processExitingVehicleTest() throws Exception {
         ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
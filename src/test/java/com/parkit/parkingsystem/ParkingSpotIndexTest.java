@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotIndexTest {
+
+    private ParkingSpotIndex parkingSpotIndex;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        parkingSpotIndex = new ParkingSpotIndex();
+        parkingSpotIndex.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, false),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    public void allocatesLowestFreeSpotOfTheRequestedType() {
+        assertEquals(1, parkingSpotIndex.allocate(ParkingType.CAR));
+        assertEquals(3, parkingSpotIndex.allocate(ParkingType.CAR));
+        assertEquals(0, parkingSpotIndex.allocate(ParkingType.CAR));
+        assertEquals(4, parkingSpotIndex.allocate(ParkingType.BIKE));
+    }
+
+    @Test
+    public void releasedSpotCanBeAllocatedAgain() {
+        parkingSpotIndex.allocate(ParkingType.CAR);
+        parkingSpotIndex.allocate(ParkingType.CAR);
+
+        parkingSpotIndex.release(ParkingType.CAR, 2);
+
+        assertEquals(1, parkingSpotIndex.getAvailableCount(ParkingType.CAR));
+        assertEquals(2, parkingSpotIndex.peek(ParkingType.CAR));
+        assertEquals(2, parkingSpotIndex.allocate(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentAllocationsNeverShareASpot() throws Exception {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 10000; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        parkingSpotIndex.load(parkingSpots);
+        Set<Integer> allocated = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int task = 0; task < 8; task++) {
+            executor.submit(() -> {
+                int number;
+                while ((number = parkingSpotIndex.allocate(ParkingType.CAR)) > 0) {
+                    assertTrue(allocated.add(number));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10000, allocated.size());
+        assertEquals(0, parkingSpotIndex.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void unknownSpotsAreSkipped() {
+        parkingSpotIndex.release(ParkingType.CAR, 100);
+        parkingSpotIndex.release(ParkingType.CAR, 0);
+
+        assertFalse(parkingSpotIndex.occupy(ParkingType.CAR, 100));
+        assertFalse(parkingSpotIndex.isFree(ParkingType.CAR, 100));
+        assertEquals(2, parkingSpotIndex.getAvailableCount(ParkingType.CAR));
+        assertTrue(parkingSpotIndex.occupy(ParkingType.CAR, 1));
+    }
+
+    @Test
+    public void spotAddedAfterTheIndexWasLoadedIsStillUpdated() throws SQLException {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("spotIndex");
+        dataBaseConfig.createSchema();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.executeUpdate("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(100, true, 'CAR')");
+        }
+
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(100, ParkingType.CAR, false)));
+        assertFalse(parkingSpotDAO.getParkingSpot(100).isAvailable());
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(100, ParkingType.CAR, true)));
+        assertTrue(parkingSpotDAO.getParkingSpot(100).isAvailable());
+    }
+}
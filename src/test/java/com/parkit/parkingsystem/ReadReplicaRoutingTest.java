@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadReplicaRoutingTest {
+
+    private TicketDAO ticketDAO;
+    private TicketExportFilter filter;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        EmbeddedDataBaseTestConfig primary = new EmbeddedDataBaseTestConfig("primary");
+        EmbeddedDataBaseTestConfig replica = new EmbeddedDataBaseTestConfig("replica");
+        primary.createSchema();
+        replica.createSchema();
+        // The replica lags behind: the second visit has not reached it yet
+        insertTicket(primary, 1, true);
+        insertTicket(primary, 2, true);
+        insertTicket(replica, 1, true);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = new EmbeddedDataBaseTestConfig("primary", "replica");
+        filter = new TicketExportFilter(new Date(0), new Date(System.currentTimeMillis() + 3600_000L));
+    }
+
+    @Test
+    public void reportsAreReadFromTheReplica() throws SQLException {
+        assertEquals(1, ticketDAO.streamTickets(filter, 100, ticket -> { }));
+        assertEquals(1, ticketDAO.streamClosedTickets(filter.getFrom(), filter.getTo(), 100, (ticket, recurring) -> { }));
+    }
+
+    @Test
+    public void gateReadsStayOnThePrimary() throws SQLException {
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"));
+        // Both visits are over: there is no ticket to close
+        assertFalse(ticketDAO.getTicket("ABCDEF").isPresent());
+
+        insertTicket(new EmbeddedDataBaseTestConfig("primary"), 3, false);
+
+        assertEquals(3, ticketDAO.getTicket("ABCDEF").get().getId());
+    }
+
+    @Test
+    public void readsWithinATransactionSeeItsWrites() throws SQLException {
+        ticketDAO.dataBaseConfig.beginTransaction();
+        try {
+            assertEquals(2, ticketDAO.streamTickets(filter, 100, ticket -> { }));
+        } finally {
+            ticketDAO.dataBaseConfig.rollbackTransaction();
+        }
+    }
+
+    @Test
+    public void withoutReplicaReportsAreReadFromThePrimary() throws SQLException {
+        ticketDAO.dataBaseConfig = new EmbeddedDataBaseTestConfig("primary");
+
+        assertEquals(2, ticketDAO.streamTickets(filter, 100, ticket -> { }));
+    }
+
+    private void insertTicket(DataBaseConfig dataBaseConfig, int id, boolean closed) throws SQLException {
+        long inTime = System.currentTimeMillis() - (3 - id) * 86400_000L;
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) "
+                     + "values(?, 1, 'ABCDEF', 1.5, ?, ?, 'CAR')")) {
+            ps.setInt(1, id);
+            ps.setTimestamp(2, new Timestamp(inTime));
+            ps.setTimestamp(3, closed ? new Timestamp(inTime + 3600_000L) : null);
+            ps.executeUpdate();
+        }
+    }
+}
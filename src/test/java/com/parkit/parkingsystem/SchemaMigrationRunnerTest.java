@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrationRunner;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class SchemaMigrationRunnerTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private SchemaMigrationRunner migrationRunner;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("migrations");
+        dataBaseConfig.createBaseSchema();
+        migrationRunner = new SchemaMigrationRunner(dataBaseConfig);
+    }
+
+    private List<Integer> getAppliedVersions() throws SQLException {
+        List<Integer> versions = new ArrayList<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("select VERSION from schema_version order by VERSION")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Test
+    public void everyMigrationIsAppliedFromScratch() throws SQLException {
+        assertEquals(5, migrationRunner.migrate());
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), getAppliedVersions());
+        execute("insert into parking(LOT_ID, PARKING_NUMBER, AVAILABLE, TYPE) values('north', 1, true, 'CAR')");
+        execute("insert into ticket_plate_summary(LOT_ID, VEHICLE_REG_NUMBER, TICKET_COUNT, FIRST_IN_TIME) values('north', 'ABCDEF', 1, now())");
+        execute("update journal_checkpoint set LAST_SEQUENCE = 1 where ID = 1");
+    }
+
+    @Test
+    public void migratingAgainDoesNothing() throws SQLException {
+        migrationRunner.migrate();
+
+        assertEquals(0, migrationRunner.migrate());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), getAppliedVersions());
+    }
+
+    @Test
+    public void failedMigrationIsNotRecorded() throws SQLException {
+        execute("create table journal_checkpoint(ID int PRIMARY KEY)");
+
+        assertThrows(SQLException.class, () -> migrationRunner.migrate());
+        assertEquals(Arrays.asList(1, 2), getAppliedVersions());
+
+        execute("drop table journal_checkpoint");
+        assertEquals(3, migrationRunner.migrate());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), getAppliedVersions());
+    }
+
+    @Test
+    public void unreachableDatabaseFailsTheMigration() {
+        SQLException failure = assertThrows(SQLException.class,
+                () -> new SchemaMigrationRunner(mock(DataBaseConfig.class)).migrate());
+
+        assertEquals("Unable to connect to the database to migrate its schema", failure.getMessage());
+    }
+}
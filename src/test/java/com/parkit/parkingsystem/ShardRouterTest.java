@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ShardDataBaseConfig;
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRouterTest {
+
+    @AfterEach
+    private void tearDownPerTest() {
+        System.clearProperty("parkit.lots");
+        System.clearProperty("parkit.lot.north.shard");
+        System.clearProperty("parkit.lot.south.shard");
+    }
+
+    @Test
+    public void lotsAreRoutedToTheirShard() {
+        System.setProperty("parkit.lots", "north, south,east");
+        System.setProperty("parkit.lot.north.shard", "busy");
+        System.setProperty("parkit.lot.south.shard", "busy");
+
+        ShardRouter router = ShardRouter.fromSystemProperties();
+
+        assertEquals(Arrays.asList("north", "south", "east"), router.getLots());
+        DataBaseConfig busy = router.getDataBaseConfig("north");
+        assertTrue(busy instanceof ShardDataBaseConfig);
+        assertEquals("busy", ((ShardDataBaseConfig) busy).getName());
+        assertSame(busy, router.getDataBaseConfig("south"));
+        assertFalse(router.getDataBaseConfig("east") instanceof ShardDataBaseConfig);
+        assertEquals(Arrays.asList(busy, router.getDataBaseConfig("east")), router.getShards());
+    }
+
+    @Test
+    public void defaultLotOnTheDefaultDatabase() {
+        ShardRouter router = ShardRouter.fromSystemProperties();
+
+        assertEquals(Collections.singletonList(DBConstants.DEFAULT_LOT_ID), router.getLots());
+        assertEquals(1, router.getShards().size());
+    }
+
+    @Test
+    public void unknownOrInvalidLotsAreRejected() {
+        ShardRouter router = ShardRouter.fromSystemProperties();
+
+        assertThrows(IllegalArgumentException.class, () -> router.getDataBaseConfig("north"));
+        assertThrows(IllegalArgumentException.class, () -> router.addLot("a-lot-id-far-too-long-for-the-column", new DataBaseConfig()));
+    }
+}
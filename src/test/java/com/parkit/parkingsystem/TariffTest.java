@@ -0,0 +1,220 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FixedPointFareCalculatorService;
+import com.parkit.parkingsystem.service.TariffFareCalculatorService;
+import com.parkit.parkingsystem.tariff.RateTable;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffLoader;
+import com.parkit.parkingsystem.tariff.TariffReloader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffTest {
+
+    private Properties properties;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        properties = new Properties();
+        properties.setProperty("freeMinutes", "0");
+        properties.setProperty("zone", "UTC");
+        properties.setProperty("car.rate", "1.5");
+        properties.setProperty("bike.rate", "1");
+    }
+
+    @Test
+    public void defaultTariffPricesLikeTheFareConstants() {
+        Tariff tariff = Tariff.defaultTariff();
+        FixedPointFareCalculatorService fixedPointFareCalculatorService = new FixedPointFareCalculatorService();
+        long inTime = System.currentTimeMillis();
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (long minutes = 0; minutes < 3 * 24 * 60; minutes += 7) {
+                long outTime = inTime + minutes * 60_000L + 13_000L;
+                for (boolean discount : new boolean[]{false, true}) {
+                    assertEquals(fixedPointFareCalculatorService.calculateFareInCents(parkingType, inTime, outTime, discount),
+                            tariff.calculateFareInCents(parkingType, inTime, outTime, discount), parkingType + " " + minutes + " min");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bandsApplyByTimeOfDayAndWeekday() {
+        properties.setProperty("car.bands", "night,weekend");
+        properties.setProperty("car.band.night.days", "MON-FRI");
+        properties.setProperty("car.band.night.from", "20:00");
+        properties.setProperty("car.band.night.to", "08:00");
+        properties.setProperty("car.band.night.rate", "0.75");
+        properties.setProperty("car.band.weekend.days", "SAT,SUN");
+        properties.setProperty("car.band.weekend.rate", "1");
+        Tariff tariff = TariffLoader.compile(properties);
+
+        // 2024-01-01 is a Monday: one hour at the base rate, one in the night band
+        assertEquals(225, fare(tariff, ParkingType.CAR, at(1, 19), at(1, 21)));
+        // The night band of Monday runs on into Tuesday morning
+        assertEquals(150 + 75, fare(tariff, ParkingType.CAR, at(2, 7), at(2, 9)));
+        // Friday night is overridden by the weekend band from Saturday midnight
+        assertEquals(75 + 100, fare(tariff, ParkingType.CAR, at(5, 23), at(6, 1)));
+        // Sunday night is not in the night band
+        assertEquals(100 + 150, fare(tariff, ParkingType.CAR, at(7, 23), at(8, 1)));
+        assertEquals(200, fare(tariff, ParkingType.BIKE, at(6, 10), at(6, 12)));
+    }
+
+    @Test
+    public void dailyCapLimitsEachCalendarDay() {
+        properties.setProperty("car.dailyCap", "10");
+        Tariff tariff = TariffLoader.compile(properties);
+
+        assertEquals(2000, fare(tariff, ParkingType.CAR, at(1, 0), at(3, 0)));
+        // Capped on Monday, 6 hours at 1.5 on Tuesday
+        assertEquals(1000 + 900, fare(tariff, ParkingType.CAR, at(1, 12), at(2, 6)));
+        assertEquals(4800, fare(tariff, ParkingType.BIKE, at(1, 0), at(3, 0)));
+    }
+
+    @Test
+    public void longStaysArePricedLikeADayByDayWalk() {
+        properties.setProperty("zone", "Europe/Paris");
+        properties.setProperty("car.dailyCap", "20");
+        properties.setProperty("car.bands", "night,weekend");
+        properties.setProperty("car.band.night.days", "MON-THU");
+        properties.setProperty("car.band.night.from", "19:30");
+        properties.setProperty("car.band.night.to", "07:15");
+        properties.setProperty("car.band.night.rate", "0.6");
+        properties.setProperty("car.band.weekend.days", "SAT-SUN");
+        properties.setProperty("car.band.weekend.rate", "2.4");
+        Tariff tariff = TariffLoader.compile(properties);
+        Random random = new Random(42);
+
+        assertEquals(30 * 2000, fare(tariff, ParkingType.CAR, at(1, 0) - 3600_000L, at(31, 0) - 3600_000L));
+        for (int i = 0; i < 400; i++) {
+            // Around the change to summer time of 2024-03-31, or to winter time of 2024-10-27
+            int firstDay = (i % 2 == 0) ? 45 : 255;
+            long inTime = at(1, 0) + 3600_000L * 24 * (firstDay + random.nextInt(60)) + random.nextInt(86400_000);
+            long outTime = inTime + (long) random.nextInt(40 * 1440) * 60_000L + random.nextInt(60_000);
+            assertEquals(dayByDayFare(tariff.getRateTable(ParkingType.CAR), 2000, ZoneId.of("Europe/Paris"), inTime, outTime),
+                    fare(tariff, ParkingType.CAR, inTime, outTime), "Stay from " + Instant.ofEpochMilli(inTime) + " to " + Instant.ofEpochMilli(outTime));
+        }
+    }
+
+    @Test
+    public void minutesArePricedAtTheirLocalTimeOnOffsetChanges() {
+        properties.setProperty("zone", "Europe/Paris");
+        properties.setProperty("car.bands", "night");
+        properties.setProperty("car.band.night.days", "MON-SUN");
+        properties.setProperty("car.band.night.from", "00:00");
+        properties.setProperty("car.band.night.to", "06:00");
+        properties.setProperty("car.band.night.rate", "0.6");
+        Tariff tariff = TariffLoader.compile(properties);
+        ZoneId paris = ZoneId.of("Europe/Paris");
+
+        // Summer time from 2024-03-31 02:00: 2 hours on Saturday, then 00:00-02:00 and 03:00-06:00 at night and 2 hours by day
+        long inTime = ZonedDateTime.of(2024, 3, 30, 22, 0, 0, 0, paris).toInstant().toEpochMilli();
+        long outTime = ZonedDateTime.of(2024, 3, 31, 8, 0, 0, 0, paris).toInstant().toEpochMilli();
+        assertEquals(9 * 3600_000L, outTime - inTime);
+        assertEquals(300 + 5 * 60 + 300, fare(tariff, ParkingType.CAR, inTime, outTime));
+        // Winter time from 2024-10-27 03:00: 02:00-03:00 is charged twice at night
+        inTime = ZonedDateTime.of(2024, 10, 27, 0, 0, 0, 0, paris).toInstant().toEpochMilli();
+        outTime = ZonedDateTime.of(2024, 10, 27, 8, 0, 0, 0, paris).toInstant().toEpochMilli();
+        assertEquals(9 * 3600_000L, outTime - inTime);
+        assertEquals(7 * 60 + 300, fare(tariff, ParkingType.CAR, inTime, outTime));
+    }
+
+    @Test
+    public void offsetChangeDaysAreCappedAsOneDay() {
+        properties.setProperty("zone", "Europe/Paris");
+        properties.setProperty("car.dailyCap", "20");
+        Tariff tariff = TariffLoader.compile(properties);
+        ZoneId paris = ZoneId.of("Europe/Paris");
+
+        // The 23 and 25 hour days are each capped once, and the day after starts at the local midnight
+        for (LocalDate date : new LocalDate[]{LocalDate.of(2024, 3, 31), LocalDate.of(2024, 10, 27)}) {
+            long inTime = date.atStartOfDay(paris).toInstant().toEpochMilli();
+            long midnight = date.plusDays(1).atStartOfDay(paris).toInstant().toEpochMilli();
+            assertEquals(2000, fare(tariff, ParkingType.CAR, inTime, midnight));
+            assertEquals(2000 + 150, fare(tariff, ParkingType.CAR, inTime, midnight + 3600_000L));
+        }
+    }
+
+    @Test
+    public void invalidTariffsAreRejected() {
+        properties.setProperty("car.rate", "1.505");
+        assertThrows(IllegalArgumentException.class, () -> TariffLoader.compile(properties));
+        properties.setProperty("car.rate", "1.5");
+        properties.remove("bike.rate");
+        assertThrows(IllegalArgumentException.class, () -> TariffLoader.compile(properties));
+        properties.setProperty("bike.rate", "1");
+        properties.setProperty("car.bands", "night");
+        properties.setProperty("car.band.night.days", "XYZ");
+        properties.setProperty("car.band.night.rate", "1");
+        assertThrows(IllegalArgumentException.class, () -> TariffLoader.compile(properties));
+    }
+
+    @Test
+    public void reloaderOnlySwapsInChangedValidFiles() throws Exception {
+        Path file = Files.createTempDirectory("tariff").resolve("tariff.properties");
+        Files.write(file, "freeMinutes=0\ncar.rate=1.5\nbike.rate=1\n".getBytes(StandardCharsets.UTF_8));
+        TariffReloader reloader = new TariffReloader(file);
+        TariffFareCalculatorService fareCalculatorService = new TariffFareCalculatorService(reloader.load());
+        assertNull(reloader.reload());
+
+        Files.write(file, "freeMinutes=0\ncar.rate=3\nbike.rate=1\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        fareCalculatorService.setTariff(reloader.reload());
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3600_000L));
+        ticket.setOutTime(new Date(ticket.getInTime().getTime() + 3600_000L));
+        fareCalculatorService.calculateFare(ticket, false);
+        assertEquals(3.0, ticket.getPrice(), 0.001);
+
+        Files.write(file, "car.rate=abc\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        assertNull(reloader.reload());
+    }
+
+    private static long fare(Tariff tariff, ParkingType parkingType, long inTime, long outTime) {
+        return tariff.calculateFareInCents(parkingType, inTime, outTime, false);
+    }
+
+    /**
+     * Reference fare walking the stay minute by minute: each minute is priced at its local time
+     * and added to its local date, each date being capped on its own.
+     */
+    private static long dayByDayFare(RateTable rateTable, long dailyCapCents, ZoneId zone, long inTime, long outTime) {
+        Map<LocalDate, Long> unitsByDate = new HashMap<>();
+        for (long minute = 0; minute < (outTime - inTime) / 60_000; minute++) {
+            ZonedDateTime local = Instant.ofEpochMilli(inTime + minute * 60_000).atZone(zone);
+            int minuteOfWeek = (local.getDayOfWeek().getValue() - 1) * 1440 + local.getHour() * 60 + local.getMinute();
+            unitsByDate.merge(local.toLocalDate(), rateTable.getCentsPerHour(minuteOfWeek), Long::sum);
+        }
+        long units = 0;
+        for (long dayUnits : unitsByDate.values()) {
+            units += Math.min(dayUnits, dailyCapCents * 60);
+        }
+        return (2 * units + 60) / 120;
+    }
+
+    private static long at(int dayOfJanuary, int hour) {
+        return ZonedDateTime.of(2024, 1, dayOfJanuary, hour, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
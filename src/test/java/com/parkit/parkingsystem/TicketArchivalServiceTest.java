@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import com.parkit.parkingsystem.service.TicketArchivalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketArchivalServiceTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+    private TicketArchivalService archivalService;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("archival");
+        dataBaseConfig.createSchema();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        archivalService = new TicketArchivalService(ticketDAO);
+        archivalService.setChunkSize(2);
+        insertTicket("ABCDEF", 101, true);
+        insertTicket("ABCDEF", 100, true);
+        insertTicket("ABCDEF", 10, true);
+        insertTicket("GHIJKL", 200, true);
+        insertTicket("MNOPQR", 200, false);
+    }
+
+    @Test
+    public void oldClosedTicketsAreMovedToTheArchive() throws SQLException {
+        assertEquals(3, archivalService.archiveOlderThan(30));
+
+        assertEquals(2, countRows("ticket"));
+        assertEquals(3, countRows("ticket_archive"));
+        assertEquals(0, archivalService.archiveOlderThan(30));
+    }
+
+    @Test
+    public void visitCountsIncludeTheArchive() throws SQLException {
+        archivalService.archiveOlderThan(30);
+
+        assertEquals(3, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(1, ticketDAO.getNbTicket("GHIJKL"));
+        assertTrue(ticketDAO.isVehicleCurrentlyParked("MNOPQR"));
+
+        insertTicket("ABCDEF", 50, true);
+        insertTicket("GHIJKL", 60, true);
+        archivalService.archiveOlderThan(30);
+
+        assertEquals(4, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(2, ticketDAO.getNbTicket("GHIJKL"));
+    }
+
+    @Test
+    public void historyIncludesTheArchive() throws SQLException {
+        archivalService.archiveOlderThan(30);
+        TicketExportFilter filter = new TicketExportFilter(new Date(0), new Date());
+        filter.setVehicleRegNumber("ABCDEF");
+        List<Ticket> exported = new ArrayList<>();
+        List<Boolean> recurring = new ArrayList<>();
+
+        ticketDAO.streamTickets(filter, 100, exported::add);
+        ticketDAO.streamClosedTickets(filter.getFrom(), filter.getTo(), 100, (ticket, recurringUser) -> recurring.add(recurringUser));
+
+        assertEquals(3, exported.size());
+        assertTrue(exported.get(0).getInTime().before(exported.get(1).getInTime()));
+        assertTrue(exported.get(1).getInTime().before(exported.get(2).getInTime()));
+        // Only the hot ticket is repriced, as a recurring user thanks to the archived visits
+        assertEquals(1, recurring.size());
+        assertTrue(recurring.get(0));
+    }
+
+    private void insertTicket(String vehicleRegNumber, int daysAgo, boolean closed) throws SQLException {
+        long inTime = System.currentTimeMillis() - daysAgo * 86400_000L;
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) "
+                     + "values(1, ?, 1.5, ?, ?, 'CAR')")) {
+            ps.setString(1, vehicleRegNumber);
+            ps.setTimestamp(2, new Timestamp(inTime));
+            ps.setTimestamp(3, closed ? new Timestamp(inTime + 3600_000L) : null);
+            ps.executeUpdate();
+        }
+    }
+
+    private int countRows(String table) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from " + table);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
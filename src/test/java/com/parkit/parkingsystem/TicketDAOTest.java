@@ -0,0 +1,158 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class TicketDAOTest {
+
+    private static final int CAR_SPOTS = 20;
+    private static final int GATES = 8;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("claims");
+        dataBaseConfig.createSchema();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?, true, 'CAR')")) {
+            for (int parkingNumber = 2; parkingNumber <= CAR_SPOTS; parkingNumber++) {
+                ps.setInt(1, parkingNumber);
+                ps.executeUpdate();
+            }
+        }
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    private List<ParkingSpot> claimConcurrently(int entries) throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        try {
+            List<Future<ParkingSpot>> claims = new ArrayList<>();
+            for (int entry = 0; entry < entries; entry++) {
+                String vehicleRegNumber = "CAR-" + entry;
+                Callable<ParkingSpot> claim = () -> {
+                    // Unlike MySQL, H2 can return no row to a claim while other claims hold the next spots locked:
+                    // entries try again as long as spots are left
+                    ParkingSpot parkingSpot;
+                    do {
+                        parkingSpot = ticketDAO.saveTicketOnNextAvailableSlot(newTicket(vehicleRegNumber), ParkingType.CAR);
+                    } while (parkingSpot == null && countRows("select count(*) from parking where AVAILABLE = true") > 0);
+                    return parkingSpot;
+                };
+                claims.add(gates.submit(claim));
+            }
+            List<ParkingSpot> claimed = new ArrayList<>();
+            for (Future<ParkingSpot> claim : claims) {
+                ParkingSpot parkingSpot = claim.get();
+                if (parkingSpot != null) {
+                    claimed.add(parkingSpot);
+                }
+            }
+            return claimed;
+        } finally {
+            gates.shutdown();
+        }
+    }
+
+    private void assertEverySpotClaimedOnce(List<ParkingSpot> claimed) throws SQLException {
+        Set<Integer> claimedNumbers = new HashSet<>();
+        claimed.forEach(parkingSpot -> claimedNumbers.add(parkingSpot.getId()));
+        assertEquals(CAR_SPOTS, claimed.size());
+        assertEquals(CAR_SPOTS, claimedNumbers.size());
+        assertEquals(CAR_SPOTS, countRows("select count(distinct PARKING_NUMBER) from ticket"));
+        assertEquals(CAR_SPOTS, countRows("select count(*) from ticket"));
+        assertEquals(0, countRows("select count(*) from parking where AVAILABLE = true"));
+    }
+
+    private int countRows(String query) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void concurrentEntriesLockingSpotRowsNeverShareASpot() throws Exception {
+        assertEverySpotClaimedOnce(claimConcurrently(CAR_SPOTS + 10));
+    }
+
+    @Test
+    public void concurrentEntriesAllocatingFromTheIndexNeverShareASpot() throws Exception {
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+
+        assertEverySpotClaimedOnce(claimConcurrently(CAR_SPOTS + 10));
+        assertEquals(0, ticketDAO.parkingSpotIndex.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void spotClaimIsRolledBackWhenTheTicketIsNotSaved() throws Exception {
+        ticketDAO.parkingSpotIndex = parkingSpotDAO.loadParkingSpotIndex();
+        EmbeddedDataBaseTestConfig delegate = dataBaseConfig;
+        ticketDAO.dataBaseConfig = new EmbeddedDataBaseTestConfig("claims") {
+            @Override
+            public Connection getConnection() {
+                Connection con = delegate.getConnection();
+                Connection noTicketInserted = mock(Connection.class, delegatesTo(con));
+                try {
+                    doAnswer(invocation -> {
+                        PreparedStatement ps = con.prepareStatement(invocation.getArgument(0), (int) invocation.getArgument(1));
+                        PreparedStatement noRowInserted = mock(PreparedStatement.class, delegatesTo(ps));
+                        doReturn(0).when(noRowInserted).executeUpdate();
+                        return noRowInserted;
+                    }).when(noTicketInserted).prepareStatement(startsWith("insert into ticket"), anyInt());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return noTicketInserted;
+            }
+        };
+
+        assertNull(ticketDAO.saveTicketOnNextAvailableSlot(newTicket("ABCDEF"), ParkingType.CAR));
+
+        assertEquals(0, countRows("select count(*) from ticket"));
+        assertEquals(CAR_SPOTS, countRows("select count(*) from parking where AVAILABLE = true"));
+        assertEquals(CAR_SPOTS, ticketDAO.parkingSpotIndex.getAvailableCount(ParkingType.CAR));
+        assertTrue(ticketDAO.parkingSpotIndex.isFree(ParkingType.CAR, 1));
+    }
+}
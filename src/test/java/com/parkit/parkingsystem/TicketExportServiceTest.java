@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.export.ColumnarTicketReader;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketExportFilter;
+import com.parkit.parkingsystem.service.TicketExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketExportServiceTest {
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private TicketExportService exportService;
+    private Path file;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        exportService = new TicketExportService(ticketDAO);
+        // Small buffers and row groups so the tests cross their boundaries
+        exportService.setBufferSize(16);
+        exportService.setRowGroupSize(3);
+        file = Files.createTempFile("tickets", ".export");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private static Date time(int day, int hour, int minute) {
+        return Date.from(LocalDateTime.of(2024, 3, day, hour, minute).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Ticket newTicket(int id, ParkingType parkingType, String plate, Date inTime, Date outTime, double price) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(id % 5 + 1, parkingType, false));
+        ticket.setParkingType(parkingType);
+        ticket.setVehicleRegNumber(plate);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(outTime);
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamTickets(List<Ticket> tickets) throws Exception {
+        when(ticketDAO.streamTickets(any(TicketExportFilter.class), anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<Ticket> consumer = invocation.getArgument(2);
+            tickets.forEach(consumer);
+            return (long) tickets.size();
+        });
+    }
+
+    @Test
+    public void exportCsv() throws Exception {
+        streamTickets(List.of(
+                newTicket(1, ParkingType.CAR, "ABCDEF", time(1, 8, 0), time(1, 10, 0), 2.25),
+                newTicket(2, ParkingType.BIKE, "GH,\"IJ\"", time(1, 9, 30), null, 0)));
+
+        long count = exportService.export(new TicketExportFilter(time(1, 0, 0), time(2, 0, 0)), ExportFormat.CSV, file, false);
+
+        assertEquals(2, count);
+        assertEquals("ID,PARKING_NUMBER,PARKING_TYPE,VEHICLE_REG_NUMBER,IN_TIME,OUT_TIME,PRICE\n"
+                        + "1,2,CAR,ABCDEF,2024-03-01 08:00:00,2024-03-01 10:00:00,2.25\n"
+                        + "2,3,BIKE,\"GH,\"\"IJ\"\"\",2024-03-01 09:30:00,,0.00\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportColumnarGzipReadsBackEveryTicket() throws Exception {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            Date outTime = i % 4 == 0 ? null : time(2, 10 + i, 0);
+            tickets.add(newTicket(i * 7, i % 2 == 0 ? ParkingType.BIKE : ParkingType.CAR, "PLATE" + i,
+                    time(2, i, i), outTime, i * 1.05));
+        }
+        streamTickets(tickets);
+
+        long count = exportService.export(new TicketExportFilter(time(2, 0, 0), time(3, 0, 0)), ExportFormat.COLUMNAR, file, true);
+
+        List<Ticket> read = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            assertEquals(10, new ColumnarTicketReader(in).read(read::add));
+        }
+        assertEquals(10, count);
+        for (int i = 0; i < tickets.size(); i++) {
+            Ticket expected = tickets.get(i);
+            Ticket actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getParkingSpot().getId(), actual.getParkingSpot().getId());
+            assertEquals(expected.getParkingType(), actual.getParkingType());
+            assertEquals(expected.getVehicleRegNumber(), actual.getVehicleRegNumber());
+            assertEquals(expected.getInTime(), actual.getInTime());
+            assertEquals(expected.getOutTime(), actual.getOutTime());
+            assertEquals(expected.getPrice(), actual.getPrice(), 0.001);
+        }
+    }
+
+    @Test
+    public void exportColumnarWithoutTickets() throws Exception {
+        streamTickets(List.of());
+
+        exportService.export(new TicketExportFilter(time(1, 0, 0), time(2, 0, 0)), ExportFormat.COLUMNAR, file, false);
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            assertEquals(0, new ColumnarTicketReader(in).read(ticket -> fail("No ticket expected")));
+        }
+    }
+}
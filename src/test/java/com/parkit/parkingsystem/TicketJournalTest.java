@@ -0,0 +1,132 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.JournalRecordType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Ticket ticket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(4, ParkingType.BIKE, false));
+        ticket.setInTime(new Date(1700000000000L));
+        return ticket;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void appendedRecordsAreReadBackAfterReopening() throws IOException {
+        List<JournalRecord> delivered = new ArrayList<>();
+        try (TicketJournal journal = new TicketJournal(directory, 1024 * 1024)) {
+            journal.start(1, delivered::addAll);
+            assertEquals(2, journal.append(JournalRecord.saveTicket(ticket("AB-123")), JournalRecord.updateParking(new ParkingSpot(4, ParkingType.BIKE, false))));
+            Ticket closed = ticket("AB-123");
+            closed.setPrice(1.5);
+            closed.setOutTime(new Date(1700003600000L));
+            assertEquals(3, journal.append(JournalRecord.updateTicket(closed)));
+        }
+        assertEquals(3, delivered.size());
+
+        try (TicketJournal journal = new TicketJournal(directory, 1024 * 1024)) {
+            List<JournalRecord> records = journal.readFrom(1);
+
+            assertEquals(2, records.size());
+            assertEquals(JournalRecordType.UPDATE_PARKING, records.get(0).getType());
+            assertEquals(4, records.get(0).getParkingNumber());
+            assertFalse(records.get(0).isAvailable());
+            JournalRecord update = records.get(1);
+            assertEquals(3, update.getSequence());
+            assertEquals(JournalRecordType.UPDATE_TICKET, update.getType());
+            assertEquals("AB-123", update.getVehicleRegNumber());
+            assertEquals(1.5, update.getPrice());
+            assertEquals(1700003600000L, update.getOutTime().getTime());
+            JournalRecord save = journal.readFrom(0).get(0);
+            assertEquals(ParkingType.BIKE, save.getParkingType());
+            assertEquals(1700000000000L, save.getInTime().getTime());
+            assertNull(save.getOutTime());
+        }
+    }
+
+    @Test
+    public void recordCutShortByACrashIsDropped() throws IOException {
+        try (TicketJournal journal = new TicketJournal(directory, 1024 * 1024)) {
+            journal.start(1, records -> { });
+            journal.append(JournalRecord.saveTicket(ticket("AB-123")));
+            journal.append(JournalRecord.saveTicket(ticket("CD-456")));
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (TicketJournal journal = new TicketJournal(directory, 1024 * 1024)) {
+            List<JournalRecord> records = journal.readFrom(0);
+            assertEquals(1, records.size());
+            assertEquals("AB-123", records.get(0).getVehicleRegNumber());
+
+            journal.start(1, delivered -> { });
+            assertEquals(2, journal.append(JournalRecord.saveTicket(ticket("EF-789"))));
+        }
+    }
+
+    @Test
+    public void flushedSegmentsAreDeleted() throws IOException {
+        try (TicketJournal journal = new TicketJournal(directory, 200)) {
+            journal.start(1, records -> { });
+            for (int i = 0; i < 10; i++) {
+                journal.append(JournalRecord.saveTicket(ticket("AB-" + i)));
+            }
+            int segmentCount = segments().size();
+            assertTrue(segmentCount > 2);
+
+            journal.checkpoint(4);
+            assertTrue(segments().size() < segmentCount);
+            assertEquals(6, journal.readFrom(4).size());
+
+            journal.checkpoint(10);
+            assertEquals(1, segments().size());
+        }
+    }
+}
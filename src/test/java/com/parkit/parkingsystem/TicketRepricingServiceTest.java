@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketRepricingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketRepricingServiceTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private TicketRepricingService repricingService;
+    private final List<Ticket> updatedTickets = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    private void setUpPerTest() {
+        repricingService = new TicketRepricingService(ticketDAO);
+        repricingService.setChunkSize(2);
+        repricingService.setThreads(2);
+    }
+
+    private static Ticket newTicket(int id, ParkingType parkingType, long durationMillis, double price) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setParkingType(parkingType);
+        ticket.setInTime(new Date(0));
+        ticket.setOutTime(new Date(durationMillis));
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamTickets(List<Ticket> tickets, List<Boolean> recurringUsers) throws SQLException {
+        when(ticketDAO.streamClosedTickets(any(Date.class), any(Date.class), anyInt(), any())).thenAnswer(invocation -> {
+            BiConsumer<Ticket, Boolean> consumer = invocation.getArgument(3);
+            for (int i = 0; i < tickets.size(); i++) {
+                consumer.accept(tickets.get(i), recurringUsers.get(i));
+            }
+            return (long) tickets.size();
+        });
+    }
+
+    @Test
+    public void repriceWritesBackOnlyChangedPrices() throws Exception {
+        // 2 hours of car is 2.25 once the free half hour is taken off, 2.14 with the discount
+        List<Ticket> tickets = List.of(
+                newTicket(1, ParkingType.CAR, 2 * HOUR, 2.25),
+                newTicket(2, ParkingType.CAR, 2 * HOUR, 0),
+                newTicket(3, ParkingType.CAR, 2 * HOUR, 2.25),
+                newTicket(4, ParkingType.BIKE, 10 * 60 * 1000, 0));
+        streamTickets(tickets, List.of(false, false, true, false));
+        doAnswer(invocation -> updatedTickets.addAll(invocation.getArgument(0)))
+                .when(ticketDAO).updateTicketPrices(anyList());
+
+        RepricingReport report = repricingService.reprice(new Date(0), new Date(HOUR));
+
+        assertEquals(4, report.getTicketsRead());
+        assertEquals(2, report.getTicketsUpdated());
+        assertEquals(0, report.getTicketsFailed());
+        assertEquals(2, updatedTickets.size());
+        assertEquals(2.25, tickets.get(1).getPrice());
+        assertEquals(2.14, tickets.get(2).getPrice());
+    }
+
+    @Test
+    public void repriceCountsFailedChunks() throws Exception {
+        List<Ticket> tickets = List.of(
+                newTicket(1, ParkingType.CAR, 2 * HOUR, 0),
+                newTicket(2, ParkingType.CAR, 2 * HOUR, 0),
+                newTicket(3, ParkingType.CAR, 2 * HOUR, 0));
+        streamTickets(tickets, List.of(false, false, false));
+        doThrow(new SQLException("batch failed")).when(ticketDAO).updateTicketPrices(anyList());
+
+        RepricingReport report = repricingService.reprice(new Date(0), new Date(HOUR));
+
+        assertEquals(3, report.getTicketsRead());
+        assertEquals(0, report.getTicketsUpdated());
+        assertEquals(3, report.getTicketsFailed());
+    }
+}
@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.VisitCountCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VisitCountCacheTest {
+
+    private VisitCountCache visitCountCache;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        visitCountCache = new VisitCountCache(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedVehicleIsEvicted() {
+        visitCountCache.putIfUnchanged("ABCDEF", 1, visitCountCache.getVersion("ABCDEF"));
+        visitCountCache.putIfUnchanged("GHIJKL", 2, visitCountCache.getVersion("GHIJKL"));
+        visitCountCache.get("ABCDEF");
+
+        visitCountCache.putIfUnchanged("MNOPQR", 3, visitCountCache.getVersion("MNOPQR"));
+
+        assertEquals(2, visitCountCache.size());
+        assertNull(visitCountCache.get("GHIJKL"));
+        assertEquals(1, (int) visitCountCache.get("ABCDEF"));
+        assertEquals(3, (int) visitCountCache.get("MNOPQR"));
+        assertThrows(IllegalArgumentException.class, () -> new VisitCountCache(0));
+    }
+
+    @Test
+    public void countReadBeforeASaveIsNotCached() {
+        long version = visitCountCache.getVersion("ABCDEF");
+        String[] others = {"GHIJKL", "MNOPQR", "STUVWX"};
+        long[] otherVersions = new long[others.length];
+        for (int i = 0; i < others.length; i++) {
+            otherVersions[i] = visitCountCache.getVersion(others[i]);
+        }
+
+        visitCountCache.increment("ABCDEF");
+        visitCountCache.putIfUnchanged("ABCDEF", 3, version);
+
+        assertNull(visitCountCache.get("ABCDEF"));
+        // Only the vehicles sharing a version stripe with the saved one are refused
+        for (int i = 0; i < others.length; i++) {
+            visitCountCache.putIfUnchanged(others[i], 5, otherVersions[i]);
+            assertEquals(visitCountCache.getVersion(others[i]) == otherVersions[i], visitCountCache.get(others[i]) != null, others[i]);
+        }
+        visitCountCache.putIfUnchanged("ABCDEF", 4, visitCountCache.getVersion("ABCDEF"));
+        assertEquals(4, (int) visitCountCache.get("ABCDEF"));
+    }
+
+    @Test
+    public void countReadBeforeAClearIsNotCached() {
+        visitCountCache.putIfUnchanged("ABCDEF", 1, visitCountCache.getVersion("ABCDEF"));
+        long version = visitCountCache.getVersion("GHIJKL");
+
+        visitCountCache.clear();
+        visitCountCache.putIfUnchanged("GHIJKL", 2, version);
+
+        assertEquals(0, visitCountCache.size());
+        assertNull(visitCountCache.get("ABCDEF"));
+        assertNull(visitCountCache.get("GHIJKL"));
+    }
+
+    @Test
+    public void onlyCachedCountsAreIncremented() {
+        visitCountCache.putIfUnchanged("ABCDEF", 2, visitCountCache.getVersion("ABCDEF"));
+
+        visitCountCache.increment("ABCDEF");
+        visitCountCache.increment("GHIJKL");
+
+        assertEquals(3, (int) visitCountCache.get("ABCDEF"));
+        assertNull(visitCountCache.get("GHIJKL"));
+        assertEquals(0.5, visitCountCache.getHitRatio(), 0.001);
+    }
+
+    @Test
+    public void ticketCountsAreCachedAndIncrementedOnSave() throws SQLException {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("visitCounts");
+        dataBaseConfig.createSchema();
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            for (int i = 1; i <= 2; i++) {
+                statement.executeUpdate("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, PARKING_TYPE) "
+                        + "values(1, 'ABCDEF', 1.5, timestampadd(DAY, -" + i + ", now()), timestampadd(DAY, -" + i + ", now()), 'CAR')");
+            }
+        }
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.visitCountCache = visitCountCache;
+
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(0.5, visitCountCache.getHitRatio(), 0.001);
+
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        assertTrue(ticketDAO.saveTicket(ticket));
+
+        assertEquals(3, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(2.0 / 3, visitCountCache.getHitRatio(), 0.001);
+        assertEquals(0, ticketDAO.getNbTicket("GHIJKL"));
+        assertEquals(0, (int) visitCountCache.get("GHIJKL"));
+    }
+}
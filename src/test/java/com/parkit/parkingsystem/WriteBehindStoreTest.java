@@ -0,0 +1,214 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalDAO;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.journal.WriteBehindStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindStoreTest {
+
+    @Mock
+    private JournalDAO journalDAO;
+
+    private Path directory;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static JournalRecord saveTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date());
+        return JournalRecord.saveTicket(ticket);
+    }
+
+    @Test
+    public void unflushedTicketsAreCountedUntilWrittenToTheDatabase() throws Exception {
+        when(journalDAO.getCheckpoint()).thenReturn(0L);
+        CountDownLatch databaseAvailable = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            databaseAvailable.await();
+            return null;
+        }).when(journalDAO).apply(any(), anyLong());
+        WriteBehindStore store = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 100, directory.resolve("rejected-records.tsv"));
+        store.recover();
+        store.start();
+
+        store.append(saveTicket("AB-123"));
+        store.append(saveTicket("AB-123"));
+
+        doReturn(new long[]{1, 0}).when(journalDAO).countTickets("AB-123");
+        doReturn(new long[]{0, 0}).when(journalDAO).countTickets("CD-456");
+        assertEquals(3, store.countTickets("AB-123"));
+        assertEquals(0, store.countTickets("CD-456"));
+        databaseAvailable.countDown();
+        store.close();
+        doReturn(new long[]{3, 2}).when(journalDAO).countTickets("AB-123");
+        assertEquals(3, store.countTickets("AB-123"));
+        ArgumentCaptor<Long> checkpoint = ArgumentCaptor.forClass(Long.class);
+        verify(journalDAO, atLeastOnce()).apply(any(), checkpoint.capture());
+        assertEquals(2L, (long) checkpoint.getValue());
+    }
+
+    @Test
+    public void recoveryWritesTheRecordsFollowingTheCheckpoint() throws Exception {
+        try (TicketJournal journal = new TicketJournal(directory, 1024 * 1024)) {
+            journal.start(1, records -> { });
+            journal.append(saveTicket("AB-123"), saveTicket("CD-456"), saveTicket("EF-789"));
+        }
+        when(journalDAO.getCheckpoint()).thenReturn(1L);
+        WriteBehindStore store = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 100, directory.resolve("rejected-records.tsv"));
+
+        assertEquals(2, store.recover());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<JournalRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(journalDAO).apply(records.capture(), eq(3L));
+        assertEquals("CD-456", records.getValue().get(0).getVehicleRegNumber());
+        assertEquals("EF-789", records.getValue().get(1).getVehicleRegNumber());
+        store.start();
+        store.close();
+    }
+
+    @Test
+    public void failedFlushIsRetried() throws Exception {
+        when(journalDAO.getCheckpoint()).thenReturn(0L);
+        doThrow(new SQLException("Communications link failure", "08S01")).doNothing().when(journalDAO).apply(any(), anyLong());
+        WriteBehindStore store = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 100, directory.resolve("rejected-records.tsv"));
+        store.recover();
+        store.start();
+
+        store.append(saveTicket("AB-123"));
+
+        verify(journalDAO, timeout(5000).times(2)).apply(any(), eq(1L));
+        store.close();
+    }
+
+    @Test
+    public void recordWaitingForTheBacklogIsKeptWhenTheWriterIsInterrupted() throws Exception {
+        when(journalDAO.getCheckpoint()).thenReturn(0L);
+        CountDownLatch databaseAvailable = new CountDownLatch(1);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            databaseAvailable.await();
+            List<JournalRecord> records = invocation.getArgument(0);
+            records.forEach(record -> written.add(record.getVehicleRegNumber()));
+            return null;
+        }).when(journalDAO).apply(any(), anyLong());
+        WriteBehindStore store = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 1,
+                directory.resolve("rejected-records.tsv"));
+        store.setBatchSize(1);
+        store.recover();
+        store.start();
+        store.append(saveTicket("AB-123"));
+        store.append(saveTicket("CD-456"));
+        Thread blockedAppend = new Thread(() -> {
+            try {
+                store.append(saveTicket("EF-789"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        blockedAppend.start();
+
+        Thread writer = waitForThreadIn("enqueue");
+        writer.interrupt();
+        Thread.sleep(200);
+        databaseAvailable.countDown();
+        blockedAppend.join(5000);
+        store.close();
+
+        ArgumentCaptor<Long> checkpoint = ArgumentCaptor.forClass(Long.class);
+        verify(journalDAO, atLeastOnce()).apply(any(), checkpoint.capture());
+        assertEquals(Arrays.asList("AB-123", "CD-456", "EF-789"), written);
+        assertEquals(3L, (long) checkpoint.getValue());
+        // Replayed from the journal as well when the database lost its last write
+        when(journalDAO.getCheckpoint()).thenReturn(2L);
+        WriteBehindStore restarted = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 1,
+                directory.resolve("rejected-records.tsv"));
+        assertEquals(1, restarted.recover());
+        assertEquals(Arrays.asList("AB-123", "CD-456", "EF-789", "EF-789"), written);
+        restarted.start();
+        restarted.close();
+    }
+
+    @Test
+    public void recordRejectedByTheDatabaseIsMovedToTheDeadLetterFile() throws Exception {
+        when(journalDAO.getCheckpoint()).thenReturn(0L);
+        doThrow(new SQLException("Duplicate entry", "23000")).when(journalDAO).apply(argThat(records -> !records.isEmpty()), anyLong());
+        Path deadLetterFile = directory.resolve("rejected-records.tsv");
+        WriteBehindStore store = new WriteBehindStore(new TicketJournal(directory, 1024 * 1024), journalDAO, 100, deadLetterFile);
+        store.recover();
+        store.start();
+
+        store.append(saveTicket("AB-123"));
+
+        // The rejected batch, the rejected record alone, then the checkpoint moved past it
+        verify(journalDAO, timeout(5000).times(3)).apply(any(), eq(1L));
+        store.close();
+        List<String> deadLetters = Files.readAllLines(deadLetterFile);
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).startsWith("1\tSAVE_TICKET\tAB-123\tCAR\t1\t"));
+        assertTrue(deadLetters.get(0).endsWith("\tDuplicate entry"));
+    }
+
+    private static Thread waitForThreadIn(String methodName) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                for (StackTraceElement frame : thread.getValue()) {
+                    if (frame.getClassName().equals(WriteBehindStore.class.getName()) && frame.getMethodName().equals(methodName)) {
+                        return thread.getKey();
+                    }
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No thread in WriteBehindStore." + methodName);
+    }
+}
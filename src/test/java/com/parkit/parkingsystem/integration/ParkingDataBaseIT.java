@@ -1,11 +1,13 @@
 package com.parkit.parkingsystem.integration;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrationRunner;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketExportFilter;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.*;
@@ -15,6 +17,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.sql.SQLException;
+import java.util.Date;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,7 +37,8 @@ public class ParkingDataBaseIT {
     private static InputReaderUtil inputReaderUtil;
 
     @BeforeAll
-    public static void setUp() {
+    public static void setUp() throws SQLException {
+        new SchemaMigrationRunner(dataBaseTestConfig).migrate();
         parkingSpotDAO = new ParkingSpotDAO();
         parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
         ticketDAO = new TicketDAO();
@@ -65,7 +70,7 @@ public class ParkingDataBaseIT {
     }
 
     @Test
-    public void testParkingLotExit() {
+    public void testParkingLotExit() throws Exception {
         testParkingACar();  // Ensure a car is parked first
 
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
@@ -79,7 +84,7 @@ public class ParkingDataBaseIT {
 
         parkingService.processExitingVehicle();
 
-        Optional<Ticket> ticket = ticketDAO.getTicket("ABCDEF");
+        Optional<Ticket> ticket = getLatestTicket("ABCDEF");
         assertTrue(ticket.isPresent(), "Ticket should be present in the database");
         assertNotNull(ticket.get().getOutTime(), "Out time should be set after exiting");
 
@@ -92,7 +97,7 @@ public class ParkingDataBaseIT {
     }
 
     @Test
-    public void testParkingLotExitRecurringUser() {
+    public void testParkingLotExitRecurringUser() throws Exception {
         testParkingLotExit();  // First exit
         testParkingACar();  // Park again
 
@@ -107,9 +112,18 @@ public class ParkingDataBaseIT {
 
         parkingService.processExitingVehicle();
 
-        Optional<Ticket> ticket = ticketDAO.getTicket("ABCDEF");
+        Optional<Ticket> ticket = getLatestTicket("ABCDEF");
         assertTrue(ticket.isPresent(), "Ticket should be present in the database");
         assertNotNull(ticket.get().getOutTime(), "Out time should be set after exiting");  // Ensure out time is set
         assertTrue(ticket.get().getPrice() >= 0, "Fare should be calculated and set in the ticket");
     }
-}
\ No newline at end of file
+
+    private Optional<Ticket> getLatestTicket(String vehicleRegNumber) throws SQLException {
+        // getTicket only returns the open ticket of a parked vehicle
+        TicketExportFilter filter = new TicketExportFilter(new Date(0), new Date(System.currentTimeMillis() + 3600_000L));
+        filter.setVehicleRegNumber(vehicleRegNumber);
+        Ticket[] latest = new Ticket[1];
+        ticketDAO.streamTickets(filter, 100, ticket -> latest[0] = ticket);
+        return Optional.ofNullable(latest[0]);
+    }
+}
@@ -5,7 +5,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -15,15 +14,8 @@ public class DataBaseTestConfig extends DataBaseConfig {
     private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
 
     @Override
-    public Connection getConnection() {
-        logger.info("Creating DB connection");
-        Connection connection = null;
-        try {
-            connection = DriverManager.getConnection("jdbc:mysql://localhost:3306/test", "root", "R00tP@ssw0rd!");
-        } catch (SQLException e) {
-            logger.error("Database connection error", e);
-        }
-        return connection;
+    protected String getUrl() {
+        return "jdbc:mysql://localhost:3306/test";
     }
 
     @Override
@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.PoolConfig;
+import com.parkit.parkingsystem.config.SchemaMigrationRunner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Configuration of an in-memory H2 database running in MySQL mode, for the unit tests needing a real database.
+ */
+public class EmbeddedDataBaseTestConfig extends DataBaseConfig {
+
+    private final String url;
+    private final String replicaUrl;
+
+    /**
+     * Creates the configuration of a named in-memory database, without read replica.
+     * @param name the name of the database.
+     */
+    public EmbeddedDataBaseTestConfig(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Creates the configuration of a named in-memory database, read from another one standing for its replica.
+     * @param name the name of the database.
+     * @param replicaName the name of the replica database, null for none.
+     */
+    public EmbeddedDataBaseTestConfig(String name, String replicaName) {
+        this.url = toUrl(name);
+        this.replicaUrl = (replicaName == null) ? null : toUrl(replicaName);
+    }
+
+    private static String toUrl(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUrl() {
+        return url;
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected String getReplicaUrl() {
+        return replicaUrl;
+    }
+
+    @Override
+    protected PoolConfig getPoolConfig() {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(0);
+        return config;
+    }
+
+    /**
+     * Drops everything, creates the tables of {@code resources/Data.sql} with one car spot, and applies the migrations.
+     * @throws SQLException if the schema could not be created.
+     */
+    public void createSchema() throws SQLException {
+        createBaseSchema();
+        new SchemaMigrationRunner(this).migrate();
+    }
+
+    /**
+     * Drops everything and creates the tables of {@code resources/Data.sql} with one car spot, without any migration.
+     * @throws SQLException if the schema could not be created.
+     */
+    public void createBaseSchema() throws SQLException {
+        try (Connection con = getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("drop all objects");
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+            statement.execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL, "
+                    + "VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE DOUBLE, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME, "
+                    + "PARKING_TYPE varchar(10) NOT NULL, CONSTRAINT ticket_ibfk_1 FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+            statement.execute("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(1, true, 'CAR')");
+        }
+    }
+}
@@ -20,6 +20,13 @@ public class DataBasePrepareService {
             connection = dataBaseTestConfig.getConnection();
             ps = connection.prepareStatement("DELETE FROM ticket");
             ps.executeUpdate();
+            dataBaseTestConfig.closePreparedStatement(ps);
+            ps = connection.prepareStatement("DELETE FROM ticket_archive");
+            ps.executeUpdate();
+            dataBaseTestConfig.closePreparedStatement(ps);
+            ps = connection.prepareStatement("DELETE FROM ticket_plate_summary");
+            ps.executeUpdate();
+            dataBaseTestConfig.closePreparedStatement(ps);
             ps = connection.prepareStatement("UPDATE parking SET available = true");
             ps.executeUpdate();
         } catch (SQLException e) {